@@ -5,8 +5,6 @@ import android.accessibilityservice.AccessibilityServiceInfo;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.provider.Settings;
 import android.util.Log;
@@ -18,14 +16,21 @@ import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.stanley.focusflow.NativeMetrics;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @CapacitorPlugin(name = "AppBlocker")
@@ -33,30 +38,52 @@ public class AppBlockerPlugin extends Plugin {
     private static final String TAG = "AppBlockerPlugin";
     private static final String APP_BLOCKER_SERVICE = "com.focustask.app.AppBlockerService";
     private Set<String> blockedApps = new HashSet<>();
+    private PackageChangeReceiver packageChangeReceiver;
+
+    @Override
+    public void load() {
+        // Keep the installed-apps catalog current while the app runs
+        packageChangeReceiver = new PackageChangeReceiver();
+        getContext().registerReceiver(packageChangeReceiver, PackageChangeReceiver.intentFilter());
+    }
 
     @PluginMethod
     public void isServiceEnabled(PluginCall call) {
-        JSObject ret = new JSObject();
-        boolean isEnabled = isAccessibilityServiceEnabled(getContext(), APP_BLOCKER_SERVICE);
-        ret.put("enabled", isEnabled);
-        call.resolve(ret);
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.isServiceEnabled");
+        long startNanos = methodTimer.start();
+        try {
+            JSObject ret = new JSObject();
+            boolean isEnabled = isAccessibilityServiceEnabled(getContext(), APP_BLOCKER_SERVICE);
+            ret.put("enabled", isEnabled);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
     }
 
     @PluginMethod
     public void requestBlockingPermission(PluginCall call) {
-        // Save the call to use it after the user returns from the settings
-        bridge.saveCall(call);
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.requestBlockingPermission");
+        long startNanos = methodTimer.start();
+        try {
+            // Save the call to use it after the user returns from the settings
+            bridge.saveCall(call);
 
-        Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
-        getActivity().startActivityForResult(intent, 1);
-        
-        // Note: We can't know immediately if the user enabled the service
-        // They need to manually enable it and return to the app
-        // We'll check the status when they return to the app
+            Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
+            getActivity().startActivityForResult(intent, 1);
+            
+            // Note: We can't know immediately if the user enabled the service
+            // They need to manually enable it and return to the app
+            // We'll check the status when they return to the app
+        } finally {
+            methodTimer.stop(startNanos);
+        }
     }
 
     @PluginMethod
     public void setBlockedApps(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.setBlockedApps");
+        long startNanos = methodTimer.start();
         try {
             JSArray apps = call.getArray("apps");
             blockedApps.clear();
@@ -74,65 +101,227 @@ public class AppBlockerPlugin extends Plugin {
             call.resolve();
         } catch (JSONException e) {
             call.reject("Error parsing blocked apps: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
+    /**
+     * Replace the blocking schedule. The service evaluates it on every foreground switch
+     * from then on, without blocking having to be started or stopped.
+     */
     @PluginMethod
-    public void getInstalledApps(PluginCall call) {
+    public void setBlockingSchedule(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.setBlockingSchedule");
+        long startNanos = methodTimer.start();
         try {
-            final PackageManager pm = getContext().getPackageManager();
-            List<ApplicationInfo> packages = pm.getInstalledApplications(PackageManager.GET_META_DATA);
+            JSONObject scheduleObject = new JSONObject();
+            JSObject data = call.getData();
+            if (data.has("groups")) {
+                scheduleObject.put("groups", data.getJSONObject("groups"));
+            }
+            scheduleObject.put("rules", data.has("rules") ? data.getJSONArray("rules") : new JSONArray());
             
-            JSONArray appsArray = new JSONArray();
-            String ourPackageName = getContext().getPackageName();
+            // Compile once here so a bad schedule is rejected instead of saved
+            BlockingSchedule schedule = BlockingSchedules.parse(scheduleObject, ZoneId.systemDefault());
+            BlockingSchedules.save(getContext(), scheduleObject);
+            
+            Intent intent = new Intent(getContext(), AppBlockerService.class);
+            intent.putExtra("COMMAND", "RELOAD_SCHEDULE");
+            getContext().startService(intent);
             
-            for (ApplicationInfo applicationInfo : packages) {
-                // Skip system apps and our own app
-                if ((applicationInfo.flags & ApplicationInfo.FLAG_SYSTEM) == 0 && 
-                    !applicationInfo.packageName.equals(ourPackageName)) {
-                    
-                    String appName = pm.getApplicationLabel(applicationInfo).toString();
-                    
-                    JSONObject appData = new JSONObject();
-                    appData.put("packageName", applicationInfo.packageName);
-                    appData.put("appName", appName);
-                    
-                    appsArray.put(appData);
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("rules", schedule.getRules().size());
+            ret.put("segments", schedule.getSegmentCount());
+            call.resolve(ret);
+        } catch (JSONException e) {
+            call.reject("Error parsing blocking schedule: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void getBlockingSchedule(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.getBlockingSchedule");
+        long startNanos = methodTimer.start();
+        try {
+            String json = BlockingSchedules.getSavedJson(getContext());
+            JSObject ret = json != null ? new JSObject(json) : new JSObject();
+            if (!ret.has("rules")) {
+                ret.put("rules", new JSArray());
+            }
+            call.resolve(ret);
+        } catch (JSONException e) {
+            call.reject("Error reading blocking schedule: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Track foreground time per app even while nothing is being blocked. Usage is always
+     * recorded during blocking and schedules; this keeps the service listening otherwise.
+     */
+    @PluginMethod
+    public void setUsageTracking(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.setUsageTracking");
+        long startNanos = methodTimer.start();
+        try {
+            Boolean enabled = call.getBoolean("enabled");
+            if (enabled == null) {
+                call.reject("enabled is required");
+                return;
+            }
+            UsageHistograms.setTrackingEnabled(getContext(), enabled);
+
+            Intent intent = new Intent(getContext(), AppBlockerService.class);
+            intent.putExtra("COMMAND", "RELOAD_USAGE_TRACKING");
+            getContext().startService(intent);
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("enabled", enabled);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Foreground time per app for each of the last {@code days} local days, oldest first,
+     * with totals over the whole range, most used first.
+     */
+    @PluginMethod
+    public void getUsageStats(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.getUsageStats");
+        long startNanos = methodTimer.start();
+        try {
+            int days = Math.max(1, Math.min(call.getInt("days", 7), UsageHistogram.DAYS_KEPT));
+            UsageHistogram histogram = UsageHistograms.get(getContext());
+            long today = histogram.epochDayOf(System.currentTimeMillis());
+
+            JSArray daysArray = new JSArray();
+            Map<String, Long> totals = new HashMap<>();
+            for (long day = today - days + 1; day <= today; day++) {
+                JSArray apps = new JSArray();
+                long dayTotal = 0;
+                for (Map.Entry<String, Long> entry : histogram.day(day).entrySet()) {
+                    apps.put(usageEntry(entry));
+                    dayTotal += entry.getValue();
+                    Long total = totals.get(entry.getKey());
+                    totals.put(entry.getKey(), (total != null ? total : 0) + entry.getValue());
                 }
+                JSObject dayObject = new JSObject();
+                dayObject.put("date", LocalDate.ofEpochDay(day).toString());
+                dayObject.put("totalMs", dayTotal);
+                dayObject.put("apps", apps);
+                daysArray.put(dayObject);
             }
-            
+
+            List<Map.Entry<String, Long>> sortedTotals = new ArrayList<>(totals.entrySet());
+            Collections.sort(sortedTotals, new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                    return Long.compare(b.getValue(), a.getValue());
+                }
+            });
+            JSArray totalsArray = new JSArray();
+            for (Map.Entry<String, Long> entry : sortedTotals) {
+                totalsArray.put(usageEntry(entry));
+            }
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("days", daysArray);
+            ret.put("totals", totalsArray);
+            ret.put("tracking", UsageHistograms.isTrackingEnabled(getContext()));
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    private static JSObject usageEntry(Map.Entry<String, Long> entry) {
+        JSObject app = new JSObject();
+        app.put("packageName", entry.getKey());
+        app.put("foregroundMs", (long) entry.getValue());
+        return app;
+    }
+
+    /**
+     * The user-installed apps sorted by label, from the cached catalog.
+     * Optional {@code query} filters by the start of the label or package name, and
+     * {@code offset} and {@code limit} page through the matches.
+     */
+    @PluginMethod
+    public void getInstalledApps(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.getInstalledApps");
+        long startNanos = methodTimer.start();
+        try {
+            String query = call.getString("query", "");
+            int offset = Math.max(0, call.getInt("offset", 0));
+            int limit = Math.max(0, call.getInt("limit", Integer.MAX_VALUE));
+            InstalledAppCatalog.Page page = InstalledAppCatalogs.get(getContext())
+                    .query(query != null ? query : "", offset, limit);
+
+            // Built as the JSArray itself, with no JSON text in between
+            JSArray appsArray = new JSArray();
+            for (InstalledAppCatalog.App app : page.getApps()) {
+                JSObject appData = new JSObject();
+                appData.put("packageName", app.getPackageName());
+                appData.put("appName", app.getAppName());
+                appsArray.put(appData);
+            }
+
             JSObject result = new JSObject();
-            result.put("apps", JSArray.from(appsArray.toString()));
+            result.put("apps", appsArray);
+            result.put("total", page.getTotal());
             call.resolve(result);
             
         } catch (Exception e) {
             Log.e(TAG, "Error getting installed apps", e);
             call.reject("Error getting installed apps: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
     @PluginMethod
     public void startBlockingService(PluginCall call) {
-        if (!isAccessibilityServiceEnabled(getContext(), APP_BLOCKER_SERVICE)) {
-            call.reject("Accessibility service is not enabled");
-            return;
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.startBlockingService");
+        long startNanos = methodTimer.start();
+        try {
+            if (!isAccessibilityServiceEnabled(getContext(), APP_BLOCKER_SERVICE)) {
+                call.reject("Accessibility service is not enabled");
+                return;
+            }
+            
+            // Start the blocking service
+            Intent intent = new Intent(getContext(), AppBlockerService.class);
+            intent.putExtra("COMMAND", "START_BLOCKING");
+            intent.putExtra("BLOCKED_APPS", new ArrayList<>(blockedApps));
+            getContext().startService(intent);
+            call.resolve();
+        } finally {
+            methodTimer.stop(startNanos);
         }
-        
-        // Start the blocking service
-        Intent intent = new Intent(getContext(), AppBlockerService.class);
-        intent.putExtra("COMMAND", "START_BLOCKING");
-        intent.putExtra("BLOCKED_APPS", new ArrayList<>(blockedApps));
-        getContext().startService(intent);
-        call.resolve();
     }
 
     @PluginMethod
     public void stopBlockingService(PluginCall call) {
-        // Stop the blocking service
-        Intent intent = new Intent(getContext(), AppBlockerService.class);
-        intent.putExtra("COMMAND", "STOP_BLOCKING");
-        getContext().startService(intent);
-        call.resolve();
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("AppBlockerPlugin.stopBlockingService");
+        long startNanos = methodTimer.start();
+        try {
+            // Stop the blocking service
+            Intent intent = new Intent(getContext(), AppBlockerService.class);
+            intent.putExtra("COMMAND", "STOP_BLOCKING");
+            getContext().startService(intent);
+            call.resolve();
+        } finally {
+            methodTimer.stop(startNanos);
+        }
     }
     
     @Override
@@ -155,6 +344,19 @@ public class AppBlockerPlugin extends Plugin {
         }
     }
     
+    @Override
+    protected void handleOnDestroy() {
+        if (packageChangeReceiver != null) {
+            try {
+                getContext().unregisterReceiver(packageChangeReceiver);
+                packageChangeReceiver = null;
+            } catch (Exception e) {
+                Log.e(TAG, "Error unregistering receiver", e);
+            }
+        }
+        super.handleOnDestroy();
+    }
+
     private boolean isAccessibilityServiceEnabled(Context context, String accessibilityServiceName) {
         AccessibilityManager am = (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
         List<AccessibilityServiceInfo> enabledServices = am.getEnabledAccessibilityServiceList(
@@ -2,13 +2,19 @@
 package com.focustask.app;
 
 import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.AccessibilityServiceInfo;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
@@ -17,11 +23,14 @@ import android.widget.Toast;
 import androidx.core.app.NotificationCompat;
 
 import com.stanley.focusflow.MainActivity;
+import com.stanley.focusflow.NativeMetrics;
 import com.stanley.focusflow.R;
+import com.stanley.focusflow.StripedCounter;
+import com.stanley.focusflow.TimerSnapshot;
 
+import java.io.IOException;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
 
 import androidx.core.app.NotificationCompat;
 
@@ -29,15 +38,59 @@ public class AppBlockerService extends AccessibilityService {
     private static final String TAG = "AppBlockerService";
     private static final String CHANNEL_ID = "app_blocker_channel";
     private static final int NOTIFICATION_ID = 101;
+    private static final long USAGE_FLUSH_INTERVAL_MS = 5 * 60 * 1000;
+    private static final NativeMetrics.Timer EVENT_TIMER = NativeMetrics.timer("AppBlockerService.onAccessibilityEvent");
+    private static final StripedCounter EVENTS_RECEIVED = NativeMetrics.counter("AppBlockerService.eventsReceived");
+    private static final StripedCounter EVENTS_ACTED_ON = NativeMetrics.counter("AppBlockerService.eventsActedOn");
+    private static final StripedCounter BLOCKED_LAUNCHES = NativeMetrics.counter("AppBlockerService.blockedLaunches");
     
-    private Set<String> blockedApps = new HashSet<>();
+    private final BlockedAppMatcher blockedApps = new BlockedAppMatcher();
     private boolean isBlockingActive = false;
-    private String lastForegroundApp = "";
+    // Swapped whole when the schedule changes, read on every foreground switch
+    private volatile BlockingSchedule schedule = BlockingSchedule.EMPTY;
+    private ForegroundUsage usage;
+    private boolean isUsageTracking = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private BroadcastReceiver screenStateReceiver;
+
+    private final Runnable flushUsageTask = new Runnable() {
+        @Override
+        public void run() {
+            flushUsage(System.currentTimeMillis());
+            mainHandler.postDelayed(this, USAGE_FLUSH_INTERVAL_MS);
+        }
+    };
 
     @Override
     public void onCreate() {
         super.onCreate();
         createNotificationChannel();
+        usage = new ForegroundUsage(UsageHistograms.get(this));
+        isUsageTracking = UsageHistograms.isTrackingEnabled(this);
+        schedule = BlockingSchedules.load(this, ZoneId.systemDefault());
+
+        // Time behind the lock screen is nobody's screen time
+        screenStateReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                long now = System.currentTimeMillis();
+                if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+                    usage.pause(now);
+                    flushUsage(now);
+                } else {
+                    usage.resume(now);
+                }
+            }
+        };
+        IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+        screenFilter.addAction(Intent.ACTION_USER_PRESENT);
+        registerReceiver(screenStateReceiver, screenFilter);
+    }
+
+    @Override
+    protected void onServiceConnected() {
+        super.onServiceConnected();
+        updateEventFilter();
     }
 
     @Override
@@ -49,22 +102,30 @@ public class AppBlockerService extends AccessibilityService {
                 if (command.equals("START_BLOCKING")) {
                     ArrayList<String> apps = intent.getStringArrayListExtra("BLOCKED_APPS");
                     if (apps != null) {
-                        blockedApps.clear();
-                        blockedApps.addAll(apps);
+                        blockedApps.setBlockedApps(apps);
                     }
                     isBlockingActive = true;
+                    updateEventFilter();
                     startForeground();
                 } else if (command.equals("STOP_BLOCKING")) {
                     isBlockingActive = false;
+                    updateEventFilter();
                     stopForeground(true);
+                } else if (command.equals("RELOAD_SCHEDULE")) {
+                    schedule = BlockingSchedules.load(this, ZoneId.systemDefault());
+                    updateEventFilter();
+                    Log.d(TAG, "Loaded blocking schedule: " + schedule.getRules().size() + " rules in "
+                            + schedule.getSegmentCount() + " segments");
+                } else if (command.equals("RELOAD_USAGE_TRACKING")) {
+                    isUsageTracking = UsageHistograms.isTrackingEnabled(this);
+                    updateEventFilter();
                 }
             }
             
             ArrayList<String> apps = intent.getStringArrayListExtra("BLOCKED_APPS");
             if (apps != null) {
-                blockedApps.clear();
-                blockedApps.addAll(apps);
-                Log.d(TAG, "Updated blocked apps: " + blockedApps);
+                blockedApps.setBlockedApps(apps);
+                Log.d(TAG, "Updated blocked apps: " + blockedApps.getBlockedApps());
             }
         }
         
@@ -73,27 +134,41 @@ public class AppBlockerService extends AccessibilityService {
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
-        if (!isBlockingActive || event == null || event.getPackageName() == null) {
+        long startNanos = EVENT_TIMER.start();
+        try {
+            handleAccessibilityEvent(event);
+        } finally {
+            EVENT_TIMER.stop(startNanos);
+        }
+    }
+
+    private void handleAccessibilityEvent(AccessibilityEvent event) {
+        EVENTS_RECEIVED.increment();
+        // Events already queued when the filter changed can still arrive
+        if (!isListening() || event == null
+                || event.getEventType() != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
             return;
         }
 
-        String packageName = event.getPackageName().toString();
-        
-        // Only proceed if this is a new app (avoids repeated blocks)
-        if (packageName.equals(lastForegroundApp)) {
+        CharSequence packageName = event.getPackageName();
+        if (packageName == null || !blockedApps.isNewForegroundApp(packageName)) {
             return;
         }
+        EVENTS_ACTED_ON.increment();
+        String foregroundApp = blockedApps.getLastForegroundApp();
+        long now = System.currentTimeMillis();
+        usage.onForeground(foregroundApp, now);
         
-        lastForegroundApp = packageName;
-        
-        // Check if the current app is in our blocked list
-        if (blockedApps.contains(packageName)) {
-            Log.d(TAG, "Blocked app detected: " + packageName);
+        // Check the app that just came to the foreground against our blocked list and the schedule
+        if ((isBlockingActive && blockedApps.isBlocked(packageName))
+                || schedule.shouldBlock(packageName, now, isFocusActive(), usage)) {
+            Log.d(TAG, "Blocked app detected: " + foregroundApp);
+            BLOCKED_LAUNCHES.increment();
             
             // Launch our blocker activity instead
             Intent intent = new Intent(this, BlockerActivity.class);
             intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            intent.putExtra("BLOCKED_APP", packageName);
+            intent.putExtra("BLOCKED_APP", foregroundApp);
             startActivity(intent);
             
             // Try to go back to home screen as a fallback
@@ -104,11 +179,73 @@ public class AppBlockerService extends AccessibilityService {
         }
     }
 
+    /**
+     * @return true while blocking was started by hand, a schedule has rules to evaluate or
+     *         usage tracking was turned on
+     */
+    private boolean isListening() {
+        return isBlockingActive || !schedule.isEmpty() || isUsageTracking;
+    }
+
+    private void flushUsage(long now) {
+        try {
+            usage.flush(now);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving app usage", e);
+        }
+    }
+
+    private static boolean isFocusActive() {
+        TimerSnapshot timer = TimerSnapshot.current();
+        return timer.isRunning() && !timer.isPaused();
+    }
+
+    /**
+     * Subscribe to foreground window changes only while blocking or scheduled, and to no
+     * events at all otherwise, so the system stops dispatching scrolls and content changes to us.
+     */
+    private void updateEventFilter() {
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) {
+            // Not connected yet; onServiceConnected applies the filter
+            return;
+        }
+        int eventTypes = isListening() ? AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED : 0;
+        if (info.eventTypes != eventTypes) {
+            info.eventTypes = eventTypes;
+            setServiceInfo(info);
+            Log.d(TAG, "Accessibility events " + (isListening() ? "enabled" : "disabled"));
+            if (!isListening()) {
+                // Without events the foreground app is unknown from here on
+                long now = System.currentTimeMillis();
+                usage.onForeground(null, now);
+                blockedApps.resetForegroundApp();
+                flushUsage(now);
+            }
+        }
+
+        mainHandler.removeCallbacks(flushUsageTask);
+        if (isListening()) {
+            mainHandler.postDelayed(flushUsageTask, USAGE_FLUSH_INTERVAL_MS);
+        }
+    }
+
     @Override
     public void onInterrupt() {
         Log.d(TAG, "AppBlockerService interrupted");
     }
 
+    @Override
+    public void onDestroy() {
+        mainHandler.removeCallbacksAndMessages(null);
+        if (screenStateReceiver != null) {
+            unregisterReceiver(screenStateReceiver);
+            screenStateReceiver = null;
+        }
+        flushUsage(System.currentTimeMillis());
+        super.onDestroy();
+    }
+
     private void startForeground() {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE);
@@ -0,0 +1,66 @@
+package com.focustask.app;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Decides whether a foreground package should be blocked. Kept free of Android
+ * classes so the lookup can be benchmarked on a plain JVM.
+ *
+ * The blocklist is an immutable {@link BlockedPackageIndex} swapped in whole, so it can
+ * be replaced from any thread while events are being checked. The foreground app is
+ * tracked by the single thread that delivers events.
+ */
+public class BlockedAppMatcher {
+    private volatile BlockedPackageIndex blockedApps = BlockedPackageIndex.EMPTY;
+    private String lastForegroundApp = "";
+
+    public void setBlockedApps(Collection<String> apps) {
+        blockedApps = BlockedPackageIndex.of(apps);
+    }
+
+    public Set<String> getBlockedApps() {
+        return blockedApps.getPackages();
+    }
+
+    /**
+     * @return true if the package just came to the foreground and is blocked; repeated
+     *         events for the app already in the foreground are ignored to avoid repeated blocks
+     */
+    public boolean shouldBlock(CharSequence packageName) {
+        return isNewForegroundApp(packageName) && isBlocked(packageName);
+    }
+
+    /**
+     * Track the foreground app.
+     * @return false for a repeated event for the app already in the foreground
+     */
+    public boolean isNewForegroundApp(CharSequence packageName) {
+        // Compared in place, so repeated events for the same app allocate nothing
+        if (lastForegroundApp.contentEquals(packageName)) {
+            return false;
+        }
+
+        // Event package names are Strings already, so this rarely copies
+        lastForegroundApp = packageName.toString();
+        return true;
+    }
+
+    public boolean isBlocked(CharSequence packageName) {
+        return blockedApps.contains(packageName);
+    }
+
+    /**
+     * @return the package most recently seen in the foreground, "" before the first
+     */
+    public String getLastForegroundApp() {
+        return lastForegroundApp;
+    }
+
+    /**
+     * Forget the foreground app, once events stop arriving and it can no longer be known.
+     */
+    public void resetForegroundApp() {
+        lastForegroundApp = "";
+    }
+}
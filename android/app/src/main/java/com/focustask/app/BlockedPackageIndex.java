@@ -0,0 +1,100 @@
+package com.focustask.app;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable open-addressing set of blocked package names, built once per blocklist change
+ * and then shared freely between threads.
+ *
+ * Each slot keeps the name's String hash next to it, and lookups hash the query
+ * CharSequence the same way String does, so an accessibility event's package name is
+ * checked without copying it to a String. Probes compare hashes first and only touch
+ * the characters of a likely match.
+ */
+public final class BlockedPackageIndex {
+    public static final BlockedPackageIndex EMPTY = new BlockedPackageIndex(Collections.<String>emptySet());
+
+    private final Set<String> packages;
+    private final String[] keys;
+    private final int[] hashes;
+    private final int mask;
+    private final int shift;
+
+    private BlockedPackageIndex(Set<String> packages) {
+        this.packages = Collections.unmodifiableSet(packages);
+        // At most half full, so misses end after a probe or two
+        int bits = 1;
+        while ((1 << bits) < packages.size() * 2) {
+            bits++;
+        }
+        this.keys = new String[1 << bits];
+        this.hashes = new int[1 << bits];
+        this.mask = (1 << bits) - 1;
+        this.shift = 32 - bits;
+
+        for (String packageName : packages) {
+            int hash = packageName.hashCode();
+            int slot = slotOf(hash);
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = packageName;
+            hashes[slot] = hash;
+        }
+    }
+
+    public static BlockedPackageIndex of(Collection<String> packages) {
+        if (packages.isEmpty()) {
+            return EMPTY;
+        }
+        return new BlockedPackageIndex(new LinkedHashSet<>(packages));
+    }
+
+    public boolean contains(CharSequence packageName) {
+        int hash = hashOf(packageName);
+        int slot = slotOf(hash);
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && key.contentEquals(packageName)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return packages.size();
+    }
+
+    /**
+     * @return the blocked packages, unmodifiable
+     */
+    public Set<String> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @return the same value as {@code packageName.toString().hashCode()}
+     */
+    static int hashOf(CharSequence packageName) {
+        if (packageName instanceof String) {
+            // Cached by String after the first call
+            return packageName.hashCode();
+        }
+        int hash = 0;
+        for (int i = 0, length = packageName.length(); i < length; i++) {
+            hash = 31 * hash + packageName.charAt(i);
+        }
+        return hash;
+    }
+
+    private int slotOf(int hash) {
+        // Names that differ only in their last characters have nearly consecutive hashes,
+        // which would cluster in a linear-probed table; Fibonacci hashing scatters them
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+}
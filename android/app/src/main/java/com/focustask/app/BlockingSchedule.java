@@ -0,0 +1,335 @@
+package com.focustask.app;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Blocking rules compiled into a table over the minutes of the week, so AppBlockerService
+ * can decide a foreground switch on its own without the web layer flipping blocking on
+ * and off.
+ *
+ * Every rule window is cut into minute-of-week intervals, and the week is split at their
+ * edges into segments that each hold indexes of the packages blocked outright, blocked
+ * only during a focus session and blocked once over a daily quota. Finding the segment
+ * for a time is a binary search over its start minutes; segments with the same rules
+ * share their indexes. Kept free of Android classes so it runs in JVM unit tests.
+ */
+public final class BlockingSchedule {
+    public static final BlockingSchedule EMPTY =
+            compile(Collections.<Rule>emptyList(), ZoneOffset.UTC);
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final long NO_QUOTA = -1;
+
+    /**
+     * Answers how long a package has been in the foreground today, for quota rules.
+     */
+    public interface UsageSource {
+        long usedTodayMs(String packageName, long nowMillis);
+    }
+
+    /**
+     * Packages blocked on some weekdays between two local times. A window whose end is at
+     * or before its start runs past midnight into the next day.
+     */
+    public static final class Rule {
+        private final Set<String> packages;
+        private final int daysMask;
+        private final int startMinute;
+        private final int endMinute;
+        private final long dailyQuotaMs;
+        private final boolean duringFocusOnly;
+
+        private Rule(Builder builder) {
+            this.packages = Collections.unmodifiableSet(new LinkedHashSet<>(builder.packages));
+            this.daysMask = builder.daysMask != 0 ? builder.daysMask : (1 << 7) - 1;
+            this.startMinute = builder.startMinute;
+            this.endMinute = builder.endMinute;
+            this.dailyQuotaMs = builder.dailyQuotaMs;
+            this.duringFocusOnly = builder.duringFocusOnly;
+        }
+
+        public Set<String> getPackages() {
+            return packages;
+        }
+
+        /**
+         * @return the weekdays as a bit mask, bit 0 = Monday
+         */
+        public int getDaysMask() {
+            return daysMask;
+        }
+
+        public int getStartMinute() {
+            return startMinute;
+        }
+
+        public int getEndMinute() {
+            return endMinute;
+        }
+
+        /**
+         * @return the foreground time allowed per day before blocking, or -1 for none
+         */
+        public long getDailyQuotaMs() {
+            return dailyQuotaMs;
+        }
+
+        public boolean isDuringFocusOnly() {
+            return duringFocusOnly;
+        }
+    }
+
+    public static Builder rule() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private final List<String> packages = new ArrayList<>();
+        private int daysMask;
+        private int startMinute = 0;
+        private int endMinute = MINUTES_PER_DAY;
+        private long dailyQuotaMs = NO_QUOTA;
+        private boolean duringFocusOnly;
+
+        private Builder() {
+        }
+
+        public Builder packages(Collection<String> packageNames) {
+            packages.addAll(packageNames);
+            return this;
+        }
+
+        /**
+         * Limit the rule to this weekday; a rule with no days applies every day.
+         */
+        public Builder onDay(DayOfWeek day) {
+            daysMask |= 1 << (day.getValue() - 1);
+            return this;
+        }
+
+        public Builder between(int startHour, int startMinute, int endHour, int endMinute) {
+            int start = startHour * 60 + startMinute;
+            int end = endHour * 60 + endMinute;
+            if (start < 0 || start >= MINUTES_PER_DAY || end < 0 || end > MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Invalid window: " + start + "-" + end);
+            }
+            this.startMinute = start;
+            this.endMinute = end;
+            return this;
+        }
+
+        /**
+         * Block only once the package has been in the foreground this long today.
+         */
+        public Builder dailyQuotaMinutes(int minutes) {
+            if (minutes < 0) {
+                throw new IllegalArgumentException("Quota must not be negative: " + minutes);
+            }
+            this.dailyQuotaMs = minutes * 60L * 1000;
+            return this;
+        }
+
+        /**
+         * Block only while a focus session is counting down.
+         */
+        public Builder duringFocusOnly() {
+            this.duringFocusOnly = true;
+            return this;
+        }
+
+        public Rule build() {
+            return new Rule(this);
+        }
+    }
+
+    private static final class Segment {
+        final BlockedPackageIndex blocked;
+        final BlockedPackageIndex focusOnly;
+        final BlockedPackageIndex quota;
+        final Map<String, Long> quotaMs;
+
+        Segment(BlockedPackageIndex blocked, BlockedPackageIndex focusOnly,
+                BlockedPackageIndex quota, Map<String, Long> quotaMs) {
+            this.blocked = blocked;
+            this.focusOnly = focusOnly;
+            this.quota = quota;
+            this.quotaMs = quotaMs;
+        }
+    }
+
+    private final ZoneId zone;
+    private final ZoneOffset fixedOffset;
+    private final List<Rule> rules;
+    private final int[] segmentStarts;
+    private final Segment[] segments;
+
+    private BlockingSchedule(ZoneId zone, List<Rule> rules, int[] segmentStarts, Segment[] segments) {
+        this.zone = zone;
+        this.fixedOffset = zone.getRules().isFixedOffset()
+                ? zone.getRules().getOffset(Instant.EPOCH)
+                : null;
+        this.rules = rules;
+        this.segmentStarts = segmentStarts;
+        this.segments = segments;
+    }
+
+    public static BlockingSchedule compile(List<Rule> rules, ZoneId zone) {
+        // Every rule window as [start, end) intervals within one week
+        List<int[]> intervals = new ArrayList<>();
+        for (int r = 0; r < rules.size(); r++) {
+            Rule rule = rules.get(r);
+            for (int day = 0; day < 7; day++) {
+                if ((rule.daysMask & (1 << day)) == 0) {
+                    continue;
+                }
+                int start = day * MINUTES_PER_DAY + rule.startMinute;
+                int end = day * MINUTES_PER_DAY + rule.endMinute;
+                if (rule.endMinute <= rule.startMinute) {
+                    end += MINUTES_PER_DAY;
+                }
+                if (end <= MINUTES_PER_WEEK) {
+                    intervals.add(new int[]{start, end, r});
+                } else {
+                    // Sunday night into Monday morning wraps to the start of the week
+                    intervals.add(new int[]{start, MINUTES_PER_WEEK, r});
+                    intervals.add(new int[]{0, end - MINUTES_PER_WEEK, r});
+                }
+            }
+        }
+
+        TreeSet<Integer> edges = new TreeSet<>();
+        edges.add(0);
+        for (int[] interval : intervals) {
+            edges.add(interval[0]);
+            if (interval[1] < MINUTES_PER_WEEK) {
+                edges.add(interval[1]);
+            }
+        }
+
+        // Adjacent minutes with the same active rules become one segment, and segments
+        // with the same rules anywhere in the week share one set of indexes
+        List<Integer> starts = new ArrayList<>();
+        List<Segment> segments = new ArrayList<>();
+        Map<BitSet, Segment> byRules = new HashMap<>();
+        BitSet previous = null;
+        for (int edge : edges) {
+            BitSet active = new BitSet(rules.size());
+            for (int[] interval : intervals) {
+                if (interval[0] <= edge && edge < interval[1]) {
+                    active.set(interval[2]);
+                }
+            }
+            if (active.equals(previous)) {
+                continue;
+            }
+            Segment segment = byRules.get(active);
+            if (segment == null) {
+                segment = buildSegment(rules, active);
+                byRules.put(active, segment);
+            }
+            starts.add(edge);
+            segments.add(segment);
+            previous = active;
+        }
+
+        int[] segmentStarts = new int[starts.size()];
+        for (int i = 0; i < segmentStarts.length; i++) {
+            segmentStarts[i] = starts.get(i);
+        }
+        return new BlockingSchedule(zone, Collections.unmodifiableList(new ArrayList<>(rules)),
+                segmentStarts, segments.toArray(new Segment[0]));
+    }
+
+    private static Segment buildSegment(List<Rule> rules, BitSet active) {
+        List<String> blocked = new ArrayList<>();
+        List<String> focusOnly = new ArrayList<>();
+        Map<String, Long> quotaMs = new HashMap<>();
+        for (int r = active.nextSetBit(0); r >= 0; r = active.nextSetBit(r + 1)) {
+            Rule rule = rules.get(r);
+            if (rule.dailyQuotaMs != NO_QUOTA) {
+                for (String packageName : rule.packages) {
+                    Long existing = quotaMs.get(packageName);
+                    // The tightest quota wins
+                    if (existing == null || rule.dailyQuotaMs < existing) {
+                        quotaMs.put(packageName, rule.dailyQuotaMs);
+                    }
+                }
+            } else if (rule.duringFocusOnly) {
+                focusOnly.addAll(rule.packages);
+            } else {
+                blocked.addAll(rule.packages);
+            }
+        }
+        return new Segment(BlockedPackageIndex.of(blocked), BlockedPackageIndex.of(focusOnly),
+                BlockedPackageIndex.of(quotaMs.keySet()), quotaMs);
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return the number of segments the week is split into
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * @param focusActive whether a focus session is counting down
+     * @param usage today's foreground time, consulted only for packages under a quota
+     */
+    public boolean shouldBlock(CharSequence packageName, long nowMillis, boolean focusActive,
+                               UsageSource usage) {
+        Segment segment = segmentAt(minuteOfWeek(nowMillis));
+        if (segment.blocked.contains(packageName)) {
+            return true;
+        }
+        if (focusActive && segment.focusOnly.contains(packageName)) {
+            return true;
+        }
+        if (segment.quota.contains(packageName)) {
+            String name = packageName.toString();
+            return usage.usedTodayMs(name, nowMillis) >= segment.quotaMs.get(name);
+        }
+        return false;
+    }
+
+    /**
+     * @return minutes since Monday 00:00 local time
+     */
+    int minuteOfWeek(long nowMillis) {
+        int offsetSeconds = fixedOffset != null
+                ? fixedOffset.getTotalSeconds()
+                : zone.getRules().getOffset(Instant.ofEpochMilli(nowMillis)).getTotalSeconds();
+        long localMinutes = Math.floorDiv(Math.floorDiv(nowMillis, 1000) + offsetSeconds, 60);
+        long epochDay = Math.floorDiv(localMinutes, MINUTES_PER_DAY);
+        // Epoch day 0 was a Thursday
+        int dayOfWeek = Math.floorMod(epochDay + 3, 7);
+        return dayOfWeek * MINUTES_PER_DAY + Math.floorMod(localMinutes, MINUTES_PER_DAY);
+    }
+
+    private Segment segmentAt(int minuteOfWeek) {
+        int index = Arrays.binarySearch(segmentStarts, minuteOfWeek);
+        return segments[index >= 0 ? index : -index - 2];
+    }
+}
@@ -0,0 +1,138 @@
+package com.focustask.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Translates the schedule JSON set through AppBlockerPlugin into a {@link BlockingSchedule}
+ * and keeps it in the AppBlocker preferences, so AppBlockerService can load it on its own.
+ *
+ * The JSON has an optional "groups" object mapping group names to package arrays, and a
+ * "rules" array. Each rule names "packages" and/or "groups", optional "days" (1 = Sunday,
+ * 7 = Saturday), optional "start" and "end" objects with hour and minute, and either a
+ * "dailyQuotaMinutes" or "duringFocusOnly": true. A rule with neither blocks outright.
+ */
+public final class BlockingSchedules {
+    private static final String TAG = "BlockingSchedules";
+    private static final String PREFS_NAME = "AppBlocker";
+    private static final String SCHEDULE_KEY = "blockingSchedule";
+
+    private BlockingSchedules() {
+    }
+
+    public static BlockingSchedule parse(JSONObject scheduleObject, ZoneId zone) throws JSONException {
+        JSONObject groups = scheduleObject.optJSONObject("groups");
+        JSONArray rulesArray = scheduleObject.optJSONArray("rules");
+        List<BlockingSchedule.Rule> rules = new ArrayList<>();
+        if (rulesArray == null) {
+            return BlockingSchedule.compile(rules, zone);
+        }
+
+        for (int i = 0; i < rulesArray.length(); i++) {
+            JSONObject ruleObject = rulesArray.getJSONObject(i);
+            Set<String> packages = new LinkedHashSet<>();
+            addAll(packages, ruleObject.optJSONArray("packages"));
+            JSONArray groupNames = ruleObject.optJSONArray("groups");
+            if (groupNames != null) {
+                for (int g = 0; g < groupNames.length(); g++) {
+                    String groupName = groupNames.getString(g);
+                    JSONArray group = groups != null ? groups.optJSONArray(groupName) : null;
+                    if (group == null) {
+                        throw new JSONException("Unknown group: " + groupName);
+                    }
+                    addAll(packages, group);
+                }
+            }
+
+            BlockingSchedule.Builder builder = BlockingSchedule.rule().packages(packages);
+            JSONArray days = ruleObject.optJSONArray("days");
+            if (days != null) {
+                for (int d = 0; d < days.length(); d++) {
+                    builder.onDay(toDayOfWeek(days.getInt(d)));
+                }
+            }
+
+            JSONObject start = ruleObject.optJSONObject("start");
+            JSONObject end = ruleObject.optJSONObject("end");
+            try {
+                builder.between(
+                        start != null ? start.optInt("hour", 0) : 0,
+                        start != null ? start.optInt("minute", 0) : 0,
+                        end != null ? end.optInt("hour", 24) : 24,
+                        end != null ? end.optInt("minute", 0) : 0);
+                if (ruleObject.has("dailyQuotaMinutes")) {
+                    builder.dailyQuotaMinutes(ruleObject.getInt("dailyQuotaMinutes"));
+                } else if (ruleObject.optBoolean("duringFocusOnly", false)) {
+                    builder.duringFocusOnly();
+                }
+            } catch (IllegalArgumentException e) {
+                throw new JSONException("Invalid rule " + i + ": " + e.getMessage());
+            }
+            rules.add(builder.build());
+        }
+        return BlockingSchedule.compile(rules, zone);
+    }
+
+    /**
+     * @return the saved schedule, or {@link BlockingSchedule#EMPTY} if none is saved or it
+     *         can no longer be read
+     */
+    public static BlockingSchedule load(Context context, ZoneId zone) {
+        String json = prefs(context).getString(SCHEDULE_KEY, null);
+        if (json == null) {
+            return BlockingSchedule.EMPTY;
+        }
+        try {
+            return parse(new JSONObject(json), zone);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error reading blocking schedule", e);
+            return BlockingSchedule.EMPTY;
+        }
+    }
+
+    public static void save(Context context, JSONObject scheduleObject) {
+        prefs(context).edit().putString(SCHEDULE_KEY, scheduleObject.toString()).apply();
+    }
+
+    /**
+     * @return the saved schedule JSON, or null if none is saved
+     */
+    public static String getSavedJson(Context context) {
+        return prefs(context).getString(SCHEDULE_KEY, null);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static void addAll(Set<String> packages, JSONArray array) throws JSONException {
+        if (array == null) {
+            return;
+        }
+        for (int i = 0; i < array.length(); i++) {
+            packages.add(array.getString(i));
+        }
+    }
+
+    /**
+     * Convert the plugin's Calendar-style day (1 = Sunday) to a DayOfWeek.
+     */
+    private static DayOfWeek toDayOfWeek(int calendarDay) throws JSONException {
+        if (calendarDay < 1 || calendarDay > 7) {
+            throw new JSONException("Invalid day of week: " + calendarDay);
+        }
+        return DayOfWeek.SUNDAY.plus(calendarDay - 1);
+    }
+}
@@ -0,0 +1,87 @@
+package com.focustask.app;
+
+import java.io.IOException;
+
+/**
+ * Credits foreground time to packages in a {@link UsageHistogram} from the foreground
+ * switches AppBlockerService sees, and answers daily quota rules from it.
+ *
+ * The app in the foreground is credited whenever the next switch arrives or the time is
+ * asked for, split at local midnight when a stay spans days. A switch costs a map lookup
+ * and an add; only the first use of an app in a day allocates.
+ *
+ * Used from the thread that delivers accessibility events only.
+ */
+public final class ForegroundUsage implements BlockingSchedule.UsageSource {
+    private final UsageHistogram histogram;
+    private String foregroundApp;
+    private long foregroundSince;
+    private boolean paused;
+    // The local day being credited and its bounds, refreshed when a credit leaves them
+    private long day = Long.MIN_VALUE;
+    private long dayStart;
+    private long dayEnd;
+
+    public ForegroundUsage(UsageHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Record that {@code packageName} came to the foreground, crediting the previous app.
+     * @param packageName null when nothing is known to be in the foreground
+     */
+    public void onForeground(String packageName, long nowMillis) {
+        credit(nowMillis);
+        foregroundApp = packageName;
+    }
+
+    /**
+     * Stop crediting the foreground app, while the screen is off.
+     */
+    public void pause(long nowMillis) {
+        credit(nowMillis);
+        paused = true;
+    }
+
+    public void resume(long nowMillis) {
+        if (!paused) {
+            // Not paused after all, so the stay so far still counts
+            credit(nowMillis);
+            return;
+        }
+        foregroundSince = nowMillis;
+        paused = false;
+    }
+
+    @Override
+    public long usedTodayMs(String packageName, long nowMillis) {
+        credit(nowMillis);
+        return histogram.get(histogram.epochDayOf(nowMillis), packageName);
+    }
+
+    /**
+     * Credit the current stay so far and write the histogram if it changed.
+     */
+    public boolean flush(long nowMillis) throws IOException {
+        credit(nowMillis);
+        return histogram.flush();
+    }
+
+    private void credit(long nowMillis) {
+        long from = foregroundSince;
+        foregroundSince = nowMillis;
+        if (foregroundApp == null || paused) {
+            return;
+        }
+        while (from < nowMillis) {
+            if (from < dayStart || from >= dayEnd) {
+                day = histogram.epochDayOf(from);
+                dayStart = histogram.startOfDay(day);
+                dayEnd = histogram.startOfDay(day + 1);
+            }
+            long to = Math.min(nowMillis, dayEnd);
+            histogram.add(day, foregroundApp, to - from);
+            from = to;
+        }
+    }
+}
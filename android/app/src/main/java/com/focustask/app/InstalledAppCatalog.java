@@ -0,0 +1,279 @@
+package com.focustask.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The user-installed apps offered for blocking, kept in a small file so the app picker
+ * does not have to ask PackageManager for every label on each open.
+ *
+ * Apps are changed one at a time as packages come and go, and listed sorted by label.
+ * The sorted array is rebuilt on the first query after a change, so a query is a scan
+ * over a few hundred entries. Along with the apps the file keeps the boot and the
+ * PackageManager sequence number it was last brought up to date at, so changes made
+ * while the app was not running can be caught up on. Kept free of Android classes so it
+ * runs in JVM unit tests. Safe to use from several threads.
+ */
+public final class InstalledAppCatalog {
+    private static final int MAGIC = 0x46464143; // "FFAC"
+    private static final int VERSION = 1;
+    public static final int UNKNOWN = -1;
+
+    public static final class App {
+        private final String packageName;
+        private final String appName;
+        // Lower-cased once for sorting and prefix matching
+        private final String packageKey;
+        private final String nameKey;
+
+        App(String packageName, String appName) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.packageKey = packageName.toLowerCase(Locale.ROOT);
+            this.nameKey = appName.toLowerCase(Locale.ROOT);
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public String getAppName() {
+            return appName;
+        }
+
+        boolean matches(String prefix) {
+            return nameKey.startsWith(prefix) || packageKey.startsWith(prefix);
+        }
+    }
+
+    /**
+     * One page of a query, with the number of apps matching it in all.
+     */
+    public static final class Page {
+        private final List<App> apps;
+        private final int total;
+
+        Page(List<App> apps, int total) {
+            this.apps = apps;
+            this.total = total;
+        }
+
+        public List<App> getApps() {
+            return apps;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    private static final Comparator<App> BY_NAME = new Comparator<App>() {
+        @Override
+        public int compare(App a, App b) {
+            int byName = a.nameKey.compareTo(b.nameKey);
+            return byName != 0 ? byName : a.packageName.compareTo(b.packageName);
+        }
+    };
+
+    private final File file;
+    private final Map<String, App> apps = new HashMap<>();
+    // Apps by label, or null until the next query after a change
+    private App[] sorted;
+    private boolean complete;
+    private int bootCount = UNKNOWN;
+    private int sequenceNumber = UNKNOWN;
+    private boolean dirty;
+
+    private InstalledAppCatalog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the saved catalog, starting empty and incomplete if the file is missing or damaged.
+     */
+    public static InstalledAppCatalog open(File file) {
+        InstalledAppCatalog catalog = new InstalledAppCatalog(file);
+        if (!catalog.load()) {
+            catalog.apps.clear();
+            catalog.complete = false;
+            catalog.bootCount = UNKNOWN;
+            catalog.sequenceNumber = UNKNOWN;
+        }
+        return catalog;
+    }
+
+    /**
+     * @return true once the catalog holds a full scan of the installed apps
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public synchronized int getBootCount() {
+        return bootCount;
+    }
+
+    public synchronized int getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Record the boot and PackageManager sequence number the catalog is current with.
+     */
+    public synchronized void setSequence(int bootCount, int sequenceNumber) {
+        if (this.bootCount != bootCount || this.sequenceNumber != sequenceNumber) {
+            this.bootCount = bootCount;
+            this.sequenceNumber = sequenceNumber;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Replace the whole catalog with a fresh scan.
+     * @param appNames labels by package name
+     */
+    public synchronized void replaceAll(Map<String, String> appNames) {
+        apps.clear();
+        for (Map.Entry<String, String> entry : appNames.entrySet()) {
+            apps.put(entry.getKey(), new App(entry.getKey(), entry.getValue()));
+        }
+        complete = true;
+        sorted = null;
+        dirty = true;
+    }
+
+    public synchronized void put(String packageName, String appName) {
+        App existing = apps.get(packageName);
+        if (existing != null && existing.appName.equals(appName)) {
+            return;
+        }
+        apps.put(packageName, new App(packageName, appName));
+        sorted = null;
+        dirty = true;
+    }
+
+    public synchronized boolean remove(String packageName) {
+        if (apps.remove(packageName) == null) {
+            return false;
+        }
+        sorted = null;
+        dirty = true;
+        return true;
+    }
+
+    public synchronized int size() {
+        return apps.size();
+    }
+
+    /**
+     * @param prefix matched case-insensitively against the start of the label or package
+     *               name; empty for every app
+     * @return up to {@code limit} matching apps from {@code offset}, sorted by label
+     */
+    public synchronized Page query(String prefix, int offset, int limit) {
+        if (sorted == null) {
+            sorted = apps.values().toArray(new App[0]);
+            Arrays.sort(sorted, BY_NAME);
+        }
+        if (prefix.isEmpty()) {
+            int from = Math.min(Math.max(offset, 0), sorted.length);
+            int to = (int) Math.min((long) from + Math.max(limit, 0), sorted.length);
+            return new Page(Collections.unmodifiableList(Arrays.asList(sorted).subList(from, to)),
+                    sorted.length);
+        }
+
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<App> page = new ArrayList<>();
+        int total = 0;
+        for (App app : sorted) {
+            if (!app.matches(key)) {
+                continue;
+            }
+            if (total >= offset && page.size() < limit) {
+                page.add(app);
+            }
+            total++;
+        }
+        return new Page(Collections.unmodifiableList(page), total);
+    }
+
+    /**
+     * Write the catalog if it changed since the last flush. A catalog that was never fully
+     * scanned is not written, so a partial one is never mistaken for complete.
+     * @return true if the file was written
+     */
+    public synchronized boolean flush() throws IOException {
+        if (!dirty || !complete) {
+            return false;
+        }
+        save();
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * @return false if there was nothing usable to load
+     */
+    private boolean load() {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            bootCount = in.readInt();
+            sequenceNumber = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String packageName = in.readUTF();
+                apps.put(packageName, new App(packageName, in.readUTF()));
+            }
+            // Take the checksum of the contents before reading the stored one
+            long expected = crc.getValue();
+            complete = in.readLong() == expected;
+            return complete;
+        } catch (IOException e) {
+            // Missing, truncated or unreadable: scan again
+            return false;
+        }
+    }
+
+    private void save() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(new FileOutputStream(tmp), crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(bootCount);
+            out.writeInt(sequenceNumber);
+            out.writeInt(apps.size());
+            for (App app : apps.values()) {
+                out.writeUTF(app.packageName);
+                out.writeUTF(app.appName);
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.focustask.app;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.provider.Settings;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opens the {@link InstalledAppCatalog} shared by AppBlockerPlugin and
+ * PackageChangeReceiver and keeps it in step with PackageManager.
+ *
+ * The first use scans every installed app. After that, on Android 8 and up each use asks
+ * PackageManager only for the packages changed since the catalog's sequence number,
+ * which catches up on installs the receiver never heard about while the app was not
+ * running; sequence numbers restart at boot, so the first use after a reboot scans again.
+ * Older versions rely on the manifest receiver, which still gets package broadcasts there.
+ */
+public final class InstalledAppCatalogs {
+    private static final String TAG = "InstalledAppCatalogs";
+    private static final String CATALOG_FILE = "installed_apps.bin";
+
+    private static InstalledAppCatalog instance;
+
+    private InstalledAppCatalogs() {
+    }
+
+    /**
+     * @return the catalog, brought up to date with the installed apps
+     */
+    public static synchronized InstalledAppCatalog get(Context context) {
+        InstalledAppCatalog catalog = open(context);
+        PackageManager pm = context.getPackageManager();
+        int bootCount = bootCount(context);
+        boolean tracksChanges = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && bootCount != InstalledAppCatalog.UNKNOWN;
+
+        if (!catalog.isComplete() || (tracksChanges && bootCount != catalog.getBootCount())) {
+            // Take the sequence number first, so changes made during the scan are seen again
+            int sequenceNumber = tracksChanges ? currentSequenceNumber(pm) : InstalledAppCatalog.UNKNOWN;
+            long start = System.currentTimeMillis();
+            scan(context, pm, catalog);
+            catalog.setSequence(bootCount, sequenceNumber);
+            Log.d(TAG, "Scanned " + catalog.size() + " apps in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } else if (tracksChanges) {
+            ChangedPackages changed = pm.getChangedPackages(catalog.getSequenceNumber());
+            if (changed != null) {
+                for (String packageName : changed.getPackageNames()) {
+                    apply(context, pm, catalog, packageName);
+                }
+                catalog.setSequence(bootCount, changed.getSequenceNumber());
+            }
+        }
+        flush(catalog);
+        return catalog;
+    }
+
+    /**
+     * Re-read one package after it was installed, updated or removed. Does nothing before
+     * the first full scan, which will pick the package up anyway.
+     */
+    public static synchronized void update(Context context, String packageName) {
+        InstalledAppCatalog catalog = open(context);
+        if (!catalog.isComplete()) {
+            return;
+        }
+        apply(context, context.getPackageManager(), catalog, packageName);
+        flush(catalog);
+    }
+
+    private static InstalledAppCatalog open(Context context) {
+        if (instance == null) {
+            instance = InstalledAppCatalog.open(
+                    new File(context.getApplicationContext().getFilesDir(), CATALOG_FILE));
+        }
+        return instance;
+    }
+
+    private static void scan(Context context, PackageManager pm, InstalledAppCatalog catalog) {
+        // No GET_META_DATA: only the flags and labels are needed
+        List<ApplicationInfo> packages = pm.getInstalledApplications(0);
+        Map<String, String> appNames = new HashMap<>();
+        for (ApplicationInfo applicationInfo : packages) {
+            if (isBlockable(context, applicationInfo)) {
+                appNames.put(applicationInfo.packageName, pm.getApplicationLabel(applicationInfo).toString());
+            }
+        }
+        catalog.replaceAll(appNames);
+    }
+
+    private static void apply(Context context, PackageManager pm, InstalledAppCatalog catalog,
+                              String packageName) {
+        try {
+            ApplicationInfo applicationInfo = pm.getApplicationInfo(packageName, 0);
+            if (isBlockable(context, applicationInfo)) {
+                catalog.put(packageName, pm.getApplicationLabel(applicationInfo).toString());
+            } else {
+                catalog.remove(packageName);
+            }
+        } catch (PackageManager.NameNotFoundException e) {
+            catalog.remove(packageName);
+        }
+    }
+
+    /**
+     * Skip system apps and our own app.
+     */
+    private static boolean isBlockable(Context context, ApplicationInfo applicationInfo) {
+        return (applicationInfo.flags & ApplicationInfo.FLAG_SYSTEM) == 0
+                && !applicationInfo.packageName.equals(context.getPackageName());
+    }
+
+    private static int bootCount(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return InstalledAppCatalog.UNKNOWN;
+        }
+        return Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT,
+                InstalledAppCatalog.UNKNOWN);
+    }
+
+    private static int currentSequenceNumber(PackageManager pm) {
+        ChangedPackages changed = pm.getChangedPackages(0);
+        return changed != null ? changed.getSequenceNumber() : 0;
+    }
+
+    private static void flush(InstalledAppCatalog catalog) {
+        try {
+            catalog.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving installed apps", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.focustask.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the {@link InstalledAppCatalog} current as apps are installed, updated and removed.
+ * Declared in the manifest for Android 7 and below, and registered by AppBlockerPlugin
+ * while the app runs, since Android 8 no longer delivers these broadcasts to the manifest.
+ */
+public class PackageChangeReceiver extends BroadcastReceiver {
+    private static final String TAG = "PackageChangeReceiver";
+    // Label lookups and catalog writes stay off the main thread
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    public static IntentFilter intentFilter() {
+        IntentFilter filter = new IntentFilter(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        return filter;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Uri data = intent.getData();
+        if (data == null) {
+            return;
+        }
+        // An update sends REMOVED and then REPLACED; wait for the second
+        if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        final String packageName = data.getSchemeSpecificPart();
+        final PendingResult pendingResult = goAsync();
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    InstalledAppCatalogs.update(appContext, packageName);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error updating installed apps for " + packageName, e);
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,224 @@
+package com.focustask.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Foreground time per package per local day, for screen-time insights.
+ *
+ * Totals are kept in memory and written to a small file only when {@link #flush} finds
+ * them changed. The file lists each package name once and then every day as pairs of
+ * package number and milliseconds, so a day costs eight bytes per app used. Days older
+ * than {@link #DAYS_KEPT} are dropped. Safe to use from several threads.
+ */
+public final class UsageHistogram {
+    private static final int MAGIC = 0x46464155; // "FFAU"
+    private static final int VERSION = 1;
+    static final int DAYS_KEPT = 90;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final File file;
+    private final ZoneId zone;
+    // Milliseconds by package for each epoch day
+    private final TreeMap<Long, Map<String, long[]>> days = new TreeMap<>();
+    // The day last added to, so adds within a day skip the boxed TreeMap lookup
+    private long lastDay = Long.MIN_VALUE;
+    private Map<String, long[]> lastDayTotals;
+    private boolean dirty;
+
+    private UsageHistogram(File file, ZoneId zone) {
+        this.file = file;
+        this.zone = zone;
+    }
+
+    /**
+     * Load the saved totals, starting empty if the file is missing or damaged.
+     */
+    public static UsageHistogram open(File file, ZoneId zone) {
+        UsageHistogram histogram = new UsageHistogram(file, zone);
+        if (!histogram.load()) {
+            histogram.days.clear();
+        }
+        return histogram;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public long epochDayOf(long timeMillis) {
+        int offsetSeconds = zone.getRules().getOffset(Instant.ofEpochMilli(timeMillis)).getTotalSeconds();
+        return Math.floorDiv(Math.floorDiv(timeMillis, 1000) + offsetSeconds, SECONDS_PER_DAY);
+    }
+
+    /**
+     * @return the instant local {@code epochDay} begins
+     */
+    public long startOfDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    public synchronized void add(long epochDay, String packageName, long foregroundMs) {
+        if (foregroundMs <= 0) {
+            return;
+        }
+        Map<String, long[]> day = epochDay == lastDay ? lastDayTotals : days.get(epochDay);
+        if (day == null) {
+            day = new HashMap<>();
+            days.put(epochDay, day);
+            days.headMap(days.lastKey() - DAYS_KEPT + 1).clear();
+        }
+        lastDay = epochDay;
+        lastDayTotals = day;
+        long[] total = day.get(packageName);
+        if (total == null) {
+            total = new long[1];
+            day.put(packageName, total);
+        }
+        total[0] += foregroundMs;
+        dirty = true;
+    }
+
+    public synchronized long get(long epochDay, String packageName) {
+        Map<String, long[]> day = days.get(epochDay);
+        long[] total = day != null ? day.get(packageName) : null;
+        return total != null ? total[0] : 0;
+    }
+
+    /**
+     * @return foreground milliseconds by package for the day, most used first
+     */
+    public synchronized Map<String, Long> day(long epochDay) {
+        Map<String, long[]> day = days.get(epochDay);
+        if (day == null) {
+            return Collections.emptyMap();
+        }
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(day.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(Map.Entry<String, long[]> a, Map.Entry<String, long[]> b) {
+                return Long.compare(b.getValue()[0], a.getValue()[0]);
+            }
+        });
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : entries) {
+            result.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return result;
+    }
+
+    /**
+     * Write the totals if they changed since the last flush.
+     * @return true if the file was written
+     */
+    public synchronized boolean flush() throws IOException {
+        if (!dirty) {
+            return false;
+        }
+        save();
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * @return false if there was nothing usable to load
+     */
+    private boolean load() {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            int packageCount = in.readInt();
+            // Every name takes at least its two length bytes
+            if (packageCount < 0 || packageCount > file.length() / 2) {
+                return false;
+            }
+            String[] packages = new String[packageCount];
+            for (int i = 0; i < packages.length; i++) {
+                packages[i] = in.readUTF();
+            }
+            int dayCount = in.readInt();
+            for (int d = 0; d < dayCount; d++) {
+                long epochDay = in.readInt();
+                int entryCount = in.readInt();
+                Map<String, long[]> day = new HashMap<>();
+                for (int e = 0; e < entryCount; e++) {
+                    int index = in.readInt();
+                    long foregroundMs = in.readInt();
+                    if (index < 0 || index >= packages.length) {
+                        return false;
+                    }
+                    day.put(packages[index], new long[]{foregroundMs});
+                }
+                days.put(epochDay, day);
+            }
+            // Take the checksum of the contents before reading the stored one
+            long expected = crc.getValue();
+            return in.readLong() == expected;
+        } catch (IOException | RuntimeException e) {
+            // Missing, truncated or damaged before the checksum could tell: start over
+            // rather than stop tracking
+            return false;
+        }
+    }
+
+    private void save() throws IOException {
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+        for (Map<String, long[]> day : days.values()) {
+            for (String packageName : day.keySet()) {
+                if (!indexes.containsKey(packageName)) {
+                    indexes.put(packageName, indexes.size());
+                }
+            }
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(new FileOutputStream(tmp), crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(indexes.size());
+            for (String packageName : indexes.keySet()) {
+                out.writeUTF(packageName);
+            }
+            out.writeInt(days.size());
+            for (Map.Entry<Long, Map<String, long[]>> day : days.entrySet()) {
+                out.writeInt((int) (long) day.getKey());
+                out.writeInt(day.getValue().size());
+                for (Map.Entry<String, long[]> entry : day.getValue().entrySet()) {
+                    out.writeInt(indexes.get(entry.getKey()));
+                    // A day is well under 2^31 ms
+                    out.writeInt((int) Math.min(entry.getValue()[0], Integer.MAX_VALUE));
+                }
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.focustask.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.File;
+import java.time.ZoneId;
+
+/**
+ * Opens the {@link UsageHistogram} shared by AppBlockerService and AppBlockerPlugin, and
+ * keeps whether usage is tracked outside blocking sessions.
+ */
+public final class UsageHistograms {
+    private static final String USAGE_FILE = "app_usage.bin";
+    private static final String PREFS_NAME = "AppBlocker";
+    private static final String TRACKING_KEY = "usageTracking";
+
+    private static UsageHistogram instance;
+
+    private UsageHistograms() {
+    }
+
+    public static synchronized UsageHistogram get(Context context) {
+        if (instance == null) {
+            instance = UsageHistogram.open(
+                    new File(context.getApplicationContext().getFilesDir(), USAGE_FILE),
+                    ZoneId.systemDefault());
+        }
+        return instance;
+    }
+
+    public static boolean isTrackingEnabled(Context context) {
+        return prefs(context).getBoolean(TRACKING_KEY, false);
+    }
+
+    public static void setTrackingEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(TRACKING_KEY, enabled).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,91 @@
+package com.stanley.focusflow;
+
+/**
+ * Works out what a recurring task missed while the device was off or the app was not
+ * running: how many occurrences passed between its stored occurrence and now, and the
+ * first occurrence still to come.
+ *
+ * Occurrences are walked in batches with {@link RecurrenceEngine#occurrencesThrough}, so a
+ * task costs one engine call per 32 missed occurrences and nothing past the first upcoming
+ * one. A planner reuses its buffer and is not thread-safe.
+ */
+public final class CatchUpPlanner {
+
+    /**
+     * What to show for a task that missed occurrences.
+     */
+    public enum Policy {
+        // Drop the missed occurrences without telling the user
+        SKIP,
+        // Deliver the task's own notification once, however many were missed
+        FIRE_ONCE,
+        // Only list the task and its missed count in the catch-up summary
+        SUMMARY
+    }
+
+    public static final class Result {
+        private final int missedCount;
+        private final long firstMissed;
+        private final long lastMissed;
+        private final long nextTime;
+
+        Result(int missedCount, long firstMissed, long lastMissed, long nextTime) {
+            this.missedCount = missedCount;
+            this.firstMissed = firstMissed;
+            this.lastMissed = lastMissed;
+            this.nextTime = nextTime;
+        }
+
+        public int getMissedCount() {
+            return missedCount;
+        }
+
+        public long getFirstMissed() {
+            return firstMissed;
+        }
+
+        public long getLastMissed() {
+            return lastMissed;
+        }
+
+        /**
+         * @return the first occurrence after now, or {@link RecurrenceEngine#NO_OCCURRENCE}
+         */
+        public long getNextTime() {
+            return nextTime;
+        }
+    }
+
+    private static final int BATCH = 32;
+
+    private final RecurrenceEngine engine;
+    private final long[] occurrences = new long[BATCH];
+
+    public CatchUpPlanner(RecurrenceEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * @param missedTime the task's stored occurrence, at or before now, which counts as missed
+     */
+    public Result plan(RecurrenceRule rule, long missedTime, long now) {
+        int missed = 1;
+        long lastMissed = missedTime;
+        long after = missedTime;
+        while (true) {
+            int count = engine.occurrencesThrough(rule, after, now, occurrences);
+            for (int i = 0; i < count; i++) {
+                if (occurrences[i] > now) {
+                    return new Result(missed, missedTime, lastMissed, occurrences[i]);
+                }
+                missed++;
+                lastMissed = occurrences[i];
+            }
+            if (count < BATCH) {
+                // The rule has ended
+                return new Result(missed, missedTime, lastMissed, RecurrenceEngine.NO_OCCURRENCE);
+            }
+            after = occurrences[count - 1];
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.stanley.focusflow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Min-heap of ids ordered by deadline, with an id -> slot index so a deadline can be
+ * replaced or removed in O(log n) rather than by a linear search. Not thread-safe.
+ */
+public final class DeadlineHeap {
+    public static final long NONE = Long.MAX_VALUE;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] ids = new String[16];
+    private long[] deadlines = new long[16];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String id) {
+        return slots.containsKey(id);
+    }
+
+    /**
+     * Add {@code id}, or move it if it is already queued.
+     */
+    public void put(String id, long deadline) {
+        Integer slot = slots.get(id);
+        if (slot != null) {
+            long previous = deadlines[slot];
+            deadlines[slot] = deadline;
+            if (deadline < previous) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+            return;
+        }
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+        }
+        ids[size] = id;
+        deadlines[size] = deadline;
+        slots.put(id, size);
+        siftUp(size++);
+    }
+
+    /**
+     * @return false if {@code id} was not queued
+     */
+    public boolean remove(String id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        int last = --size;
+        if (slot != last) {
+            move(last, slot);
+            siftDown(slot);
+            siftUp(slot);
+        }
+        ids[last] = null;
+        return true;
+    }
+
+    /**
+     * @return the earliest deadline, or {@link #NONE} when empty
+     */
+    public long peekDeadline() {
+        return size > 0 ? deadlines[0] : NONE;
+    }
+
+    /**
+     * @return the id with the earliest deadline, or null when empty
+     */
+    public String peekId() {
+        return size > 0 ? ids[0] : null;
+    }
+
+    /**
+     * Remove and return the earliest id if its deadline is at or before {@code now}.
+     *
+     * @return null if nothing is due
+     */
+    public String pollDue(long now) {
+        if (size == 0 || deadlines[0] > now) {
+            return null;
+        }
+        String id = ids[0];
+        remove(id);
+        return id;
+    }
+
+    public void clear() {
+        Arrays.fill(ids, 0, size, null);
+        slots.clear();
+        size = 0;
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (deadlines[parent] <= deadlines[slot]) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && deadlines[child + 1] < deadlines[child]) {
+                child++;
+            }
+            if (deadlines[slot] <= deadlines[child]) {
+                break;
+            }
+            swap(slot, child);
+            slot = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String id = ids[a];
+        long deadline = deadlines[a];
+        ids[a] = ids[b];
+        deadlines[a] = deadlines[b];
+        ids[b] = id;
+        deadlines[b] = deadline;
+        slots.put(ids[a], a);
+        slots.put(ids[b], b);
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        deadlines[to] = deadlines[from];
+        slots.put(ids[to], to);
+    }
+}
@@ -0,0 +1,296 @@
+package com.stanley.focusflow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Running focus totals per day, ISO week and task, derived from the {@link SessionLog}.
+ *
+ * The rollups remember how many log records they cover, so {@link #catchUp} folds in only
+ * sessions appended since and a stats query is a handful of lookups however long the
+ * history is. Days and weeks older than the dashboard shows are pruned. The rollups are
+ * saved to a small file and rebuilt from the log whenever that file is missing, damaged,
+ * ahead of the log or counted in another time zone.
+ */
+public final class FocusRollups {
+    private static final int MAGIC = 0x46465255; // "FFRU"
+    private static final int VERSION = 1;
+    static final int DAYS_KEPT = 400;
+    static final int WEEKS_KEPT = 60;
+
+    private final File file;
+    private final ZoneId zone;
+    private final RecurrenceEngine calendar;
+    // Each counter is {sessions, completed sessions, focused ms}
+    private final TreeMap<Long, long[]> days = new TreeMap<>();
+    private final TreeMap<Long, long[]> weeks = new TreeMap<>();
+    private final Map<String, long[]> tasks = new HashMap<>();
+    private long[] allTime = new long[3];
+    private int coveredRecords;
+
+    private FocusRollups(File file, ZoneId zone) {
+        this.file = file;
+        this.zone = zone;
+        this.calendar = new RecurrenceEngine(zone);
+    }
+
+    /**
+     * Load the saved rollups and bring them up to date with {@code log}.
+     */
+    public static FocusRollups open(File file, SessionLog log, ZoneId zone) throws IOException {
+        FocusRollups rollups = new FocusRollups(file, zone);
+        if (!rollups.load() || rollups.coveredRecords > log.size()) {
+            rollups.clear();
+        }
+        rollups.catchUp(log);
+        return rollups;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Fold in the sessions appended to {@code log} since the last call and save.
+     */
+    public synchronized void catchUp(SessionLog log) throws IOException {
+        int size = log.size();
+        if (size == coveredRecords) {
+            return;
+        }
+        log.scan(coveredRecords, new SessionLog.Visitor() {
+            @Override
+            public void visit(long startMs, long endMs, long focusMs, String taskKey,
+                              int pauseCount, boolean completed) {
+                long epochDay = calendar.localEpochDay(endMs);
+                add(counter(days, epochDay), focusMs, completed);
+                add(counter(weeks, SessionLog.mondayOf(epochDay)), focusMs, completed);
+                long[] task = tasks.get(taskKey);
+                if (task == null) {
+                    task = new long[3];
+                    tasks.put(taskKey, task);
+                }
+                add(task, focusMs, completed);
+                add(allTime, focusMs, completed);
+            }
+        });
+        coveredRecords = size;
+        prune();
+        save();
+    }
+
+    /**
+     * Throw the rollups away and recompute them from the whole log.
+     */
+    public synchronized void rebuild(SessionLog log) throws IOException {
+        clear();
+        catchUp(log);
+    }
+
+    /**
+     * @return the day containing {@code timeMillis} in the rollups' time zone
+     */
+    public long epochDayOf(long timeMillis) {
+        return calendar.localEpochDay(timeMillis);
+    }
+
+    public synchronized SessionLog.Total day(long epochDay) {
+        return total(SessionLog.Grouping.DAY, epochDay, days.get(epochDay));
+    }
+
+    public synchronized SessionLog.Total week(long epochDay) {
+        long monday = SessionLog.mondayOf(epochDay);
+        return total(SessionLog.Grouping.WEEK, monday, weeks.get(monday));
+    }
+
+    /**
+     * @return {@code count} days ending with {@code lastEpochDay}, oldest first, empty days included
+     */
+    public synchronized List<SessionLog.Total> days(long lastEpochDay, int count) {
+        List<SessionLog.Total> result = new ArrayList<>(count);
+        for (long day = lastEpochDay - count + 1; day <= lastEpochDay; day++) {
+            result.add(total(SessionLog.Grouping.DAY, day, days.get(day)));
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code count} ISO weeks ending with the one containing {@code lastEpochDay}, oldest first
+     */
+    public synchronized List<SessionLog.Total> weeks(long lastEpochDay, int count) {
+        long lastMonday = SessionLog.mondayOf(lastEpochDay);
+        List<SessionLog.Total> result = new ArrayList<>(count);
+        for (long monday = lastMonday - 7L * (count - 1); monday <= lastMonday; monday += 7) {
+            result.add(total(SessionLog.Grouping.WEEK, monday, weeks.get(monday)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the {@code limit} tasks with the most focused time, most first
+     */
+    public synchronized List<SessionLog.Total> topTasks(int limit) {
+        List<SessionLog.Total> result = new ArrayList<>(tasks.size());
+        for (Map.Entry<String, long[]> entry : tasks.entrySet()) {
+            result.add(total(SessionLog.Grouping.TASK, entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(result, new Comparator<SessionLog.Total>() {
+            @Override
+            public int compare(SessionLog.Total a, SessionLog.Total b) {
+                return Long.compare(b.focusMs, a.focusMs);
+            }
+        });
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public synchronized SessionLog.Total allTime() {
+        return new SessionLog.Total("all", (int) allTime[0], (int) allTime[1], allTime[2]);
+    }
+
+    private static SessionLog.Total total(SessionLog.Grouping grouping, Object key, long[] counter) {
+        String label = SessionLog.keyLabel(grouping, key);
+        return counter != null
+                ? new SessionLog.Total(label, (int) counter[0], (int) counter[1], counter[2])
+                : new SessionLog.Total(label, 0, 0, 0);
+    }
+
+    private static long[] counter(TreeMap<Long, long[]> counters, long key) {
+        long[] counter = counters.get(key);
+        if (counter == null) {
+            counter = new long[3];
+            counters.put(key, counter);
+        }
+        return counter;
+    }
+
+    private static void add(long[] counter, long focusMs, boolean completed) {
+        counter[0]++;
+        if (completed) {
+            counter[1]++;
+        }
+        counter[2] += focusMs;
+    }
+
+    private void prune() {
+        if (!days.isEmpty()) {
+            days.headMap(days.lastKey() - DAYS_KEPT + 1).clear();
+        }
+        if (!weeks.isEmpty()) {
+            weeks.headMap(weeks.lastKey() - 7L * (WEEKS_KEPT - 1)).clear();
+        }
+    }
+
+    private void clear() {
+        days.clear();
+        weeks.clear();
+        tasks.clear();
+        allTime = new long[3];
+        coveredRecords = 0;
+    }
+
+    /**
+     * @return false if there was nothing usable to load
+     */
+    private boolean load() {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !zone.getId().equals(in.readUTF())) {
+                return false;
+            }
+            coveredRecords = in.readInt();
+            readCounter(in, allTime);
+            readCounters(in, days);
+            readCounters(in, weeks);
+            int taskCount = in.readInt();
+            for (int i = 0; i < taskCount; i++) {
+                String key = in.readUTF();
+                long[] counter = new long[3];
+                readCounter(in, counter);
+                tasks.put(key, counter);
+            }
+            // Take the checksum of the contents before reading the stored one
+            long expected = crc.getValue();
+            return in.readLong() == expected;
+        } catch (IOException | RuntimeException e) {
+            // Missing, truncated or damaged past what the checksum catches, such as a bad
+            // string or a nonsense count: rebuild from the log like a checksum mismatch
+            return false;
+        }
+    }
+
+    private void save() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(new FileOutputStream(tmp), crc)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(zone.getId());
+            out.writeInt(coveredRecords);
+            writeCounter(out, allTime);
+            writeCounters(out, days);
+            writeCounters(out, weeks);
+            out.writeInt(tasks.size());
+            for (Map.Entry<String, long[]> entry : tasks.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeCounter(out, entry.getValue());
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static void readCounters(DataInputStream in, TreeMap<Long, long[]> counters)
+            throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long key = in.readLong();
+            long[] counter = new long[3];
+            readCounter(in, counter);
+            counters.put(key, counter);
+        }
+    }
+
+    private static void writeCounters(DataOutputStream out, TreeMap<Long, long[]> counters)
+            throws IOException {
+        out.writeInt(counters.size());
+        for (Map.Entry<Long, long[]> entry : counters.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeCounter(out, entry.getValue());
+        }
+    }
+
+    private static void readCounter(DataInputStream in, long[] counter) throws IOException {
+        for (int i = 0; i < counter.length; i++) {
+            counter[i] = in.readLong();
+        }
+    }
+
+    private static void writeCounter(DataOutputStream out, long[] counter) throws IOException {
+        for (long value : counter) {
+            out.writeLong(value);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.stanley.focusflow;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Pomodoro-style sequence of focus and break phases that TimerService runs on its own.
+ *
+ * The program is a cycle of phases repeated a number of times. When a long break rule is
+ * set, the last break of every n-th cycle is replaced by the long break. Phases are worked
+ * out by index rather than expanded up front, so a program costs the same however many
+ * times it repeats. The JSON it was parsed from is kept so a checkpoint can restore it.
+ */
+public final class IntervalProgram {
+    public enum Kind { FOCUS, BREAK }
+
+    public static final class Phase {
+        private final String name;
+        private final Kind kind;
+        private final long durationMs;
+
+        Phase(String name, Kind kind, long durationMs) {
+            this.name = name;
+            this.kind = kind;
+            this.durationMs = durationMs;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+    }
+
+    private final String json;
+    private final List<Phase> cycle;
+    private final int repeat;
+    private final Phase longBreak;
+    private final int longBreakEvery;
+    private final int lastBreakInCycle;
+    private final boolean autoAdvance;
+    private final boolean skipFinalBreak;
+
+    private IntervalProgram(String json, List<Phase> cycle, int repeat, Phase longBreak,
+                            int longBreakEvery, boolean autoAdvance, boolean skipFinalBreak) {
+        this.json = json;
+        this.cycle = cycle;
+        this.repeat = repeat;
+        this.longBreak = longBreak;
+        this.longBreakEvery = longBreakEvery;
+        this.autoAdvance = autoAdvance;
+        this.skipFinalBreak = skipFinalBreak;
+
+        int lastBreak = -1;
+        for (int i = 0; i < cycle.size(); i++) {
+            if (cycle.get(i).kind == Kind.BREAK) {
+                lastBreak = i;
+            }
+        }
+        this.lastBreakInCycle = lastBreak;
+    }
+
+    /**
+     * Parse a program such as
+     * <pre>
+     * {"phases": [{"name": "Focus", "kind": "focus", "durationSeconds": 1500},
+     *             {"name": "Break", "kind": "break", "durationSeconds": 300}],
+     *  "repeat": 4,
+     *  "longBreak": {"name": "Long break", "durationSeconds": 900, "every": 4},
+     *  "autoAdvance": true, "skipFinalBreak": false}
+     * </pre>
+     */
+    public static IntervalProgram fromJson(String json) throws JSONException {
+        JSONObject spec = new JSONObject(json);
+        JSONArray phases = spec.getJSONArray("phases");
+        if (phases.length() == 0) {
+            throw new JSONException("A program needs at least one phase");
+        }
+        List<Phase> cycle = new ArrayList<>(phases.length());
+        for (int i = 0; i < phases.length(); i++) {
+            JSONObject phase = phases.getJSONObject(i);
+            Kind kind = "break".equals(phase.optString("kind", "focus")) ? Kind.BREAK : Kind.FOCUS;
+            cycle.add(new Phase(phase.optString("name", kind == Kind.FOCUS ? "Focus" : "Break"),
+                    kind, durationOf(phase)));
+        }
+
+        int repeat = spec.optInt("repeat", 1);
+        if (repeat < 1) {
+            throw new JSONException("repeat must be at least 1");
+        }
+
+        Phase longBreak = null;
+        int longBreakEvery = 0;
+        JSONObject longBreakSpec = spec.optJSONObject("longBreak");
+        if (longBreakSpec != null) {
+            longBreak = new Phase(longBreakSpec.optString("name", "Long break"), Kind.BREAK,
+                    durationOf(longBreakSpec));
+            longBreakEvery = longBreakSpec.optInt("every", 4);
+            if (longBreakEvery < 1) {
+                throw new JSONException("longBreak.every must be at least 1");
+            }
+        }
+
+        IntervalProgram program = new IntervalProgram(json, Collections.unmodifiableList(cycle),
+                repeat, longBreak, longBreakEvery, spec.optBoolean("autoAdvance", true),
+                spec.optBoolean("skipFinalBreak", false));
+        // All breaks with the final one skipped leaves nothing to run
+        if (program.getPhaseCount() == 0) {
+            throw new JSONException("A program needs at least one phase to run");
+        }
+        return program;
+    }
+
+    public String toJson() {
+        return json;
+    }
+
+    public boolean isAutoAdvance() {
+        return autoAdvance;
+    }
+
+    public int getPhaseCount() {
+        int count = cycle.size() * repeat;
+        // Drop the breaks that would follow the last focus phase
+        if (skipFinalBreak) {
+            while (count > 0 && cycle.get((count - 1) % cycle.size()).kind == Kind.BREAK) {
+                count--;
+            }
+        }
+        return count;
+    }
+
+    public Phase getPhase(int index) {
+        if (index < 0 || index >= getPhaseCount()) {
+            throw new IndexOutOfBoundsException("phase " + index + " of " + getPhaseCount());
+        }
+        int round = index / cycle.size();
+        int position = index % cycle.size();
+        if (longBreak != null && position == lastBreakInCycle && (round + 1) % longBreakEvery == 0) {
+            return longBreak;
+        }
+        return cycle.get(position);
+    }
+
+    private static long durationOf(JSONObject phase) throws JSONException {
+        long durationSeconds = phase.getLong("durationSeconds");
+        if (durationSeconds <= 0) {
+            throw new JSONException("durationSeconds must be positive");
+        }
+        return durationSeconds * 1000;
+    }
+}
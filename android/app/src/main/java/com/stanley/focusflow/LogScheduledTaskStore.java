@@ -0,0 +1,469 @@
+package com.stanley.focusflow;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * {@link ScheduledTaskStore} backed by an append-only log file and an in-memory
+ * id -> offset index.
+ *
+ * Every put or remove appends a single checksummed record, so an update costs one
+ * write no matter how many tasks are stored, and a lookup is one hash probe plus one
+ * positioned read. Once superseded records outweigh live ones the log is rewritten.
+ *
+ * RecurringTaskReceiver runs in its own process, so before each operation the store
+ * checks whether another process has appended to or compacted the file and replays
+ * only what changed. A compaction marks the log it replaced as superseded in its header,
+ * so the check is a stat of the path and a read of 8 bytes from the already open file.
+ * Writers serialize through an exclusive file lock.
+ */
+public class LogScheduledTaskStore implements ScheduledTaskStore {
+    private static final int MAGIC = 0x46465453; // "FFTS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16; // magic, version, generation
+    private static final int GENERATION_OFFSET = 8;
+    // Generation written over the header of a log once a compaction has replaced it
+    private static final long SUPERSEDED = -1;
+    private static final int RECORD_HEADER_SIZE = 8; // payload length, crc32
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
+    private final File file;
+    private final Map<String, Entry> index = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer generationBuffer = ByteBuffer.allocate(8);
+    private RandomAccessFile raf;
+    private long generation;
+    private long indexedLength;
+    private long liveBytes;
+    private long version;
+
+    private static final class Entry {
+        final long offset;
+        final int length;
+        final long scheduledTime;
+
+        Entry(long offset, int length, long scheduledTime) {
+            this.offset = offset;
+            this.length = length;
+            this.scheduledTime = scheduledTime;
+        }
+    }
+
+    public LogScheduledTaskStore(File file) throws IOException {
+        this.file = file;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        openFile();
+        // Taking the write lock once drops any record torn by a crash
+        release(lockForWrite());
+    }
+
+    @Override
+    public synchronized ScheduledTask get(String taskId) throws IOException {
+        refreshIfChanged();
+        Entry entry = index.get(taskId);
+        return entry != null ? readTask(taskId, entry) : null;
+    }
+
+    @Override
+    public synchronized void put(ScheduledTask task) throws IOException {
+        byte[] record = encode(OP_PUT, task.getId(), task.getJson(), task.getScheduledTime());
+        FileLock lock = lockForWrite();
+        try {
+            append(record);
+            maybeCompact();
+        } finally {
+            release(lock);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String taskId) throws IOException {
+        FileLock lock = lockForWrite();
+        try {
+            if (!index.containsKey(taskId)) {
+                return false;
+            }
+            append(encode(OP_REMOVE, taskId, null, 0));
+            maybeCompact();
+            return true;
+        } finally {
+            release(lock);
+        }
+    }
+
+    @Override
+    public synchronized void putAll(Collection<ScheduledTask> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        List<byte[]> records = new ArrayList<>(tasks.size());
+        for (ScheduledTask task : tasks) {
+            records.add(encode(OP_PUT, task.getId(), task.getJson(), task.getScheduledTime()));
+        }
+        FileLock lock = lockForWrite();
+        try {
+            append(concat(records));
+            maybeCompact();
+        } finally {
+            release(lock);
+        }
+    }
+
+    @Override
+    public synchronized int removeAll(Collection<String> taskIds) throws IOException {
+        FileLock lock = lockForWrite();
+        try {
+            List<byte[]> records = new ArrayList<>();
+            for (String taskId : taskIds) {
+                if (index.containsKey(taskId)) {
+                    records.add(encode(OP_REMOVE, taskId, null, 0));
+                }
+            }
+            if (records.isEmpty()) {
+                return 0;
+            }
+            // Duplicate ids each get a tombstone, count what actually went away
+            int before = index.size();
+            append(concat(records));
+            maybeCompact();
+            return before - index.size();
+        } finally {
+            release(lock);
+        }
+    }
+
+    @Override
+    public synchronized List<ScheduledTask> getAll() throws IOException {
+        refreshIfChanged();
+        return readAll();
+    }
+
+    @Override
+    public synchronized Map<String, Long> getScheduledTimes() throws IOException {
+        refreshIfChanged();
+        Map<String, Long> times = new HashMap<>(index.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            times.put(entry.getKey(), entry.getValue().scheduledTime);
+        }
+        return times;
+    }
+
+    @Override
+    public synchronized int size() throws IOException {
+        refreshIfChanged();
+        return index.size();
+    }
+
+    @Override
+    public synchronized long getVersion() throws IOException {
+        refreshIfChanged();
+        return version;
+    }
+
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+
+    private void openFile() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < HEADER_SIZE) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeLong(0);
+        }
+        reload();
+    }
+
+    private void reload() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        version++;
+        raf.seek(0);
+        if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+            throw new IOException("Unrecognized task log format: " + file);
+        }
+        generation = raf.readLong();
+        indexedLength = HEADER_SIZE;
+        replayFrom(HEADER_SIZE);
+    }
+
+    /**
+     * Apply every complete, intact record from the given offset onwards. Stops at the
+     * first truncated or corrupt record, which is either a torn write or one another
+     * process is still appending.
+     */
+    private void replayFrom(long position) throws IOException {
+        long end = raf.length();
+        raf.getChannel().position(position);
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(raf.getChannel()), 64 * 1024));
+
+        long offset = position;
+        try {
+            while (offset + RECORD_HEADER_SIZE <= end) {
+                int payloadLength = in.readInt();
+                int checksum = in.readInt();
+                if (payloadLength <= 0 || offset + RECORD_HEADER_SIZE + payloadLength > end) {
+                    break;
+                }
+
+                byte[] payload = new byte[payloadLength];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, payloadLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                int length = RECORD_HEADER_SIZE + payloadLength;
+                ByteBuffer buffer = ByteBuffer.wrap(payload);
+                byte op = buffer.get();
+                long scheduledTime = buffer.getLong();
+                int idLength = buffer.getInt();
+                String taskId = new String(payload, buffer.position(), idLength, StandardCharsets.UTF_8);
+                index(op, taskId, offset, length, scheduledTime);
+                offset += length;
+            }
+        } catch (EOFException e) {
+            // File shrank underneath us; whatever was indexed so far stands
+        }
+        indexedLength = offset;
+    }
+
+    private void index(byte op, String taskId, long offset, int length, long scheduledTime) {
+        Entry previous = op == OP_PUT
+                ? index.put(taskId, new Entry(offset, length, scheduledTime))
+                : index.remove(taskId);
+        if (previous != null) {
+            liveBytes -= previous.length;
+        }
+        if (op == OP_PUT) {
+            liveBytes += length;
+        }
+        version++;
+    }
+
+    /**
+     * Catch up with writes made by other processes.
+     * @return true if the file was compacted elsewhere and had to be reopened
+     */
+    private boolean refreshIfChanged() throws IOException {
+        long diskLength = file.length();
+        // A compaction can leave the log exactly as long as before, so length alone does
+        // not tell the files apart; the mark it leaves on the old one does
+        boolean sameFile = openGeneration() == generation;
+        if (sameFile && diskLength == indexedLength) {
+            return false;
+        }
+        if (sameFile && raf.length() == diskLength && diskLength > indexedLength) {
+            // Same file, another process appended to it
+            replayFrom(indexedLength);
+            return false;
+        }
+        // The path now points at a rewritten log
+        raf.close();
+        openFile();
+        return true;
+    }
+
+    /**
+     * @return the generation in the header of the open file, {@link #SUPERSEDED} once a
+     *         compaction has replaced it
+     */
+    private long openGeneration() throws IOException {
+        generationBuffer.clear();
+        while (generationBuffer.hasRemaining()) {
+            if (raf.getChannel().read(generationBuffer, GENERATION_OFFSET + generationBuffer.position()) < 0) {
+                return SUPERSEDED;
+            }
+        }
+        return generationBuffer.getLong(0);
+    }
+
+    private FileLock lockForWrite() throws IOException {
+        FileLock lock = raf.getChannel().lock();
+        while (refreshIfChanged()) {
+            // Reopening closed the channel we had locked, lock the new one
+            lock = raf.getChannel().lock();
+        }
+        if (raf.length() > indexedLength) {
+            // Leftover of a writer that died mid-append
+            raf.setLength(indexedLength);
+        }
+        return lock;
+    }
+
+    private void release(FileLock lock) throws IOException {
+        if (lock.isValid()) {
+            lock.release();
+        }
+    }
+
+    private void append(byte[] records) throws IOException {
+        raf.seek(indexedLength);
+        raf.write(records);
+
+        // Index what we just wrote without reading it back
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        long offset = indexedLength;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            int payloadLength = buffer.getInt();
+            buffer.getInt();
+            byte op = buffer.get();
+            long scheduledTime = buffer.getLong();
+            int idLength = buffer.getInt();
+            String taskId = new String(records, buffer.position(), idLength, StandardCharsets.UTF_8);
+            int length = RECORD_HEADER_SIZE + payloadLength;
+            index(op, taskId, offset, length, scheduledTime);
+            offset += length;
+            buffer.position(start + length);
+        }
+        indexedLength = offset;
+    }
+
+    private void maybeCompact() throws IOException {
+        long deadBytes = indexedLength - HEADER_SIZE - liveBytes;
+        if (deadBytes < MIN_COMPACTION_BYTES || deadBytes < liveBytes) {
+            return;
+        }
+
+        List<ScheduledTask> tasks = readAll();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(generation + 1);
+            out.write(header.array());
+            for (ScheduledTask task : tasks) {
+                out.write(encode(OP_PUT, task.getId(), task.getJson(), task.getScheduledTime()));
+            }
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        // Processes still holding the old file learn from it that it is gone
+        generationBuffer.clear();
+        generationBuffer.putLong(0, SUPERSEDED);
+        raf.getChannel().write(generationBuffer, GENERATION_OFFSET);
+
+        // Closing the old file also drops the caller's lock on it, which is what other
+        // processes wait on before they notice the new generation
+        raf.close();
+        openFile();
+    }
+
+    private ScheduledTask readTask(String taskId, Entry entry) throws IOException {
+        byte[] record = new byte[entry.length];
+        raf.seek(entry.offset);
+        raf.readFully(record);
+        return decodeTask(taskId, record, entry.scheduledTime);
+    }
+
+    /**
+     * Read all live records in file order with a single buffered pass.
+     */
+    private List<ScheduledTask> readAll() throws IOException {
+        String[] ids = index.keySet().toArray(new String[0]);
+        Entry[] entries = new Entry[ids.length];
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            entries[i] = index.get(ids[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(entries[a].offset, entries[b].offset));
+
+        List<ScheduledTask> tasks = new ArrayList<>(ids.length);
+        raf.getChannel().position(HEADER_SIZE);
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(raf.getChannel()), 64 * 1024));
+        long position = HEADER_SIZE;
+        for (Integer i : order) {
+            Entry entry = entries[i];
+            skipFully(in, entry.offset - position);
+            byte[] record = new byte[entry.length];
+            in.readFully(record);
+            position = entry.offset + entry.length;
+            tasks.add(decodeTask(ids[i], record, entry.scheduledTime));
+        }
+        return tasks;
+    }
+
+    private static void skipFully(DataInputStream in, long count) throws IOException {
+        while (count > 0) {
+            int skipped = in.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException("Task log ended before an indexed record");
+            }
+            count -= skipped;
+        }
+    }
+
+    private static ScheduledTask decodeTask(String taskId, byte[] record, long scheduledTime) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.position(RECORD_HEADER_SIZE + 1 + 8);
+        int idLength = buffer.getInt();
+        buffer.position(buffer.position() + idLength);
+        int jsonLength = buffer.getInt();
+        String json = new String(record, buffer.position(), jsonLength, StandardCharsets.UTF_8);
+        return new ScheduledTask(taskId, json, scheduledTime);
+    }
+
+    private static byte[] concat(List<byte[]> records) {
+        if (records.size() == 1) {
+            return records.get(0);
+        }
+        int length = 0;
+        for (byte[] record : records) {
+            length += record.length;
+        }
+        byte[] joined = new byte[length];
+        int position = 0;
+        for (byte[] record : records) {
+            System.arraycopy(record, 0, joined, position, record.length);
+            position += record.length;
+        }
+        return joined;
+    }
+
+    private byte[] encode(byte op, String taskId, String json, long scheduledTime) {
+        byte[] id = taskId.getBytes(StandardCharsets.UTF_8);
+        byte[] body = json != null ? json.getBytes(StandardCharsets.UTF_8) : null;
+        int payloadLength = 1 + 8 + 4 + id.length + (body != null ? 4 + body.length : 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadLength);
+        buffer.putInt(payloadLength);
+        buffer.putInt(0); // checksum, filled in below
+        buffer.put(op).putLong(scheduledTime).putInt(id.length).put(id);
+        if (body != null) {
+            buffer.putInt(body.length).put(body);
+        }
+
+        crc.reset();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, payloadLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+}
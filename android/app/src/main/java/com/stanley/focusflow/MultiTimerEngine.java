@@ -0,0 +1,214 @@
+package com.stanley.focusflow;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs any number of named countdowns from one HandlerThread.
+ *
+ * Counting timers sit in a {@link DeadlineHeap} and the thread only ever waits for the
+ * earliest deadline, so starting, pausing or finishing a timer is O(log n) and nothing
+ * ticks in between. Deadlines are on {@link SystemClock#elapsedRealtime()}; the owner is
+ * expected to wake the device for {@link #getNextDeadlineElapsed()} and then call
+ * {@link #processDue()}, since the thread's own wait stops while the device sleeps.
+ */
+public final class MultiTimerEngine implements Handler.Callback {
+    private static final int MSG_DEADLINE = 1;
+
+    public interface Listener {
+        /**
+         * Called once per timer whose deadline has passed, on the thread that noticed it.
+         */
+        void onTimerFinished(NamedTimer timer);
+    }
+
+    /**
+     * Immutable state of one timer; pausing or resuming replaces it.
+     */
+    public static final class NamedTimer {
+        private final String id;
+        private final String label;
+        private final long durationMs;
+        private final long deadlineElapsed;
+        private final boolean paused;
+        private final long pausedRemainingMs;
+
+        NamedTimer(String id, String label, long durationMs, long deadlineElapsed, boolean paused,
+                   long pausedRemainingMs) {
+            this.id = id;
+            this.label = label;
+            this.durationMs = durationMs;
+            this.deadlineElapsed = deadlineElapsed;
+            this.paused = paused;
+            this.pausedRemainingMs = pausedRemainingMs;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public boolean isPaused() {
+            return paused;
+        }
+
+        public long getRemainingMs(long nowElapsed) {
+            return paused ? pausedRemainingMs : Math.max(0, deadlineElapsed - nowElapsed);
+        }
+    }
+
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final DeadlineHeap heap = new DeadlineHeap();
+    // Insertion ordered so lists come back in the order the timers were started
+    private final Map<String, NamedTimer> timers = new LinkedHashMap<>();
+
+    public MultiTimerEngine(String name, Listener listener) {
+        this.listener = listener;
+        this.thread = new HandlerThread(name, Process.THREAD_PRIORITY_FOREGROUND);
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper(), this);
+    }
+
+    /**
+     * Start {@code id}, restarting it if it already exists.
+     */
+    public synchronized void start(String id, String label, long durationMs) {
+        long deadline = SystemClock.elapsedRealtime() + durationMs;
+        timers.put(id, new NamedTimer(id, label, durationMs, deadline, false, 0));
+        heap.put(id, deadline);
+        scheduleNext();
+    }
+
+    /**
+     * @return false if {@code id} was not counting down
+     */
+    public synchronized boolean pause(String id) {
+        NamedTimer timer = timers.get(id);
+        if (timer == null || timer.paused) {
+            return false;
+        }
+        long remaining = timer.getRemainingMs(SystemClock.elapsedRealtime());
+        timers.put(id, new NamedTimer(id, timer.label, timer.durationMs, 0, true, remaining));
+        heap.remove(id);
+        scheduleNext();
+        return true;
+    }
+
+    /**
+     * @return false if {@code id} was not paused
+     */
+    public synchronized boolean resume(String id) {
+        NamedTimer timer = timers.get(id);
+        if (timer == null || !timer.paused) {
+            return false;
+        }
+        long deadline = SystemClock.elapsedRealtime() + timer.pausedRemainingMs;
+        timers.put(id, new NamedTimer(id, timer.label, timer.durationMs, deadline, false, 0));
+        heap.put(id, deadline);
+        scheduleNext();
+        return true;
+    }
+
+    /**
+     * @return false if there was no such timer
+     */
+    public synchronized boolean cancel(String id) {
+        if (timers.remove(id) == null) {
+            return false;
+        }
+        heap.remove(id);
+        scheduleNext();
+        return true;
+    }
+
+    public synchronized void cancelAll() {
+        timers.clear();
+        heap.clear();
+        handler.removeMessages(MSG_DEADLINE);
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    public synchronized List<NamedTimer> list() {
+        return new ArrayList<>(timers.values());
+    }
+
+    /**
+     * @return the elapsedRealtime of the earliest deadline, or {@link DeadlineHeap#NONE}
+     */
+    public synchronized long getNextDeadlineElapsed() {
+        return heap.peekDeadline();
+    }
+
+    /**
+     * @return the counting timer that finishes first, or null if none is counting
+     */
+    public synchronized NamedTimer getNextToFinish() {
+        String id = heap.peekId();
+        return id != null ? timers.get(id) : null;
+    }
+
+    /**
+     * Finish every timer whose deadline has passed, reporting them on the calling thread.
+     */
+    public void processDue() {
+        List<NamedTimer> finished = new ArrayList<>();
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            String id;
+            while ((id = heap.pollDue(now)) != null) {
+                finished.add(timers.remove(id));
+            }
+            scheduleNext();
+        }
+        for (NamedTimer timer : finished) {
+            listener.onTimerFinished(timer);
+        }
+    }
+
+    /**
+     * Stop every timer and end the thread. The engine cannot be used afterwards.
+     */
+    public void release() {
+        cancelAll();
+        thread.quitSafely();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        if (msg.what != MSG_DEADLINE) {
+            return false;
+        }
+        processDue();
+        return true;
+    }
+
+    private void scheduleNext() {
+        handler.removeMessages(MSG_DEADLINE);
+        long deadline = heap.peekDeadline();
+        if (deadline != DeadlineHeap.NONE) {
+            // Handler delays run on the uptime clock, so an early wake-up just reschedules
+            handler.sendMessageDelayed(handler.obtainMessage(MSG_DEADLINE),
+                    Math.max(0, deadline - SystemClock.elapsedRealtime()));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.stanley.focusflow;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of counters and latency timers for the native plugins and services.
+ *
+ * Hot paths resolve their metric once into a static field, so recording is a clock read
+ * and an atomic add. With tracing switched on, timed sections are also emitted as
+ * {@link Trace} sections and counters can be exported as trace counters, so they line up
+ * with everything else in a Perfetto or systrace capture.
+ */
+public final class NativeMetrics {
+    private static final ConcurrentHashMap<String, StripedCounter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private static volatile boolean tracing;
+
+    /**
+     * Times one kind of operation into a {@link LatencyHistogram}.
+     */
+    public static final class Timer {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the start time to pass to {@link #stop(long)}
+         */
+        public long start() {
+            if (tracing) {
+                Trace.beginSection(name);
+            }
+            return System.nanoTime();
+        }
+
+        public void stop(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+            if (tracing) {
+                Trace.endSection();
+            }
+        }
+
+        /**
+         * Record a duration measured some other way, such as how late a scheduled tick ran.
+         */
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    private NativeMetrics() {
+    }
+
+    public static StripedCounter counter(String name) {
+        StripedCounter counter = counters.get(name);
+        if (counter == null) {
+            StripedCounter created = new StripedCounter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public static Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            Timer created = new Timer(name);
+            timer = timers.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * @return every counter's current value by name
+     */
+    public static Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, StripedCounter> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    public static Map<String, LatencyHistogram.Snapshot> timerSnapshots() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().histogram.snapshot());
+        }
+        return snapshots;
+    }
+
+    public static void reset() {
+        for (StripedCounter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Timer timer : timers.values()) {
+            timer.histogram.reset();
+        }
+    }
+
+    public static boolean isTracing() {
+        return tracing;
+    }
+
+    /**
+     * Emit timed sections as trace sections from now on. Sections already open when this
+     * changes are not balanced, so switch it while nothing is being timed if possible.
+     */
+    public static void setTracing(boolean enabled) {
+        tracing = enabled;
+    }
+
+    /**
+     * Write every counter to the trace as a counter track. Needs API 29; earlier releases
+     * have no trace counters and this does nothing.
+     */
+    public static void exportCountersToTrace() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : counterValues().entrySet()) {
+            Trace.setCounter(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.stanley.focusflow;
+
+/**
+ * Decides when the ongoing timer notification is worth re-posting.
+ *
+ * Refreshes are spaced by elapsed time since the last post rather than by the remaining
+ * time modulo a period, so a late tick can neither double a refresh nor skip one. The
+ * spacing shrinks as the session nears its end, and nothing is posted while the screen is
+ * off since nobody can see it. Counters record how many refreshes were posted and skipped.
+ */
+public final class NotificationRefreshPolicy {
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private boolean interactive = true;
+    private long lastRefreshElapsed = NEVER;
+    private long postedCount;
+    private long skippedCount;
+
+    /**
+     * @return the spacing between refreshes for the given time left
+     */
+    public static long intervalFor(long remainingMs) {
+        if (remainingMs > 60 * 60 * 1000) {
+            return 60 * 1000;
+        }
+        if (remainingMs > 15 * 60 * 1000) {
+            return 15 * 1000;
+        }
+        return 5 * 1000;
+    }
+
+    /**
+     * Start a new session with fresh counters.
+     */
+    public synchronized void reset() {
+        lastRefreshElapsed = NEVER;
+        postedCount = 0;
+        skippedCount = 0;
+    }
+
+    /**
+     * When the screen comes back on, the next tick refreshes whatever the spacing.
+     */
+    public synchronized void setInteractive(boolean interactive) {
+        if (interactive && !this.interactive) {
+            lastRefreshElapsed = NEVER;
+        }
+        this.interactive = interactive;
+    }
+
+    /**
+     * Decide whether a tick should re-post the notification. The caller reports the post
+     * with {@link #recordRefresh}.
+     */
+    public synchronized boolean shouldRefresh(long remainingMs, long nowElapsed) {
+        if (interactive && (lastRefreshElapsed == NEVER
+                || nowElapsed - lastRefreshElapsed >= intervalFor(remainingMs))) {
+            return true;
+        }
+        skippedCount++;
+        return false;
+    }
+
+    /**
+     * Record a posted notification, including ones posted for state changes.
+     */
+    public synchronized void recordRefresh(long nowElapsed) {
+        lastRefreshElapsed = nowElapsed;
+        postedCount++;
+    }
+
+    public synchronized long getPostedCount() {
+        return postedCount;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+}
@@ -0,0 +1,207 @@
+package com.stanley.focusflow;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Computes occurrences of a {@link RecurrenceRule} in a time zone.
+ *
+ * Plain java.time with no Android dependencies, so it runs in JVM unit tests and
+ * benchmarks. Days are handled as epoch-day numbers and only converted to dates
+ * where month lengths or zone offsets are needed. Fixed-offset zones take an
+ * allocation-free path. Times that fall into a DST gap move forward by the gap length.
+ */
+public final class RecurrenceEngine {
+    public static final long NO_OCCURRENCE = -1;
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ZoneId zone;
+    private final ZoneOffset fixedOffset;
+
+    public RecurrenceEngine(ZoneId zone) {
+        this.zone = zone;
+        this.fixedOffset = zone.getRules().isFixedOffset()
+                ? zone.getRules().getOffset(Instant.EPOCH)
+                : null;
+    }
+
+    /**
+     * @return the first occurrence strictly after the given time, or {@link #NO_OCCURRENCE}
+     */
+    public long nextOccurrence(RecurrenceRule rule, long afterMillis) {
+        long[] next = new long[1];
+        return nextOccurrences(rule, afterMillis, next) == 1 ? next[0] : NO_OCCURRENCE;
+    }
+
+    /**
+     * Fill {@code out} with the next occurrences strictly after the given time, in order.
+     * @return the number of occurrences written, less than out.length only for rules that end
+     */
+    public int nextOccurrences(RecurrenceRule rule, long afterMillis, long[] out) {
+        return occurrencesThrough(rule, afterMillis, Long.MAX_VALUE, out);
+    }
+
+    /**
+     * Fill {@code out} with the occurrences strictly after {@code afterMillis}, in order,
+     * stopping after the first one later than {@code untilMillis} so a range is walked
+     * without computing occurrences past its end.
+     * @return the number of occurrences written
+     */
+    public int occurrencesThrough(RecurrenceRule rule, long afterMillis, long untilMillis, long[] out) {
+        if (out.length == 0) {
+            return 0;
+        }
+
+        long fromDay = Math.max(localEpochDay(afterMillis), rule.getStartEpochDay());
+        switch (rule.getFrequency()) {
+            case ONCE:
+                long time = toEpochMillis(rule.getStartEpochDay(), rule.getHour(), rule.getMinute());
+                if (time > afterMillis) {
+                    out[0] = time;
+                    return 1;
+                }
+                return 0;
+            case DAILY:
+                return daily(rule, afterMillis, untilMillis, fromDay, out);
+            case WEEKLY:
+                return weekly(rule, afterMillis, untilMillis, fromDay, out);
+            case MONTHLY:
+                return monthly(rule, afterMillis, untilMillis, fromDay, out);
+            default:
+                throw new IllegalArgumentException("Unknown frequency: " + rule.getFrequency());
+        }
+    }
+
+    /**
+     * @return the last millisecond of the local day containing the given time
+     */
+    public long endOfDay(long timeMillis) {
+        long nextDay = localEpochDay(timeMillis) + 1;
+        return toEpochMillis(nextDay, 0, 0) - 1;
+    }
+
+    /**
+     * @return the local date of the given time as an epoch day
+     */
+    public long localEpochDay(long timeMillis) {
+        int offsetSeconds = fixedOffset != null
+                ? fixedOffset.getTotalSeconds()
+                : zone.getRules().getOffset(Instant.ofEpochMilli(timeMillis)).getTotalSeconds();
+        return Math.floorDiv(Math.floorDiv(timeMillis, 1000) + offsetSeconds, SECONDS_PER_DAY);
+    }
+
+    /**
+     * @return the instant of the given local day and time of day
+     */
+    public long toEpochMillis(long epochDay, int hour, int minute) {
+        long localSeconds = epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L;
+        if (fixedOffset != null) {
+            return (localSeconds - fixedOffset.getTotalSeconds()) * 1000;
+        }
+        return LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC)
+                .atZone(zone)
+                .toEpochSecond() * 1000;
+    }
+
+    private int daily(RecurrenceRule rule, long afterMillis, long untilMillis, long fromDay,
+                      long[] out) {
+        int interval = rule.getInterval();
+        long day = fromDay + Math.floorMod(rule.getStartEpochDay() - fromDay, interval);
+        int count = 0;
+        while (count < out.length) {
+            long time = toEpochMillis(day, rule.getHour(), rule.getMinute());
+            if (time > afterMillis) {
+                out[count++] = time;
+                if (time > untilMillis) {
+                    break;
+                }
+            }
+            day += interval;
+        }
+        return count;
+    }
+
+    private int weekly(RecurrenceRule rule, long afterMillis, long untilMillis, long fromDay,
+                       long[] out) {
+        int interval = rule.getInterval();
+        long startDay = rule.getStartEpochDay();
+        int mask = rule.getDaysOfWeekMask();
+        if (mask == 0) {
+            mask = 1 << dayOfWeekIndex(startDay);
+        }
+        long startMonday = mondayOf(startDay);
+
+        long day = fromDay;
+        int count = 0;
+        while (count < out.length) {
+            long monday = mondayOf(day);
+            long weeksToSkip = Math.floorMod(startMonday - monday, (long) interval * 7) / 7;
+            if (weeksToSkip != 0) {
+                day = monday + weeksToSkip * 7;
+                continue;
+            }
+            if ((mask & (1 << dayOfWeekIndex(day))) != 0) {
+                long time = toEpochMillis(day, rule.getHour(), rule.getMinute());
+                if (time > afterMillis) {
+                    out[count++] = time;
+                    if (time > untilMillis) {
+                        break;
+                    }
+                }
+            }
+            day++;
+        }
+        return count;
+    }
+
+    private int monthly(RecurrenceRule rule, long afterMillis, long untilMillis, long fromDay,
+                        long[] out) {
+        int interval = rule.getInterval();
+        long startDay = rule.getStartEpochDay();
+        LocalDate start = LocalDate.ofEpochDay(startDay);
+        LocalDate from = LocalDate.ofEpochDay(fromDay);
+        int dayOfMonth = rule.getDayOfMonth() != 0 ? rule.getDayOfMonth() : start.getDayOfMonth();
+
+        long startMonth = start.getYear() * 12L + start.getMonthValue() - 1;
+        long month = from.getYear() * 12L + from.getMonthValue() - 1;
+        month += Math.floorMod(startMonth - month, interval);
+
+        int count = 0;
+        while (count < out.length) {
+            int year = (int) Math.floorDiv(month, 12);
+            int monthOfYear = Math.floorMod(month, 12) + 1;
+            int length = Month.of(monthOfYear).length(Year.isLeap(year));
+            int day = dayOfMonth == RecurrenceRule.LAST_DAY_OF_MONTH ? length : Math.min(dayOfMonth, length);
+
+            long epochDay = LocalDate.of(year, monthOfYear, day).toEpochDay();
+            if (epochDay >= startDay) {
+                long time = toEpochMillis(epochDay, rule.getHour(), rule.getMinute());
+                if (time > afterMillis) {
+                    out[count++] = time;
+                    if (time > untilMillis) {
+                        break;
+                    }
+                }
+            }
+            month += interval;
+        }
+        return count;
+    }
+
+    /**
+     * @return 0 for Monday through 6 for Sunday; epoch day 0 was a Thursday
+     */
+    private static int dayOfWeekIndex(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    private static long mondayOf(long epochDay) {
+        return epochDay - dayOfWeekIndex(epochDay);
+    }
+}
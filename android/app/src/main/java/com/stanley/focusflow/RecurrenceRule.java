@@ -0,0 +1,140 @@
+package com.stanley.focusflow;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * An RRULE-style recurrence: a frequency with an interval, a local time of day,
+ * an optional set of weekdays (weekly rules) and a day of month or last day of
+ * month (monthly rules), counted from a start date.
+ *
+ * Rules are immutable and carry no time zone; {@link RecurrenceEngine} resolves them.
+ */
+public final class RecurrenceRule {
+    public enum Frequency { ONCE, DAILY, WEEKLY, MONTHLY }
+
+    public static final int LAST_DAY_OF_MONTH = -1;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int hour;
+    private final int minute;
+    private final int daysOfWeekMask;
+    private final int dayOfMonth;
+    private final long startEpochDay;
+
+    private RecurrenceRule(Builder builder) {
+        this.frequency = builder.frequency;
+        this.interval = builder.interval;
+        this.hour = builder.hour;
+        this.minute = builder.minute;
+        this.daysOfWeekMask = builder.daysOfWeekMask;
+        this.dayOfMonth = builder.dayOfMonth;
+        this.startEpochDay = builder.startEpochDay;
+    }
+
+    public static Builder builder(Frequency frequency) {
+        return new Builder(frequency);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getHour() {
+        return hour;
+    }
+
+    public int getMinute() {
+        return minute;
+    }
+
+    /**
+     * @return weekdays of a weekly rule as a bit mask, bit 0 = Monday, or 0 to repeat
+     *         on the start date's weekday
+     */
+    public int getDaysOfWeekMask() {
+        return daysOfWeekMask;
+    }
+
+    /**
+     * @return 1-31 (clamped to shorter months), {@link #LAST_DAY_OF_MONTH}, or 0 to
+     *         repeat on the start date's day of month
+     */
+    public int getDayOfMonth() {
+        return dayOfMonth;
+    }
+
+    public long getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    public static final class Builder {
+        private final Frequency frequency;
+        private int interval = 1;
+        private int hour = 9;
+        private int minute = 0;
+        private int daysOfWeekMask = 0;
+        private int dayOfMonth = 0;
+        private long startEpochDay = 0;
+
+        private Builder(Frequency frequency) {
+            if (frequency == null) {
+                throw new IllegalArgumentException("Frequency is required");
+            }
+            this.frequency = frequency;
+        }
+
+        public Builder interval(int interval) {
+            if (interval < 1) {
+                throw new IllegalArgumentException("Interval must be at least 1: " + interval);
+            }
+            this.interval = interval;
+            return this;
+        }
+
+        public Builder at(int hour, int minute) {
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+                throw new IllegalArgumentException("Invalid time of day: " + hour + ":" + minute);
+            }
+            this.hour = hour;
+            this.minute = minute;
+            return this;
+        }
+
+        public Builder onDay(DayOfWeek day) {
+            daysOfWeekMask |= 1 << (day.getValue() - 1);
+            return this;
+        }
+
+        public Builder onDayOfMonth(int dayOfMonth) {
+            if (dayOfMonth < 1 || dayOfMonth > 31) {
+                throw new IllegalArgumentException("Invalid day of month: " + dayOfMonth);
+            }
+            this.dayOfMonth = dayOfMonth;
+            return this;
+        }
+
+        public Builder onLastDayOfMonth() {
+            this.dayOfMonth = LAST_DAY_OF_MONTH;
+            return this;
+        }
+
+        public Builder startingOn(LocalDate date) {
+            return startingOn(date.toEpochDay());
+        }
+
+        public Builder startingOn(long epochDay) {
+            this.startEpochDay = epochDay;
+            return this;
+        }
+
+        public RecurrenceRule build() {
+            return new RecurrenceRule(this);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.stanley.focusflow;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Translates the stored task JSON into {@link RecurrenceRule}s.
+ *
+ * Task JSON keeps the plugin's conventions: "recurrence" is once, daily, weekly or
+ * monthly, "interval" repeats every n days, weeks or months, and the "time" object
+ * holds hour, minute, dayOfWeek or daysOfWeek (1 = Sunday, 7 = Saturday), and
+ * dayOfMonth or lastDayOfMonth. "startDate" is the ISO date intervals count from.
+ * "catchUp" says what to show for occurrences missed while the device was off.
+ */
+public final class RecurrenceRules {
+    public static final String START_DATE_KEY = "startDate";
+    public static final String NEXT_DUE_DATE_KEY = "nextDueDate";
+    public static final String CATCH_UP_KEY = "catchUp";
+
+    private RecurrenceRules() {
+    }
+
+    /**
+     * @param defaultStart time whose local date is used when the task has no startDate,
+     *                     which is the case for tasks saved before intervals existed
+     */
+    public static RecurrenceRule fromTask(JSONObject taskObject, long defaultStart,
+                                          RecurrenceEngine engine) throws JSONException {
+        String recurrence = taskObject.optString("recurrence", "daily");
+        JSONObject time = taskObject.optJSONObject("time");
+        if (time == null) {
+            throw new JSONException("Missing time object in task JSON");
+        }
+
+        RecurrenceRule.Builder builder;
+        try {
+            builder = RecurrenceRule.builder(parseFrequency(recurrence))
+                    .interval(taskObject.optInt("interval", 1))
+                    .at(time.optInt("hour", 9), time.optInt("minute", 0));
+
+            JSONArray daysOfWeek = time.optJSONArray("daysOfWeek");
+            if (daysOfWeek != null) {
+                for (int i = 0; i < daysOfWeek.length(); i++) {
+                    builder.onDay(toDayOfWeek(daysOfWeek.getInt(i)));
+                }
+            } else if (time.has("dayOfWeek")) {
+                builder.onDay(toDayOfWeek(time.getInt("dayOfWeek")));
+            }
+
+            if (time.optBoolean("lastDayOfMonth", false)) {
+                builder.onLastDayOfMonth();
+            } else if (time.optInt("dayOfMonth", -1) != -1) {
+                builder.onDayOfMonth(time.getInt("dayOfMonth"));
+            }
+
+            String startDate = taskObject.optString(START_DATE_KEY, null);
+            builder.startingOn(startDate != null
+                    ? LocalDate.parse(startDate).toEpochDay()
+                    : engine.localEpochDay(defaultStart));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new JSONException("Invalid recurrence: " + e.getMessage());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compute the first occurrence of a stored task after the given time.
+     * @return the task with its updated nextDueDate, or null if it does not occur again
+     */
+    public static ScheduledTask nextOccurrence(ScheduledTask task, JSONObject taskObject, long after,
+                                               RecurrenceEngine engine) throws JSONException {
+        RecurrenceRule rule = fromTask(taskObject, task.getScheduledTime(), engine);
+        return withNextTime(task, taskObject, engine.nextOccurrence(rule, after));
+    }
+
+    /**
+     * @param nextTime the task's next occurrence, or {@link RecurrenceEngine#NO_OCCURRENCE}
+     * @return the task with its updated nextDueDate, or null if it does not occur again
+     */
+    public static ScheduledTask withNextTime(ScheduledTask task, JSONObject taskObject,
+                                             long nextTime) throws JSONException {
+        if (nextTime == RecurrenceEngine.NO_OCCURRENCE) {
+            return null;
+        }
+
+        taskObject.put(NEXT_DUE_DATE_KEY, nextTime);
+        return new ScheduledTask(task.getId(), taskObject.toString(), nextTime);
+    }
+
+    /**
+     * Read the task's "catchUp" setting: skip, once or summary, defaulting to summary.
+     */
+    public static CatchUpPlanner.Policy catchUpPolicy(JSONObject taskObject) throws JSONException {
+        String policy = taskObject.optString(CATCH_UP_KEY, "summary");
+        switch (policy) {
+            case "skip":
+                return CatchUpPlanner.Policy.SKIP;
+            case "once":
+                return CatchUpPlanner.Policy.FIRE_ONCE;
+            case "summary":
+                return CatchUpPlanner.Policy.SUMMARY;
+            default:
+                throw new JSONException("Unknown catch-up policy: " + policy);
+        }
+    }
+
+    private static RecurrenceRule.Frequency parseFrequency(String recurrence) throws JSONException {
+        switch (recurrence) {
+            case "once":
+                return RecurrenceRule.Frequency.ONCE;
+            case "daily":
+                return RecurrenceRule.Frequency.DAILY;
+            case "weekly":
+                return RecurrenceRule.Frequency.WEEKLY;
+            case "monthly":
+                return RecurrenceRule.Frequency.MONTHLY;
+            default:
+                throw new JSONException("Unknown recurrence pattern: " + recurrence);
+        }
+    }
+
+    /**
+     * Convert the plugin's Calendar-style day (1 = Sunday) to a DayOfWeek.
+     */
+    private static DayOfWeek toDayOfWeek(int calendarDay) throws JSONException {
+        if (calendarDay < 1 || calendarDay > 7) {
+            throw new JSONException("Invalid day of week: " + calendarDay);
+        }
+        return DayOfWeek.SUNDAY.plus(calendarDay - 1);
+    }
+}
@@ -1,6 +1,5 @@
 package com.stanley.focusflow;
 
-import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -8,70 +7,161 @@ import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
 import com.stanley.focusflow.R;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Calendar;
-import java.util.TimeZone;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class RecurringTaskReceiver extends BroadcastReceiver {
     private static final String TAG = "RecurringTaskReceiver";
     private static final String CHANNEL_ID = "recurring_task_channel";
+    private static final String CATCH_UP_GROUP = "recurring_task_catch_up";
+    public static final String ACTION_TASK_NOTIFICATION_SHOWN = "com.stanley.focusflow.TASK_NOTIFICATION_SHOWN";
+    private static final int CATCH_UP_NOTIFICATION_ID = 105;
+    // Lines listed in the catch-up summary before the rest are folded into a count
+    private static final int MAX_SUMMARY_LINES = 6;
+    
+    // Store reads, JSON parsing and alarm calls stay off the main thread. One worker keeps
+    // a delivery and a restore arriving together from interleaving their store writes.
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor();
     
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.d(TAG, "Received recurring task alarm: " + intent.getAction());
         
-        // Check if it's a recurring task notification
-        if (intent.getAction() != null && intent.getAction().equals("com.stanley.focusflow.RECURRING_TASK")) {
-            try {
-                // Get task details from intent
-                String taskId = intent.getStringExtra("TASK_ID");
-                String taskJson = intent.getStringExtra("TASK_JSON");
-                
-                if (taskId == null || taskJson == null) {
-                    Log.e(TAG, "Missing task ID or task JSON in intent");
-                    return;
+        final Context appContext = context.getApplicationContext();
+        // Check if it's the recurring task alarm
+        if (intent.getAction() != null && intent.getAction().equals(RecurringTaskScheduler.ACTION_RECURRING_TASK)) {
+            runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    deliverDueTasks(appContext);
                 }
-                
-                JSONObject taskObject = new JSONObject(taskJson);
-                String title = taskObject.optString("title", "Focus Task");
-                String body = taskObject.optString("body", "Time to focus on your task");
-                String recurrence = taskObject.optString("recurrence", "daily");
-                
-                // Show notification for the task
-                showTaskNotification(context, taskId, title, body);
-                
-                // Reschedule for next occurrence
-                if (!recurrence.equals("once")) {
-                    scheduleNextOccurrence(context, taskId, taskObject);
+            });
+        } else if (intent.getAction() != null && 
+                   (intent.getAction().equals("android.intent.action.BOOT_COMPLETED") || 
+                    intent.getAction().equals("android.intent.action.MY_PACKAGE_REPLACED"))) {
+            // Device was restarted or the app updated, restore the scheduled alarm
+            runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    restoreScheduledTasks(appContext);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Run the work on the worker thread, keeping the broadcast and so the process alive
+     * until it finishes.
+     */
+    private void runAsync(final Runnable work) {
+        final PendingResult pendingResult = goAsync();
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error handling recurring task broadcast", e);
+                } finally {
+                    pendingResult.finish();
                 }
-                
-                // Broadcast to app that notification was shown
-                Intent broadcastIntent = new Intent("com.stanley.focusflow.TASK_NOTIFICATION_SHOWN");
-                broadcastIntent.putExtra("TASK_ID", taskId);
-                broadcastIntent.putExtra("NOTIFICATION_TIME", System.currentTimeMillis());
-                context.sendBroadcast(broadcastIntent);
-                
-            } catch (JSONException e) {
-                Log.e(TAG, "Error parsing task JSON", e);
             }
-        } else if (intent.getAction() != null && intent.getAction().equals("android.intent.action.BOOT_COMPLETED")) {
-            // Device was restarted, restore all scheduled notifications
-            restoreScheduledTasks(context);
+        });
+    }
+    
+    /**
+     * Show every task that is due within the scheduler's coalescing window, queue their
+     * next occurrences and re-arm the single recurring task alarm.
+     */
+    private void deliverDueTasks(Context context) {
+        RecurringTaskScheduler scheduler;
+        try {
+            scheduler = RecurringTaskScheduler.get(context);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening scheduled tasks", e);
+            return;
+        }
+        
+        List<ScheduledTask> rescheduled = new ArrayList<>();
+        List<String> finished = new ArrayList<>();
+        List<String> shown = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try {
+            List<ScheduledTask> dueTasks = scheduler.takeDueTasks(now);
+            RecurrenceEngine engine = new RecurrenceEngine(ZoneId.systemDefault());
+            
+            for (ScheduledTask task : dueTasks) {
+                String taskId = task.getId();
+                try {
+                    JSONObject taskObject = new JSONObject(task.getJson());
+                    String title = taskObject.optString("title", "Focus Task");
+                    String body = taskObject.optString("body", "Time to focus on your task");
+                    
+                    // Show notification for the task
+                    showTaskNotification(context, taskId, title, body, null);
+                    shown.add(taskId);
+                    
+                    // Reschedule for next occurrence. Tasks can be delivered slightly early,
+                    // so step past the occurrence that was due rather than from now.
+                    ScheduledTask next = RecurrenceRules.nextOccurrence(
+                            task, taskObject, Math.max(now, task.getScheduledTime()), engine);
+                    if (next != null) {
+                        rescheduled.add(next);
+                    } else {
+                        finished.add(taskId);
+                    }
+                } catch (JSONException e) {
+                    Log.e(TAG, "Error parsing task JSON for " + taskId, e);
+                    finished.add(taskId);
+                }
+            }
+            
+            Log.d(TAG, "Delivered " + dueTasks.size() + " due tasks in one wakeup");
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading due tasks", e);
+        } finally {
+            try {
+                // Always re-arm, the alarm that woke us has been consumed
+                scheduler.complete(rescheduled, finished);
+            } catch (IOException e) {
+                Log.e(TAG, "Error re-arming recurring task alarm", e);
+            }
+            broadcastShown(context, shown, now);
         }
     }
     
-    private void showTaskNotification(Context context, String taskId, String title, String body) {
+    /**
+     * Tell the app which task notifications were shown, with one broadcast for all of them.
+     */
+    private void broadcastShown(Context context, List<String> taskIds, long now) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        Intent broadcastIntent = new Intent(ACTION_TASK_NOTIFICATION_SHOWN);
+        broadcastIntent.putExtra("TASK_IDS", taskIds.toArray(new String[0]));
+        broadcastIntent.putExtra("NOTIFICATION_TIME", now);
+        context.sendBroadcast(broadcastIntent);
+    }
+    
+    /**
+     * @param group notification group to post into, or null for none
+     */
+    private void showTaskNotification(Context context, String taskId, String title, String body, String group) {
         // Create notification channel for Android O and above
         createNotificationChannel(context);
         
@@ -112,6 +202,11 @@ public class RecurringTaskReceiver extends BroadcastReceiver {
                 .setAutoCancel(true)
                 .setVibrate(new long[]{0, 500, 1000}) // Add vibration pattern
                 .addAction(0, "Start Focus", startFocusPendingIntent);
+        if (group != null) {
+            // Only the group summary makes a sound, not each task in it
+            builder.setGroup(group)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+        }
         
         // Show notification
         NotificationManager notificationManager = 
@@ -124,108 +219,6 @@ public class RecurringTaskReceiver extends BroadcastReceiver {
         }
     }
     
-    private void scheduleNextOccurrence(Context context, String taskId, JSONObject taskObject) throws JSONException {
-        String recurrence = taskObject.optString("recurrence", "daily");
-        JSONObject time = taskObject.optJSONObject("time");
-        
-        if (time == null) {
-            Log.e(TAG, "Missing time object in task JSON");
-            return;
-        }
-        
-        int hour = time.optInt("hour", 9);
-        int minute = time.optInt("minute", 0);
-        int dayOfWeek = time.optInt("dayOfWeek", -1); // For weekly tasks
-        int dayOfMonth = time.optInt("dayOfMonth", -1); // For monthly tasks
-        
-        // Calculate next occurrence
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(System.currentTimeMillis());
-        calendar.setTimeZone(TimeZone.getDefault());
-        calendar.set(Calendar.HOUR_OF_DAY, hour);
-        calendar.set(Calendar.MINUTE, minute);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        
-        // Set the specific day of week for weekly tasks
-        if (recurrence.equals("weekly") && dayOfWeek != -1) {
-            int currentDayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-            if (dayOfWeek == currentDayOfWeek && calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-                // If it's the same day but the time has passed, schedule for next week
-                calendar.add(Calendar.WEEK_OF_YEAR, 1);
-            } else if (dayOfWeek != currentDayOfWeek) {
-                // Move to the specified day this week
-                calendar.set(Calendar.DAY_OF_WEEK, dayOfWeek);
-                // If the day has already passed this week, move to next week
-                if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-                    calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                }
-            }
-        }
-        // Set the specific day of month for monthly tasks
-        else if (recurrence.equals("monthly") && dayOfMonth != -1) {
-            calendar.set(Calendar.DAY_OF_MONTH, Math.min(dayOfMonth, calendar.getActualMaximum(Calendar.DAY_OF_MONTH)));
-            // If the day has already passed this month, move to next month
-            if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-                calendar.add(Calendar.MONTH, 1);
-                // Adjust for months with fewer days
-                calendar.set(Calendar.DAY_OF_MONTH, Math.min(dayOfMonth, calendar.getActualMaximum(Calendar.DAY_OF_MONTH)));
-            }
-        }
-        // For daily or if time has already passed today
-        else if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-            switch (recurrence) {
-                case "daily":
-                    calendar.add(Calendar.DAY_OF_YEAR, 1);
-                    break;
-                case "weekly":
-                    calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                    break;
-                case "monthly":
-                    calendar.add(Calendar.MONTH, 1);
-                    break;
-                default:
-                    // One-time notifications don't need to be rescheduled
-                    return;
-            }
-        }
-        
-        long nextTime = calendar.getTimeInMillis();
-        
-        // Update nextDueDate in the task object
-        taskObject.put("nextDueDate", nextTime);
-        
-        // Create intent for alarm
-        Intent intent = new Intent(context, RecurringTaskReceiver.class);
-        intent.setAction("com.stanley.focusflow.RECURRING_TASK");
-        intent.putExtra("TASK_ID", taskId);
-        intent.putExtra("TASK_JSON", taskObject.toString());
-        
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                taskId.hashCode(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        
-        // Get alarm manager and set exact alarm
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, nextTime, pendingIntent);
-            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, nextTime, pendingIntent);
-            } else {
-                alarmManager.set(AlarmManager.RTC_WAKEUP, nextTime, pendingIntent);
-            }
-            
-            Log.d(TAG, "Scheduled next occurrence of task " + taskId + " at " + calendar.getTime().toString());
-            
-            // Store this scheduled task in shared preferences
-            saveScheduledTask(context, taskId, taskObject.toString(), nextTime);
-        }
-    }
-    
     private void createNotificationChannel(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -246,101 +239,129 @@ public class RecurringTaskReceiver extends BroadcastReceiver {
         }
     }
     
-    private void saveScheduledTask(Context context, String taskId, String taskJson, long scheduledTime) {
-        SharedPreferences prefs = context.getSharedPreferences("RecurringTasks", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        
-        try {
-            // Get existing scheduled tasks
-            String tasksJson = prefs.getString("scheduledTasks", "[]");
-            JSONArray tasksArray = new JSONArray(tasksJson);
-            
-            // Look for existing task with same ID
-            boolean found = false;
-            for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject task = tasksArray.getJSONObject(i);
-                if (task.getString("id").equals(taskId)) {
-                    // Update existing task
-                    task.put("json", taskJson);
-                    task.put("scheduledTime", scheduledTime);
-                    tasksArray.put(i, task);
-                    found = true;
-                    break;
-                }
-            }
-            
-            // Add new task if not found
-            if (!found) {
-                JSONObject newTask = new JSONObject();
-                newTask.put("id", taskId);
-                newTask.put("json", taskJson);
-                newTask.put("scheduledTime", scheduledTime);
-                tasksArray.put(newTask);
-            }
-            
-            // Save updated tasks
-            editor.putString("scheduledTasks", tasksArray.toString());
-            editor.apply();
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Error saving scheduled task", e);
-        }
-    }
-    
+    /**
+     * Move every task whose occurrence passed while the device was off on to its next one,
+     * with one store write for all of them, and re-arm the alarm. What was missed is shown
+     * according to each task's catch-up policy, grouped under one summary notification.
+     * Only the first {@link #MAX_SUMMARY_LINES} "once" tasks get a notification of their
+     * own; the summary lists the rest.
+     */
     private void restoreScheduledTasks(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("RecurringTasks", Context.MODE_PRIVATE);
-        
+        long startElapsed = SystemClock.elapsedRealtime();
         try {
-            // Get stored tasks
-            String tasksJson = prefs.getString("scheduledTasks", "[]");
-            JSONArray tasksArray = new JSONArray(tasksJson);
-            
             // Current time
             long now = System.currentTimeMillis();
             
-            // Reschedule each task
-            for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject storedTask = tasksArray.getJSONObject(i);
-                String taskId = storedTask.getString("id");
-                String taskJson = storedTask.getString("json");
-                long scheduledTime = storedTask.getLong("scheduledTime");
-                
-                JSONObject taskObject = new JSONObject(taskJson);
+            List<ScheduledTask> storedTasks = ScheduledTaskStores.get(context).getAll();
+            RecurrenceEngine engine = new RecurrenceEngine(ZoneId.systemDefault());
+            CatchUpPlanner planner = new CatchUpPlanner(engine);
+            List<ScheduledTask> rescheduled = new ArrayList<>();
+            List<String> finished = new ArrayList<>();
+            List<String> summaryLines = new ArrayList<>();
+            List<String> shown = new ArrayList<>();
+            int missedTasks = 0;
+            int missedOccurrences = 0;
+            
+            // Tasks still in the future are covered by the single alarm; past ones missed
+            // at least one occurrence
+            for (ScheduledTask storedTask : storedTasks) {
+                if (storedTask.getScheduledTime() > now) {
+                    continue;
+                }
                 
-                // If scheduled time is in the past, calculate next occurrence
-                if (scheduledTime <= now) {
-                    scheduleNextOccurrence(context, taskId, taskObject);
-                } else {
-                    // Original time is still in the future, reschedule at the same time
-                    Intent intent = new Intent(context, RecurringTaskReceiver.class);
-                    intent.setAction("com.stanley.focusflow.RECURRING_TASK");
-                    intent.putExtra("TASK_ID", taskId);
-                    intent.putExtra("TASK_JSON", taskJson);
-                    
-                    PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                            context,
-                            taskId.hashCode(),
-                            intent,
-                            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                    );
+                String taskId = storedTask.getId();
+                try {
+                    JSONObject taskObject = new JSONObject(storedTask.getJson());
+                    RecurrenceRule rule = RecurrenceRules.fromTask(taskObject, storedTask.getScheduledTime(), engine);
+                    CatchUpPlanner.Result missed = planner.plan(rule, storedTask.getScheduledTime(), now);
+                    CatchUpPlanner.Policy policy = RecurrenceRules.catchUpPolicy(taskObject);
+                    String title = taskObject.optString("title", "Focus Task");
                     
-                    AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-                    if (alarmManager != null) {
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, scheduledTime, pendingIntent);
-                        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                            alarmManager.setExact(AlarmManager.RTC_WAKEUP, scheduledTime, pendingIntent);
-                        } else {
-                            alarmManager.set(AlarmManager.RTC_WAKEUP, scheduledTime, pendingIntent);
+                    if (policy == CatchUpPlanner.Policy.FIRE_ONCE) {
+                        if (shown.size() < MAX_SUMMARY_LINES) {
+                            showTaskNotification(context, taskId, title,
+                                    taskObject.optString("body", "Time to focus on your task"), CATCH_UP_GROUP);
                         }
-                        
-                        Log.d(TAG, "Restored task " + taskId + " scheduled for " + new java.util.Date(scheduledTime).toString());
+                        shown.add(taskId);
+                    }
+                    if (policy != CatchUpPlanner.Policy.SKIP) {
+                        missedTasks++;
+                        missedOccurrences += missed.getMissedCount();
+                        summaryLines.add(missed.getMissedCount() == 1
+                                ? title
+                                : title + " (missed " + missed.getMissedCount() + " times)");
                     }
+                    
+                    ScheduledTask next = RecurrenceRules.withNextTime(storedTask, taskObject, missed.getNextTime());
+                    if (next != null) {
+                        rescheduled.add(next);
+                    } else {
+                        finished.add(taskId);
+                    }
+                } catch (JSONException e) {
+                    Log.e(TAG, "Error parsing task JSON for " + taskId, e);
+                    finished.add(taskId);
                 }
             }
             
-        } catch (JSONException e) {
+            RecurringTaskScheduler.get(context).complete(rescheduled, finished);
+            if (missedTasks > 0) {
+                showCatchUpSummary(context, summaryLines, missedTasks, missedOccurrences);
+            }
+            broadcastShown(context, shown, now);
+            Log.d(TAG, "Restored " + storedTasks.size() + " tasks, " + rescheduled.size() + " moved to their next occurrence, "
+                    + finished.size() + " finished, " + missedOccurrences + " missed occurrences shown, in "
+                    + (SystemClock.elapsedRealtime() - startElapsed) + " ms");
+            
+        } catch (IOException e) {
             Log.e(TAG, "Error restoring scheduled tasks", e);
         }
     }
+    
+    /**
+     * Post the summary of the catch-up group, which on Android 7 and later also collapses
+     * the individual catch-up notifications beneath it.
+     */
+    private void showCatchUpSummary(Context context, List<String> lines, int missedTasks, int missedOccurrences) {
+        createNotificationChannel(context);
+        
+        Intent notificationIntent = new Intent(context, MainActivity.class);
+        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context,
+                CATCH_UP_NOTIFICATION_ID,
+                notificationIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        
+        String text = missedTasks == 1
+                ? missedOccurrences + (missedOccurrences == 1 ? " reminder" : " reminders") + " missed"
+                : missedOccurrences + " reminders missed across " + missedTasks + " tasks";
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                .setBigContentTitle("Missed while your device was off");
+        for (int i = 0; i < lines.size() && i < MAX_SUMMARY_LINES; i++) {
+            style.addLine(lines.get(i));
+        }
+        if (lines.size() > MAX_SUMMARY_LINES) {
+            style.setSummaryText("+" + (lines.size() - MAX_SUMMARY_LINES) + " more");
+        }
+        
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_focus_brain)
+                .setContentTitle("Missed while your device was off")
+                .setContentText(text)
+                .setStyle(style)
+                .setNumber(missedTasks)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setContentIntent(pendingIntent)
+                .setAutoCancel(true)
+                .setGroup(CATCH_UP_GROUP)
+                .setGroupSummary(true);
+        
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager != null) {
+            notificationManager.notify(CATCH_UP_NOTIFICATION_ID, builder.build());
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package com.stanley.focusflow;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Keeps every upcoming recurring task occurrence in a {@link TaskAlarmQueue} backed by
+ * the {@link ScheduledTaskStore} and arms one exact alarm for the earliest of them.
+ *
+ * When that alarm fires, RecurringTaskReceiver takes every task due within
+ * {@link #COALESCE_WINDOW_MS} in a single wakeup, hands back their next occurrences
+ * through {@link #complete} and the alarm is re-armed for the new head of the queue.
+ *
+ * The plugin and the receiver live in different processes, so the queue is rebuilt
+ * from the store whenever the store's version shows a write this instance did not make.
+ */
+public final class RecurringTaskScheduler {
+    private static final String TAG = "RecurringTaskScheduler";
+    public static final String ACTION_RECURRING_TASK = "com.stanley.focusflow.RECURRING_TASK";
+    public static final long COALESCE_WINDOW_MS = 60 * 1000;
+    private static final long NOT_ARMED = -1;
+
+    private static RecurringTaskScheduler instance;
+
+    private final Context context;
+    private final ScheduledTaskStore store;
+    private final TaskAlarmQueue queue = new TaskAlarmQueue();
+    private long syncedVersion = -1;
+    private long armedTime = NOT_ARMED;
+
+    private RecurringTaskScheduler(Context context, ScheduledTaskStore store) {
+        this.context = context;
+        this.store = store;
+    }
+
+    public static synchronized RecurringTaskScheduler get(Context context) throws IOException {
+        if (instance == null) {
+            instance = new RecurringTaskScheduler(
+                    context.getApplicationContext(), ScheduledTaskStores.get(context));
+        }
+        return instance;
+    }
+
+    public synchronized void schedule(ScheduledTask task) throws IOException {
+        scheduleAll(Collections.singletonList(task));
+    }
+
+    /**
+     * Persist the tasks with one store write and re-arm the alarm if the earliest
+     * occurrence changed.
+     */
+    public synchronized void scheduleAll(Collection<ScheduledTask> tasks) throws IOException {
+        sync();
+        writeTasks(tasks);
+        armFor(queue.peekTime());
+    }
+
+    public synchronized boolean cancel(String taskId) throws IOException {
+        return cancelAll(Collections.singletonList(taskId)) > 0;
+    }
+
+    /**
+     * @return the number of tasks that were scheduled
+     */
+    public synchronized int cancelAll(Collection<String> taskIds) throws IOException {
+        sync();
+        int removed = removeTasks(taskIds);
+        armFor(queue.peekTime());
+        return removed;
+    }
+
+    /**
+     * Take every task due at or before now plus the coalescing window. The caller must
+     * follow up with {@link #complete}, which re-arms the alarm.
+     */
+    public synchronized List<ScheduledTask> takeDueTasks(long now) throws IOException {
+        sync();
+        List<String> dueIds = queue.pollDue(now + COALESCE_WINDOW_MS);
+        List<ScheduledTask> dueTasks = new ArrayList<>(dueIds.size());
+        for (String taskId : dueIds) {
+            ScheduledTask task = store.get(taskId);
+            if (task != null) {
+                dueTasks.add(task);
+            }
+        }
+        return dueTasks;
+    }
+
+    /**
+     * Record the outcome of delivered or restored tasks and arm the alarm for the new
+     * head of the queue, even if it did not change, since the previous alarm was consumed.
+     * @param rescheduled tasks with their next occurrence
+     * @param finished ids of tasks that will not occur again
+     */
+    public synchronized void complete(Collection<ScheduledTask> rescheduled,
+                                      Collection<String> finished) throws IOException {
+        sync();
+        writeTasks(rescheduled);
+        removeTasks(finished);
+        armedTime = NOT_ARMED;
+        armFor(queue.peekTime());
+    }
+
+    /**
+     * Arm the alarm for the earliest stored occurrence.
+     */
+    public synchronized void rearm() throws IOException {
+        sync();
+        armedTime = NOT_ARMED;
+        armFor(queue.peekTime());
+    }
+
+    private void sync() throws IOException {
+        long version = store.getVersion();
+        if (version != syncedVersion) {
+            queue.reset(store.getScheduledTimes());
+            syncedVersion = version;
+            // Another process may have armed a different head
+            armedTime = NOT_ARMED;
+        }
+    }
+
+    private void writeTasks(Collection<ScheduledTask> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        store.putAll(tasks);
+        for (ScheduledTask task : tasks) {
+            queue.schedule(task.getId(), task.getScheduledTime());
+        }
+        // Each put advances the version by one, anything more came from elsewhere
+        trackVersion(tasks.size());
+    }
+
+    private int removeTasks(Collection<String> taskIds) throws IOException {
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        Collection<String> uniqueIds = new LinkedHashSet<>(taskIds);
+        int removed = store.removeAll(uniqueIds);
+        for (String taskId : uniqueIds) {
+            queue.cancel(taskId);
+        }
+        trackVersion(removed);
+        return removed;
+    }
+
+    private void trackVersion(int expectedChanges) throws IOException {
+        long expected = syncedVersion + expectedChanges;
+        if (store.getVersion() == expected) {
+            syncedVersion = expected;
+        } else {
+            sync();
+        }
+    }
+
+    private void armFor(long triggerTime) {
+        if (triggerTime == armedTime) {
+            return;
+        }
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            Log.e(TAG, "Could not access AlarmManager");
+            return;
+        }
+
+        Intent intent = new Intent(context, RecurringTaskReceiver.class);
+        intent.setAction(ACTION_RECURRING_TASK);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                0,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        if (triggerTime == Long.MAX_VALUE) {
+            alarmManager.cancel(pendingIntent);
+            Log.d(TAG, "No recurring tasks scheduled, alarm cancelled");
+        } else {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+            } else {
+                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+            }
+            Log.d(TAG, "Armed recurring task alarm for " + new java.util.Date(triggerTime)
+                    + " (" + queue.size() + " tasks queued)");
+        }
+        armedTime = triggerTime;
+    }
+}
@@ -1,13 +1,9 @@
 package com.stanley.focusflow;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
-import android.os.Build;
 import android.util.Log;
 
 import com.getcapacitor.JSObject;
@@ -17,12 +13,14 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Calendar;
-import java.util.TimeZone;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 
 @CapacitorPlugin(name = "RecurringTasks")
 public class RecurringTasksPlugin extends Plugin {
@@ -40,145 +38,240 @@ public class RecurringTasksPlugin extends Plugin {
             @Override
             public void onReceive(Context context, Intent intent) {
                 if (intent.getAction() != null && 
-                    intent.getAction().equals("com.stanley.focusflow.TASK_NOTIFICATION_SHOWN")) {
-                    String taskId = intent.getStringExtra("TASK_ID");
+                    intent.getAction().equals(RecurringTaskReceiver.ACTION_TASK_NOTIFICATION_SHOWN)) {
+                    // One broadcast carries every task shown in the same wakeup
+                    String[] taskIds = intent.getStringArrayExtra("TASK_IDS");
                     long notificationTime = intent.getLongExtra("NOTIFICATION_TIME", 0);
                     
-                    if (taskId != null) {
-                        JSObject data = new JSObject();
-                        data.put("taskId", taskId);
-                        data.put("timestamp", notificationTime);
-                        notifyListeners("taskNotificationShown", data);
+                    if (taskIds != null) {
+                        for (String taskId : taskIds) {
+                            JSObject data = new JSObject();
+                            data.put("taskId", taskId);
+                            data.put("timestamp", notificationTime);
+                            notifyListeners("taskNotificationShown", data);
+                        }
                     }
                 }
             }
         };
 
-        IntentFilter filter = new IntentFilter("com.stanley.focusflow.TASK_NOTIFICATION_SHOWN");
+        IntentFilter filter = new IntentFilter(RecurringTaskReceiver.ACTION_TASK_NOTIFICATION_SHOWN);
         getContext().registerReceiver(notificationReceiver, filter);
     }
 
     @PluginMethod
     public void scheduleRecurringTask(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("RecurringTasksPlugin.scheduleRecurringTask");
+        long startNanos = methodTimer.start();
         try {
-            String taskId = call.getString("taskId");
-            String title = call.getString("title", "Focus Task");
-            String body = call.getString("body", "Time to focus on your task");
-            String recurrence = call.getString("recurrence", "daily"); // daily, weekly, monthly
-            
-            JSObject timeObject = call.getObject("time");
-            if (timeObject == null) {
+            if (call.getObject("time") == null) {
                 call.reject("Time object is required");
                 return;
             }
             
-            int hour = timeObject.has("hour") ? timeObject.getInt("hour") : 9;
-            int minute = timeObject.has("minute") ? timeObject.getInt("minute") : 0;
-            
-            // Optional parameters for weekly and monthly recurrence
-            int dayOfWeek = timeObject.has("dayOfWeek") ? timeObject.getInt("dayOfWeek") : -1; // 1 = Sunday, 7 = Saturday
-            int dayOfMonth = timeObject.has("dayOfMonth") ? timeObject.getInt("dayOfMonth") : -1; // 1-31
-            
-            // Create a JSON object to store the task details
-            JSONObject taskObject = new JSONObject();
-            taskObject.put("taskId", taskId);
-            taskObject.put("title", title);
-            taskObject.put("body", body);
-            taskObject.put("recurrence", recurrence);
+            // Persist the task and re-arm the shared alarm if it is now the earliest
+            ScheduledTask task = buildScheduledTask(call.getData(), System.currentTimeMillis());
+            RecurringTaskScheduler.get(getContext()).schedule(task);
             
-            JSONObject timeJson = new JSONObject();
-            timeJson.put("hour", hour);
-            timeJson.put("minute", minute);
+            // Return success with next trigger time
+            JSObject result = new JSObject();
+            result.put("success", true);
+            result.put("taskId", task.getId());
+            result.put("nextTriggerTime", task.getScheduledTime());
+            call.resolve(result);
             
-            if (dayOfWeek != -1) {
-                timeJson.put("dayOfWeek", dayOfWeek);
-            }
-            
-            if (dayOfMonth != -1) {
-                timeJson.put("dayOfMonth", dayOfMonth);
+            Log.d(TAG, "Scheduled recurring task " + task.getId() + " for " + new java.util.Date(task.getScheduledTime()));
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, "Error scheduling recurring task", e);
+            call.reject("Error scheduling recurring task: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Schedule many recurring tasks in one bridge call. Trigger times are computed in a
+     * single pass and all tasks are persisted with one store write. Invalid specs are
+     * reported in the per-task results instead of failing the whole batch.
+     * @param call Plugin call containing a "tasks" array of scheduleRecurringTask options
+     */
+    @PluginMethod
+    public void scheduleRecurringTasks(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("RecurringTasksPlugin.scheduleRecurringTasks");
+        long startNanos = methodTimer.start();
+        try {
+            JSArray specs = call.getArray("tasks");
+            if (specs == null) {
+                call.reject("Tasks array is required");
+                return;
             }
             
-            taskObject.put("time", timeJson);
-            
-            // Calculate first occurrence
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTimeInMillis(System.currentTimeMillis());
-            calendar.setTimeZone(TimeZone.getDefault());
-            calendar.set(Calendar.HOUR_OF_DAY, hour);
-            calendar.set(Calendar.MINUTE, minute);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
+            long now = System.currentTimeMillis();
+            List<ScheduledTask> tasks = new ArrayList<>(specs.length());
+            JSArray results = new JSArray();
             
-            // If weekly, set to specific day of week
-            if (recurrence.equals("weekly") && dayOfWeek != -1) {
-                calendar.set(Calendar.DAY_OF_WEEK, dayOfWeek);
-                // If the day has already passed this week, move to next week
-                if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-                    calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                }
-            } 
-            // If monthly, set to specific day of month
-            else if (recurrence.equals("monthly") && dayOfMonth != -1) {
-                calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-                // If the day has already passed this month, move to next month
-                if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-                    calendar.add(Calendar.MONTH, 1);
+            for (int i = 0; i < specs.length(); i++) {
+                JSObject result = new JSObject();
+                JSONObject spec = specs.optJSONObject(i);
+                try {
+                    if (spec == null) {
+                        throw new JSONException("Task spec must be an object");
+                    }
+                    if (spec.optJSONObject("time") == null) {
+                        throw new JSONException("Time object is required");
+                    }
+                    
+                    ScheduledTask task = buildScheduledTask(spec, now);
+                    tasks.add(task);
+                    result.put("taskId", task.getId());
+                    result.put("success", true);
+                    result.put("nextTriggerTime", task.getScheduledTime());
+                } catch (JSONException e) {
+                    result.put("taskId", spec != null ? spec.optString("taskId", null) : null);
+                    result.put("success", false);
+                    result.put("error", e.getMessage());
                 }
-            }
-            // For daily or if time has passed today
-            else if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-                calendar.add(Calendar.DAY_OF_YEAR, 1);
+                results.put(result);
             }
             
-            long triggerTime = calendar.getTimeInMillis();
+            try {
+                // One store write for the whole batch and at most one alarm update
+                RecurringTaskScheduler.get(getContext()).scheduleAll(tasks);
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving scheduled tasks", e);
+                call.reject("Error saving scheduled tasks: " + e.getMessage());
+                return;
+            }
             
-            // Create intent for the alarm
-            Intent intent = new Intent(getContext(), RecurringTaskReceiver.class);
-            intent.setAction("com.stanley.focusflow.RECURRING_TASK");
-            intent.putExtra("TASK_ID", taskId);
-            intent.putExtra("TASK_JSON", taskObject.toString());
+            JSObject response = new JSObject();
+            response.put("success", true);
+            response.put("scheduled", tasks.size());
+            response.put("results", results);
+            call.resolve(response);
             
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    getContext(),
-                    taskId.hashCode(),
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
+            Log.d(TAG, "Scheduled " + tasks.size() + " of " + specs.length() + " recurring tasks");
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Cancel many recurring tasks in one bridge call with a single store write.
+     * @param call Plugin call containing a "taskIds" array
+     */
+    @PluginMethod
+    public void cancelRecurringTasks(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("RecurringTasksPlugin.cancelRecurringTasks");
+        long startNanos = methodTimer.start();
+        try {
+            JSArray taskIdsArray = call.getArray("taskIds");
+            if (taskIdsArray == null) {
+                call.reject("Task IDs array is required");
+                return;
+            }
             
-            // Schedule the alarm
-            AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-            if (alarmManager != null) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
-                } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                    alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+            List<String> taskIds = new ArrayList<>(taskIdsArray.length());
+            JSArray results = new JSArray();
+            for (int i = 0; i < taskIdsArray.length(); i++) {
+                String taskId = taskIdsArray.optString(i, null);
+                JSObject result = new JSObject();
+                result.put("taskId", taskId);
+                if (taskId == null) {
+                    result.put("success", false);
+                    result.put("error", "Task ID is required");
                 } else {
-                    alarmManager.set(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+                    taskIds.add(taskId);
+                    result.put("success", true);
                 }
+                results.put(result);
+            }
+            
+            try {
+                int removed = RecurringTaskScheduler.get(getContext()).cancelAll(taskIds);
                 
-                // Save this task to preferences for restoration after device reboot
-                saveScheduledTask(taskId, taskObject.toString(), triggerTime);
-                
-                // Return success with next trigger time
-                JSObject result = new JSObject();
-                result.put("success", true);
-                result.put("taskId", taskId);
-                result.put("nextTriggerTime", triggerTime);
-                call.resolve(result);
+                JSObject response = new JSObject();
+                response.put("success", true);
+                response.put("cancelled", removed);
+                response.put("results", results);
+                call.resolve(response);
                 
-                Log.d(TAG, "Scheduled recurring task " + taskId + " for " + calendar.getTime().toString());
-            } else {
-                call.reject("Could not access AlarmManager");
+                Log.d(TAG, "Cancelled " + removed + " recurring tasks");
+            } catch (IOException e) {
+                Log.e(TAG, "Error cancelling recurring tasks", e);
+                call.reject("Error cancelling recurring tasks: " + e.getMessage());
             }
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Error scheduling recurring task", e);
-            call.reject("Error scheduling recurring task: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
+    /**
+     * Build the stored form of a task from scheduleRecurringTask options and compute
+     * its first occurrence after the given time.
+     */
+    private ScheduledTask buildScheduledTask(JSONObject spec, long now) throws JSONException {
+        String taskId = spec.optString("taskId", null);
+        if (taskId == null) {
+            throw new JSONException("Task ID is required");
+        }
+        String title = spec.optString("title", "Focus Task");
+        String body = spec.optString("body", "Time to focus on your task");
+        String recurrence = spec.optString("recurrence", "daily"); // once, daily, weekly, monthly
+        
+        JSONObject timeObject = spec.getJSONObject("time");
+        int hour = timeObject.has("hour") ? timeObject.getInt("hour") : 9;
+        int minute = timeObject.has("minute") ? timeObject.getInt("minute") : 0;
+        
+        // Create a JSON object to store the task details
+        JSONObject taskObject = new JSONObject();
+        taskObject.put("taskId", taskId);
+        taskObject.put("title", title);
+        taskObject.put("body", body);
+        taskObject.put("recurrence", recurrence);
+        if (spec.has("interval")) {
+            taskObject.put("interval", spec.getInt("interval"));
+        }
+        if (spec.has(RecurrenceRules.CATCH_UP_KEY)) {
+            taskObject.put(RecurrenceRules.CATCH_UP_KEY, spec.getString(RecurrenceRules.CATCH_UP_KEY));
+            // Reject an unknown policy now rather than when the task is restored
+            RecurrenceRules.catchUpPolicy(taskObject);
+        }
+        
+        JSONObject timeJson = new JSONObject();
+        timeJson.put("hour", hour);
+        timeJson.put("minute", minute);
+        
+        // Optional parameters for weekly and monthly recurrence, days are 1 = Sunday, 7 = Saturday
+        for (String key : new String[]{"dayOfWeek", "daysOfWeek", "dayOfMonth", "lastDayOfMonth"}) {
+            if (timeObject.has(key)) {
+                timeJson.put(key, timeObject.get(key));
+            }
+        }
+        
+        taskObject.put("time", timeJson);
+        
+        // Intervals count from today; a one-off task whose time has passed moves to tomorrow
+        RecurrenceEngine engine = new RecurrenceEngine(ZoneId.systemDefault());
+        long startDay = engine.localEpochDay(now);
+        if (recurrence.equals("once") && engine.toEpochMillis(startDay, hour, minute) <= now) {
+            startDay++;
+        }
+        taskObject.put(RecurrenceRules.START_DATE_KEY, LocalDate.ofEpochDay(startDay).toString());
+        
+        // Calculate first occurrence
+        RecurrenceRule rule = RecurrenceRules.fromTask(taskObject, now, engine);
+        long firstTime = engine.nextOccurrence(rule, now);
+        if (firstTime == RecurrenceEngine.NO_OCCURRENCE) {
+            throw new JSONException("Task has no upcoming occurrence");
+        }
+        
+        return new ScheduledTask(taskId, taskObject.toString(), firstTime);
+    }
+
     @PluginMethod
     public void cancelRecurringTask(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("RecurringTasksPlugin.cancelRecurringTask");
+        long startNanos = methodTimer.start();
         try {
             String taskId = call.getString("taskId");
             if (taskId == null) {
@@ -186,62 +279,41 @@ public class RecurringTasksPlugin extends Plugin {
                 return;
             }
             
-            // Cancel the pending intent
-            Intent intent = new Intent(getContext(), RecurringTaskReceiver.class);
-            intent.setAction("com.stanley.focusflow.RECURRING_TASK");
+            // Remove from saved tasks and re-arm the shared alarm if this was the earliest
+            RecurringTaskScheduler.get(getContext()).cancel(taskId);
             
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    getContext(),
-                    taskId.hashCode(),
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
+            JSObject result = new JSObject();
+            result.put("success", true);
+            result.put("taskId", taskId);
+            call.resolve(result);
             
-            AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-            if (alarmManager != null) {
-                alarmManager.cancel(pendingIntent);
-                pendingIntent.cancel();
-                
-                // Remove from saved tasks
-                removeScheduledTask(taskId);
-                
-                JSObject result = new JSObject();
-                result.put("success", true);
-                result.put("taskId", taskId);
-                call.resolve(result);
-                
-                Log.d(TAG, "Cancelled recurring task " + taskId);
-            } else {
-                call.reject("Could not access AlarmManager");
-            }
+            Log.d(TAG, "Cancelled recurring task " + taskId);
             
         } catch (Exception e) {
             Log.e(TAG, "Error cancelling recurring task", e);
             call.reject("Error cancelling recurring task: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
     @PluginMethod
     public void getScheduledTasks(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("RecurringTasksPlugin.getScheduledTasks");
+        long startNanos = methodTimer.start();
         try {
-            SharedPreferences prefs = getContext().getSharedPreferences("RecurringTasks", Context.MODE_PRIVATE);
-            String tasksJson = prefs.getString("scheduledTasks", "[]");
-            JSONArray tasksArray = new JSONArray(tasksJson);
-            
             JSArray result = new JSArray();
             long now = System.currentTimeMillis();
             
-            for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject task = tasksArray.getJSONObject(i);
-                String taskJson = task.getString("json");
-                long scheduledTime = task.getLong("scheduledTime");
+            for (ScheduledTask task : ScheduledTaskStores.get(getContext()).getAll()) {
+                long scheduledTime = task.getScheduledTime();
                 
                 // Only include future tasks
                 if (scheduledTime >= now) {
-                    JSONObject taskObject = new JSONObject(taskJson);
+                    JSONObject taskObject = new JSONObject(task.getJson());
                     
                     JSObject jsTask = new JSObject();
-                    jsTask.put("taskId", task.getString("id"));
+                    jsTask.put("taskId", task.getId());
                     jsTask.put("title", taskObject.optString("title", "Focus Task"));
                     jsTask.put("body", taskObject.optString("body", "Time to focus on your task"));
                     jsTask.put("recurrence", taskObject.optString("recurrence", "daily"));
@@ -255,77 +327,11 @@ public class RecurringTasksPlugin extends Plugin {
             response.put("tasks", result);
             call.resolve(response);
             
-        } catch (JSONException e) {
+        } catch (JSONException | IOException e) {
             Log.e(TAG, "Error getting scheduled tasks", e);
             call.reject("Error getting scheduled tasks: " + e.getMessage());
-        }
-    }
-
-    private void saveScheduledTask(String taskId, String taskJson, long scheduledTime) {
-        SharedPreferences prefs = getContext().getSharedPreferences("RecurringTasks", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        
-        try {
-            // Get existing scheduled tasks
-            String tasksJson = prefs.getString("scheduledTasks", "[]");
-            JSONArray tasksArray = new JSONArray(tasksJson);
-            
-            // Look for existing task with same ID
-            boolean found = false;
-            for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject task = tasksArray.getJSONObject(i);
-                if (task.getString("id").equals(taskId)) {
-                    // Update existing task
-                    task.put("json", taskJson);
-                    task.put("scheduledTime", scheduledTime);
-                    tasksArray.put(i, task);
-                    found = true;
-                    break;
-                }
-            }
-            
-            // Add new task if not found
-            if (!found) {
-                JSONObject newTask = new JSONObject();
-                newTask.put("id", taskId);
-                newTask.put("json", taskJson);
-                newTask.put("scheduledTime", scheduledTime);
-                tasksArray.put(newTask);
-            }
-            
-            // Save updated tasks
-            editor.putString("scheduledTasks", tasksArray.toString());
-            editor.apply();
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Error saving scheduled task", e);
-        }
-    }
-
-    private void removeScheduledTask(String taskId) {
-        SharedPreferences prefs = getContext().getSharedPreferences("RecurringTasks", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        
-        try {
-            // Get existing scheduled tasks
-            String tasksJson = prefs.getString("scheduledTasks", "[]");
-            JSONArray tasksArray = new JSONArray(tasksJson);
-            JSONArray newTasksArray = new JSONArray();
-            
-            // Filter out the task with the given ID
-            for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject task = tasksArray.getJSONObject(i);
-                if (!task.getString("id").equals(taskId)) {
-                    newTasksArray.put(task);
-                }
-            }
-            
-            // Save updated tasks
-            editor.putString("scheduledTasks", newTasksArray.toString());
-            editor.apply();
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "Error removing scheduled task", e);
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
@@ -348,6 +354,8 @@ public class RecurringTasksPlugin extends Plugin {
      */
     @PluginMethod
     public void completeTask(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("RecurringTasksPlugin.completeTask");
+        long startNanos = methodTimer.start();
         try {
             String taskId = call.getString("taskId");
             if (taskId == null) {
@@ -356,32 +364,14 @@ public class RecurringTasksPlugin extends Plugin {
             }
             
             // Get the task details from storage
-            SharedPreferences prefs = getContext().getSharedPreferences("RecurringTasks", Context.MODE_PRIVATE);
-            String tasksJson = prefs.getString("scheduledTasks", "[]");
-            JSONArray tasksArray = new JSONArray(tasksJson);
-            
-            // Look for the task
-            JSONObject taskData = null;
-            int taskIndex = -1;
-            String taskJsonStr = null;
-            
-            for (int i = 0; i < tasksArray.length(); i++) {
-                JSONObject storedTask = tasksArray.getJSONObject(i);
-                if (storedTask.getString("id").equals(taskId)) {
-                    taskData = storedTask;
-                    taskIndex = i;
-                    taskJsonStr = storedTask.getString("json");
-                    break;
-                }
-            }
-            
-            if (taskData == null || taskJsonStr == null) {
+            ScheduledTask storedTask = ScheduledTaskStores.get(getContext()).get(taskId);
+            if (storedTask == null) {
                 call.reject("Task not found");
                 return;
             }
             
             // Parse the task JSON
-            JSONObject taskObject = new JSONObject(taskJsonStr);
+            JSONObject taskObject = new JSONObject(storedTask.getJson());
             String recurrence = taskObject.optString("recurrence", "once");
             
             // Record completion time
@@ -390,11 +380,8 @@ public class RecurringTasksPlugin extends Plugin {
             
             // For non-recurring tasks, just update the completion status
             if (recurrence.equals("once")) {
-                // Cancel the current alarm
-                cancelTaskAlarm(taskId);
-                
-                // Remove from storage
-                removeScheduledTask(taskId);
+                // Remove from storage, which also drops it from the shared alarm
+                RecurringTaskScheduler.get(getContext()).cancel(taskId);
                 
                 JSObject result = new JSObject();
                 result.put("success", true);
@@ -405,146 +392,37 @@ public class RecurringTasksPlugin extends Plugin {
                 return;
             }
             
-            // For recurring tasks, reschedule for next occurrence
-            JSONObject timeObj = taskObject.optJSONObject("time");
-            if (timeObj == null) {
-                call.reject("Task has invalid time configuration");
+            // For recurring tasks, reschedule for the first occurrence after today, since
+            // completing a task also covers an occurrence still pending later today
+            RecurrenceEngine engine = new RecurrenceEngine(ZoneId.systemDefault());
+            ScheduledTask nextTask = RecurrenceRules.nextOccurrence(
+                    storedTask, taskObject, engine.endOfDay(completionTime), engine);
+            if (nextTask == null) {
+                call.reject("Task has no upcoming occurrence");
                 return;
             }
+            long nextTriggerTime = nextTask.getScheduledTime();
             
-            int hour = timeObj.optInt("hour", 9);
-            int minute = timeObj.optInt("minute", 0);
-            int dayOfWeek = timeObj.optInt("dayOfWeek", -1);
-            int dayOfMonth = timeObj.optInt("dayOfMonth", -1);
+            // Update in storage and move the shared alarm if needed
+            RecurringTaskScheduler.get(getContext()).schedule(nextTask);
             
-            // Calculate next occurrence
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTimeInMillis(System.currentTimeMillis());
-            calendar.setTimeZone(TimeZone.getDefault());
-            calendar.set(Calendar.HOUR_OF_DAY, hour);
-            calendar.set(Calendar.MINUTE, minute);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
+            JSObject result = new JSObject();
+            result.put("success", true);
+            result.put("taskId", taskId);
+            result.put("completed", true);
+            result.put("recurring", true);
+            result.put("nextTriggerTime", nextTriggerTime);
+            result.put("recurrence", recurrence);
+            call.resolve(result);
             
-            // Set the appropriate next date based on recurrence type
-            switch (recurrence) {
-                case "daily":
-                    // Move to tomorrow
-                    calendar.add(Calendar.DAY_OF_YEAR, 1);
-                    break;
-                    
-                case "weekly":
-                    // If dayOfWeek is specified, use it
-                    if (dayOfWeek != -1) {
-                        // Get current day of week
-                        int currentDayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-                        if (dayOfWeek == currentDayOfWeek) {
-                            // Same day of week, move to next week
-                            calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                        } else {
-                            // Move to the specific day this week
-                            int daysToAdd = (dayOfWeek - currentDayOfWeek + 7) % 7;
-                            if (daysToAdd == 0) daysToAdd = 7; // If already on that day, go to next week
-                            calendar.add(Calendar.DAY_OF_YEAR, daysToAdd);
-                        }
-                    } else {
-                        // No specific day, just add a week
-                        calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                    }
-                    break;
-                    
-                case "monthly":
-                    // If dayOfMonth is specified, use it
-                    if (dayOfMonth != -1) {
-                        calendar.add(Calendar.MONTH, 1);
-                        // Adjust for months with fewer days
-                        calendar.set(Calendar.DAY_OF_MONTH, 
-                            Math.min(dayOfMonth, calendar.getActualMaximum(Calendar.DAY_OF_MONTH)));
-                    } else {
-                        calendar.add(Calendar.MONTH, 1);
-                    }
-                    break;
-                    
-                default:
-                    // Should not happen, but just in case
-                    call.reject("Unknown recurrence pattern: " + recurrence);
-                    return;
-            }
-            
-            long nextTriggerTime = calendar.getTimeInMillis();
-            
-            // Update the next trigger time
-            taskObject.put("nextDueDate", nextTriggerTime);
-            
-            // Cancel the current alarm
-            cancelTaskAlarm(taskId);
-            
-            // Schedule the new alarm
-            Intent intent = new Intent(getContext(), RecurringTaskReceiver.class);
-            intent.setAction("com.stanley.focusflow.RECURRING_TASK");
-            intent.putExtra("TASK_ID", taskId);
-            intent.putExtra("TASK_JSON", taskObject.toString());
-            
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    getContext(),
-                    taskId.hashCode(),
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-            if (alarmManager != null) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, nextTriggerTime, pendingIntent);
-                } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                    alarmManager.setExact(AlarmManager.RTC_WAKEUP, nextTriggerTime, pendingIntent);
-                } else {
-                    alarmManager.set(AlarmManager.RTC_WAKEUP, nextTriggerTime, pendingIntent);
-                }
-                
-                // Update in storage
-                saveScheduledTask(taskId, taskObject.toString(), nextTriggerTime);
-                
-                JSObject result = new JSObject();
-                result.put("success", true);
-                result.put("taskId", taskId);
-                result.put("completed", true);
-                result.put("recurring", true);
-                result.put("nextTriggerTime", nextTriggerTime);
-                result.put("recurrence", recurrence);
-                call.resolve(result);
-                
-                Log.d(TAG, "Completed and rescheduled recurring task " + taskId + 
-                        " with " + recurrence + " recurrence for " + calendar.getTime().toString());
-            } else {
-                call.reject("Could not access AlarmManager");
-            }
+            Log.d(TAG, "Completed and rescheduled recurring task " + taskId + 
+                    " with " + recurrence + " recurrence for " + new java.util.Date(nextTriggerTime));
             
-        } catch (JSONException e) {
+        } catch (JSONException | IOException e) {
             Log.e(TAG, "Error completing task", e);
             call.reject("Error completing task: " + e.getMessage());
-        }
-    }
-    
-    /**
-     * Helper method to cancel a task alarm
-     * @param taskId ID of the task to cancel
-     */
-    private void cancelTaskAlarm(String taskId) {
-        Intent intent = new Intent(getContext(), RecurringTaskReceiver.class);
-        intent.setAction("com.stanley.focusflow.RECURRING_TASK");
-        
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                getContext(),
-                taskId.hashCode(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        
-        AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager != null) {
-            alarmManager.cancel(pendingIntent);
-            pendingIntent.cancel();
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 }
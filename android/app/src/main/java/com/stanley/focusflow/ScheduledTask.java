@@ -0,0 +1,32 @@
+package com.stanley.focusflow;
+
+/**
+ * A persisted recurring task: its id, the task JSON handed to the receiver
+ * and the wall-clock time of its next occurrence.
+ */
+public final class ScheduledTask {
+    private final String id;
+    private final String json;
+    private final long scheduledTime;
+
+    public ScheduledTask(String id, String json, long scheduledTime) {
+        if (id == null || json == null) {
+            throw new IllegalArgumentException("Task id and JSON are required");
+        }
+        this.id = id;
+        this.json = json;
+        this.scheduledTime = scheduledTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    public long getScheduledTime() {
+        return scheduledTime;
+    }
+}
@@ -0,0 +1,58 @@
+package com.stanley.focusflow;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent storage for scheduled recurring tasks, keyed by task id.
+ * Shared by {@link RecurringTasksPlugin} and {@link RecurringTaskReceiver}.
+ */
+public interface ScheduledTaskStore {
+
+    /**
+     * @return the stored task, or null if no task has this id
+     */
+    ScheduledTask get(String taskId) throws IOException;
+
+    /**
+     * Insert or replace a single task.
+     */
+    void put(ScheduledTask task) throws IOException;
+
+    /**
+     * Insert or replace several tasks with a single write.
+     */
+    void putAll(Collection<ScheduledTask> tasks) throws IOException;
+
+    /**
+     * Remove a task.
+     * @return true if a task with this id was stored
+     */
+    boolean remove(String taskId) throws IOException;
+
+    /**
+     * Remove several tasks with a single write.
+     * @return the number of tasks that were stored
+     */
+    int removeAll(Collection<String> taskIds) throws IOException;
+
+    /**
+     * @return a snapshot of every stored task, in no particular order
+     */
+    List<ScheduledTask> getAll() throws IOException;
+
+    /**
+     * @return next occurrence times keyed by task id, without decoding any task JSON
+     */
+    Map<String, Long> getScheduledTimes() throws IOException;
+
+    int size() throws IOException;
+
+    /**
+     * @return a counter that advances on every change to the stored tasks, including
+     *         changes written by other processes
+     */
+    long getVersion() throws IOException;
+}
@@ -0,0 +1,68 @@
+package com.stanley.focusflow;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens the per-process {@link ScheduledTaskStore}, importing tasks from the legacy
+ * "scheduledTasks" JSON blob in the RecurringTasks preferences the first time.
+ */
+public final class ScheduledTaskStores {
+    private static final String TAG = "ScheduledTaskStores";
+    private static final String PREFS_NAME = "RecurringTasks";
+    private static final String LEGACY_TASKS_KEY = "scheduledTasks";
+    private static final String STORE_FILE = "scheduled_tasks.log";
+
+    private static ScheduledTaskStore instance;
+
+    private ScheduledTaskStores() {
+    }
+
+    public static synchronized ScheduledTaskStore get(Context context) throws IOException {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            ScheduledTaskStore store = new LogScheduledTaskStore(
+                    new File(appContext.getFilesDir(), STORE_FILE));
+            migrateLegacyTasks(appContext, store);
+            instance = store;
+        }
+        return instance;
+    }
+
+    private static void migrateLegacyTasks(Context context, ScheduledTaskStore store) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String tasksJson = prefs.getString(LEGACY_TASKS_KEY, null);
+        if (tasksJson == null) {
+            return;
+        }
+
+        try {
+            JSONArray tasksArray = new JSONArray(tasksJson);
+            List<ScheduledTask> tasks = new ArrayList<>(tasksArray.length());
+            for (int i = 0; i < tasksArray.length(); i++) {
+                JSONObject task = tasksArray.getJSONObject(i);
+                tasks.add(new ScheduledTask(
+                        task.getString("id"),
+                        task.getString("json"),
+                        task.getLong("scheduledTime")));
+            }
+            store.putAll(tasks);
+
+            // Puts are upserts, so if we die before this commit the import simply runs again
+            prefs.edit().remove(LEGACY_TASKS_KEY).commit();
+            Log.d(TAG, "Migrated " + tasksArray.length() + " scheduled tasks from preferences");
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, "Error migrating scheduled tasks", e);
+        }
+    }
+}
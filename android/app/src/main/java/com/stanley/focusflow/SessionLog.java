@@ -0,0 +1,275 @@
+package com.stanley.focusflow;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only history of focus sessions in fixed-size binary records.
+ *
+ * Each record holds start, end, focused time, pause count, a completed flag and an index
+ * into a side file of task keys, so finding record n is a multiplication and a year of
+ * sessions is a few hundred KB. Reads go through a read-only memory map that is only
+ * remapped after the log has grown. A record torn by a crash is dropped on open.
+ */
+public final class SessionLog {
+    private static final int MAGIC = 0x46465348; // "FFSH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8; // magic, version
+    static final int RECORD_SIZE = 32;
+    private static final short FLAG_COMPLETED = 1;
+
+    public enum Grouping { DAY, WEEK, TASK }
+
+    /**
+     * Receives records in the order they were appended.
+     */
+    public interface Visitor {
+        void visit(long startMs, long endMs, long focusMs, String taskKey, int pauseCount,
+                   boolean completed);
+    }
+
+    public static final class Total {
+        public final String key;
+        public final int sessions;
+        public final int completedSessions;
+        public final long focusMs;
+
+        Total(String key, int sessions, int completedSessions, long focusMs) {
+            this.key = key;
+            this.sessions = sessions;
+            this.completedSessions = completedSessions;
+            this.focusMs = focusMs;
+        }
+    }
+
+    private final File taskFile;
+    private final RandomAccessFile raf;
+    private final List<String> taskKeys = new ArrayList<>();
+    private final Map<String, Integer> taskIndex = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private MappedByteBuffer map;
+    private int recordCount;
+
+    public SessionLog(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        taskFile = new File(file.getPath() + ".tasks");
+        loadTaskKeys();
+
+        raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < HEADER_SIZE) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+        } else {
+            int magic = raf.readInt();
+            int version = raf.readInt();
+            if (magic != MAGIC || version != VERSION) {
+                raf.close();
+                throw new IOException("Not a session log: " + file);
+            }
+        }
+        long records = (raf.length() - HEADER_SIZE) / RECORD_SIZE;
+        // Drop a partial record left by a crash mid-append
+        raf.setLength(HEADER_SIZE + records * RECORD_SIZE);
+        recordCount = (int) records;
+    }
+
+    /**
+     * @param taskKey the task id, or its name when it has none
+     */
+    public synchronized void append(long startMs, long endMs, long focusMs, String taskKey,
+                                    int pauseCount, boolean completed) throws IOException {
+        record.clear();
+        record.putLong(startMs).putLong(endMs).putLong(focusMs)
+                .putInt(internTaskKey(taskKey != null ? taskKey : ""))
+                .putShort((short) Math.min(pauseCount, Short.MAX_VALUE))
+                .putShort(completed ? FLAG_COMPLETED : 0);
+        record.flip();
+        FileChannel channel = raf.getChannel();
+        long offset = HEADER_SIZE + (long) recordCount * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            offset += channel.write(record, offset);
+        }
+        recordCount++;
+    }
+
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * Visit the records from {@code fromIndex} onwards without copying them off the map.
+     */
+    public synchronized void scan(int fromIndex, Visitor visitor) throws IOException {
+        MappedByteBuffer buffer = mapRecords();
+        for (int i = Math.max(0, fromIndex); i < recordCount; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            visitor.visit(buffer.getLong(offset), buffer.getLong(offset + 8),
+                    buffer.getLong(offset + 16), taskKey(buffer.getInt(offset + 24)),
+                    buffer.getShort(offset + 28), (buffer.getShort(offset + 30) & FLAG_COMPLETED) != 0);
+        }
+    }
+
+    /**
+     * Sum the sessions that ended in [fromMs, toMs) per day, ISO week or task, in one pass.
+     *
+     * @param calendar supplies the time zone that days and weeks are counted in
+     * @return totals ordered by key
+     */
+    public List<Total> totals(final Grouping grouping, final long fromMs, final long toMs,
+                              final RecurrenceEngine calendar) throws IOException {
+        // sessions, completed sessions, focused ms
+        final Map<Object, long[]> buckets = new HashMap<>();
+        scan(0, new Visitor() {
+            // Sessions are appended in end order, so runs of them share a bucket
+            private Object lastKey;
+            private long lastDay = Long.MIN_VALUE;
+            private long[] lastBucket;
+
+            @Override
+            public void visit(long startMs, long endMs, long focusMs, String taskKey,
+                              int pauseCount, boolean completed) {
+                if (endMs < fromMs || endMs >= toMs) {
+                    return;
+                }
+                long[] bucket;
+                if (grouping == Grouping.TASK) {
+                    bucket = taskKey == lastKey ? lastBucket : bucketFor(taskKey);
+                    lastKey = taskKey;
+                } else {
+                    long epochDay = calendar.localEpochDay(endMs);
+                    long day = grouping == Grouping.DAY ? epochDay : mondayOf(epochDay);
+                    bucket = day == lastDay ? lastBucket : bucketFor(day);
+                    lastDay = day;
+                }
+                lastBucket = bucket;
+                bucket[0]++;
+                if (completed) {
+                    bucket[1]++;
+                }
+                bucket[2] += focusMs;
+            }
+
+            private long[] bucketFor(Object key) {
+                long[] bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new long[3];
+                    buckets.put(key, bucket);
+                }
+                return bucket;
+            }
+        });
+
+        TreeMap<String, long[]> sorted = new TreeMap<>();
+        for (Map.Entry<Object, long[]> entry : buckets.entrySet()) {
+            sorted.put(keyLabel(grouping, entry.getKey()), entry.getValue());
+        }
+        List<Total> totals = new ArrayList<>(sorted.size());
+        for (Map.Entry<String, long[]> entry : sorted.entrySet()) {
+            long[] bucket = entry.getValue();
+            totals.add(new Total(entry.getKey(), (int) bucket[0], (int) bucket[1], bucket[2]));
+        }
+        return totals;
+    }
+
+    public synchronized void close() throws IOException {
+        map = null;
+        raf.close();
+    }
+
+    /**
+     * @return the epoch day of the Monday starting the ISO week that contains {@code epochDay}
+     */
+    static long mondayOf(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    /**
+     * @return "2024-03-05" for a day, "2024-W10" for a week, the task key otherwise
+     */
+    static String keyLabel(Grouping grouping, Object key) {
+        if (grouping == Grouping.TASK) {
+            return (String) key;
+        }
+        LocalDate date = LocalDate.ofEpochDay((Long) key);
+        if (grouping == Grouping.DAY) {
+            return date.toString();
+        }
+        int week = date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        return date.get(IsoFields.WEEK_BASED_YEAR) + (week < 10 ? "-W0" : "-W") + week;
+    }
+
+    private MappedByteBuffer mapRecords() throws IOException {
+        long size = HEADER_SIZE + (long) recordCount * RECORD_SIZE;
+        if (map == null || map.capacity() != size) {
+            map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return map;
+    }
+
+    private String taskKey(int index) {
+        return index >= 0 && index < taskKeys.size() ? taskKeys.get(index) : "";
+    }
+
+    private int internTaskKey(String taskKey) throws IOException {
+        Integer index = taskIndex.get(taskKey);
+        if (index != null) {
+            return index;
+        }
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(taskFile, true))) {
+            out.writeUTF(taskKey);
+        }
+        taskKeys.add(taskKey);
+        taskIndex.put(taskKey, taskKeys.size() - 1);
+        return taskKeys.size() - 1;
+    }
+
+    private void loadTaskKeys() throws IOException {
+        byte[] data;
+        try (FileInputStream in = new FileInputStream(taskFile)) {
+            data = new byte[(int) in.getChannel().size()];
+            new DataInputStream(in).readFully(data);
+        } catch (FileNotFoundException e) {
+            return;
+        }
+
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(bytes);
+        int validLength = 0;
+        try {
+            while (bytes.available() > 0) {
+                String taskKey = in.readUTF();
+                taskIndex.put(taskKey, taskKeys.size());
+                taskKeys.add(taskKey);
+                validLength = data.length - bytes.available();
+            }
+        } catch (EOFException e) {
+            // A key torn by a crash; its record was never written, so drop it
+            try (RandomAccessFile out = new RandomAccessFile(taskFile, "rw")) {
+                out.setLength(validLength);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.stanley.focusflow;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.ZoneId;
+
+/**
+ * Opens the {@link SessionLog} and {@link FocusRollups} shared by TimerService and TimerPlugin.
+ */
+public final class SessionLogs {
+    private static final String LOG_FILE = "focus_sessions.log";
+    private static final String ROLLUPS_FILE = "focus_rollups.bin";
+
+    private static SessionLog instance;
+    private static FocusRollups rollups;
+
+    private SessionLogs() {
+    }
+
+    public static synchronized SessionLog get(Context context) throws IOException {
+        if (instance == null) {
+            instance = new SessionLog(new File(context.getApplicationContext().getFilesDir(), LOG_FILE));
+        }
+        return instance;
+    }
+
+    /**
+     * @return rollups caught up with the log, rebuilt if the device time zone has changed
+     */
+    public static synchronized FocusRollups getRollups(Context context) throws IOException {
+        SessionLog log = get(context);
+        ZoneId zone = ZoneId.systemDefault();
+        if (rollups == null || !rollups.getZone().equals(zone)) {
+            rollups = FocusRollups.open(
+                    new File(context.getApplicationContext().getFilesDir(), ROLLUPS_FILE), log, zone);
+        } else {
+            rollups.catchUp(log);
+        }
+        return rollups;
+    }
+}
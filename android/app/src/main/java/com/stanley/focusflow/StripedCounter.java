@@ -0,0 +1,41 @@
+package com.stanley.focusflow;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over several cells so threads adding to it at once rarely touch the
+ * same cache line. Adding is one uncontended atomic add; reading sums the cells.
+ */
+public final class StripedCounter {
+    private static final int STRIPES = 8;
+    // One cell per 64-byte line so neighbouring stripes do not share it
+    private static final int PAD = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(cellFor(Thread.currentThread()), delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PAD, 0);
+        }
+    }
+
+    private static int cellFor(Thread thread) {
+        return (int) (thread.getId() & (STRIPES - 1)) * PAD;
+    }
+}
@@ -0,0 +1,111 @@
+package com.stanley.focusflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Min-heap of upcoming task occurrences ordered by trigger time.
+ *
+ * Rescheduling or cancelling a task does not search the heap; the old slot is left in
+ * place and skipped when it reaches the head, since it no longer matches the task's
+ * current time. The heap is rebuilt once stale slots outnumber live ones.
+ */
+public class TaskAlarmQueue {
+    private PriorityQueue<Slot> heap = new PriorityQueue<>();
+    private final Map<String, Long> times = new HashMap<>();
+
+    private static final class Slot implements Comparable<Slot> {
+        final String taskId;
+        final long triggerTime;
+
+        Slot(String taskId, long triggerTime) {
+            this.taskId = taskId;
+            this.triggerTime = triggerTime;
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            return Long.compare(triggerTime, other.triggerTime);
+        }
+    }
+
+    /**
+     * Replace the queue contents with the given task times.
+     */
+    public void reset(Map<String, Long> scheduledTimes) {
+        times.clear();
+        times.putAll(scheduledTimes);
+        rebuild();
+    }
+
+    public void schedule(String taskId, long triggerTime) {
+        Long previous = times.put(taskId, triggerTime);
+        if (previous == null || previous != triggerTime) {
+            heap.add(new Slot(taskId, triggerTime));
+            maybeRebuild();
+        }
+    }
+
+    public void cancel(String taskId) {
+        if (times.remove(taskId) != null) {
+            maybeRebuild();
+        }
+    }
+
+    /**
+     * @return the earliest trigger time, or Long.MAX_VALUE if nothing is scheduled
+     */
+    public long peekTime() {
+        dropStaleHead();
+        Slot head = heap.peek();
+        return head != null ? head.triggerTime : Long.MAX_VALUE;
+    }
+
+    /**
+     * Remove and return every task due at or before the given time, earliest first.
+     */
+    public List<String> pollDue(long until) {
+        List<String> due = new ArrayList<>();
+        dropStaleHead();
+        while (!heap.isEmpty() && heap.peek().triggerTime <= until) {
+            Slot slot = heap.poll();
+            times.remove(slot.taskId);
+            due.add(slot.taskId);
+            dropStaleHead();
+        }
+        return due;
+    }
+
+    public int size() {
+        return times.size();
+    }
+
+    private boolean isStale(Slot slot) {
+        Long current = times.get(slot.taskId);
+        return current == null || current != slot.triggerTime;
+    }
+
+    private void dropStaleHead() {
+        while (!heap.isEmpty() && isStale(heap.peek())) {
+            heap.poll();
+        }
+    }
+
+    private void maybeRebuild() {
+        if (heap.size() > 2 * times.size() + 64) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        List<Slot> slots = new ArrayList<>(times.size());
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            slots.add(new Slot(entry.getKey(), entry.getValue()));
+        }
+        // Building from a collection heapifies in O(n)
+        heap = new PriorityQueue<>(slots);
+    }
+}
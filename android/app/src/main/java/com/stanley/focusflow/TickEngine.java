@@ -0,0 +1,209 @@
+package com.stanley.focusflow;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts down to a deadline on {@link SystemClock#elapsedRealtime()} from its own HandlerThread.
+ *
+ * Every tick is scheduled for the instant the remaining time crosses the next whole
+ * interval, measured from the deadline rather than from the previous tick, so a late tick
+ * never pushes the following ones back and the countdown does not drift. Pausing records
+ * the time left and resuming sets a new deadline; the thread and handler live as long as
+ * the engine. How late each tick runs is recorded in the {@code TickEngine.lateness}
+ * timer of {@link NativeMetrics}.
+ */
+public final class TickEngine implements Handler.Callback {
+    private static final int MSG_TICK = 1;
+    private static final NativeMetrics.Timer LATENESS = NativeMetrics.timer("TickEngine.lateness");
+
+    public interface Listener {
+        /**
+         * Called on the tick thread with the remaining time, rounded up to the interval.
+         */
+        void onTick(long remainingMs);
+
+        /**
+         * Called on the tick thread once the deadline has passed.
+         */
+        void onFinish();
+    }
+
+    private final long intervalMs;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    // Bumped whenever the schedule changes so ticks already queued are ignored
+    private int generation;
+    private boolean running;
+    private boolean paused;
+    private long deadlineElapsed;
+    private long pausedRemainingMs;
+    private long scheduledTickElapsed;
+
+    public TickEngine(String name, long intervalMs, Listener listener) {
+        this.intervalMs = intervalMs;
+        this.listener = listener;
+        this.thread = new HandlerThread(name, Process.THREAD_PRIORITY_FOREGROUND);
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper(), this);
+    }
+
+    public synchronized void start(long durationMs) {
+        startUntil(SystemClock.elapsedRealtime() + durationMs);
+    }
+
+    /**
+     * Count down to a deadline that was fixed beforehand, such as the end of the previous
+     * phase plus this one's length, so lateness in starting does not accumulate.
+     */
+    public synchronized void startUntil(long deadlineElapsed) {
+        long now = SystemClock.elapsedRealtime();
+        generation++;
+        handler.removeMessages(MSG_TICK);
+        running = true;
+        paused = false;
+        this.deadlineElapsed = deadlineElapsed;
+        scheduleNext(now);
+    }
+
+    /**
+     * Start a countdown that is already paused with the given time left, as when a paused
+     * session is restored.
+     */
+    public synchronized void startPaused(long remainingMs) {
+        generation++;
+        handler.removeMessages(MSG_TICK);
+        running = true;
+        paused = true;
+        pausedRemainingMs = remainingMs;
+    }
+
+    /**
+     * @return false if the engine was not counting down
+     */
+    public synchronized boolean pause() {
+        if (!running || paused) {
+            return false;
+        }
+        generation++;
+        handler.removeMessages(MSG_TICK);
+        pausedRemainingMs = Math.max(0, deadlineElapsed - SystemClock.elapsedRealtime());
+        paused = true;
+        return true;
+    }
+
+    /**
+     * @return false if the engine was not paused
+     */
+    public synchronized boolean resume() {
+        if (!running || !paused) {
+            return false;
+        }
+        long now = SystemClock.elapsedRealtime();
+        generation++;
+        paused = false;
+        deadlineElapsed = now + pausedRemainingMs;
+        scheduleNext(now);
+        return true;
+    }
+
+    public synchronized void stop() {
+        generation++;
+        handler.removeMessages(MSG_TICK);
+        running = false;
+        paused = false;
+    }
+
+    /**
+     * Stop counting and end the tick thread. The engine cannot be used afterwards.
+     */
+    public void release() {
+        stop();
+        thread.quitSafely();
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public synchronized long getRemainingMs() {
+        if (!running) {
+            return 0;
+        }
+        if (paused) {
+            return pausedRemainingMs;
+        }
+        return Math.max(0, deadlineElapsed - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @return the elapsedRealtime at which the current countdown ends, meaningless while paused
+     */
+    public synchronized long getDeadlineElapsed() {
+        return deadlineElapsed;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        if (msg.what != MSG_TICK) {
+            return false;
+        }
+
+        long remaining;
+        boolean finished;
+        synchronized (this) {
+            if (msg.arg1 != generation || !running || paused) {
+                return true;
+            }
+
+            long now = SystemClock.elapsedRealtime();
+            if (now < scheduledTickElapsed) {
+                // Handler delays run on the uptime clock; wait out any difference
+                handler.sendMessageDelayed(handler.obtainMessage(MSG_TICK, generation, 0),
+                        scheduledTickElapsed - now);
+                return true;
+            }
+
+            LATENESS.record(TimeUnit.MILLISECONDS.toNanos(now - scheduledTickElapsed));
+
+            finished = now >= deadlineElapsed;
+            if (finished) {
+                running = false;
+                remaining = 0;
+            } else {
+                remaining = roundUp(deadlineElapsed - now);
+                scheduleNext(now);
+            }
+        }
+
+        if (finished) {
+            listener.onFinish();
+        } else {
+            listener.onTick(remaining);
+        }
+        return true;
+    }
+
+    private void scheduleNext(long now) {
+        long remaining = deadlineElapsed - now;
+        long nextRemaining = remaining > 0 ? ((remaining - 1) / intervalMs) * intervalMs : 0;
+        scheduledTickElapsed = deadlineElapsed - nextRemaining;
+        handler.sendMessageDelayed(handler.obtainMessage(MSG_TICK, generation, 0),
+                Math.max(0, scheduledTickElapsed - now));
+    }
+
+    private long roundUp(long remainingMs) {
+        return ((remainingMs + intervalMs - 1) / intervalMs) * intervalMs;
+    }
+}
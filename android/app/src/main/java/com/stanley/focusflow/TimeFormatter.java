@@ -0,0 +1,84 @@
+package com.stanley.focusflow;
+
+/**
+ * Formats a duration as H:MM:SS, or MM:SS under an hour, into a reused char buffer.
+ *
+ * The formatter is itself the CharSequence it returns, so formatting allocates nothing
+ * once the buffer has grown to fit the longest suffix. The contents stay valid until the
+ * next call; use {@link #toString()} to keep a copy. Not thread-safe.
+ */
+public final class TimeFormatter implements CharSequence {
+    private char[] buffer = new char[32];
+    private int length;
+
+    /**
+     * @param suffix appended after the time, may be empty
+     */
+    public CharSequence format(long millis, String suffix) {
+        long totalSeconds = Math.max(0, millis) / 1000;
+        long hours = totalSeconds / 3600;
+        int minutes = (int) (totalSeconds / 60 % 60);
+        int seconds = (int) (totalSeconds % 60);
+
+        ensureCapacity(20 + 6 + suffix.length());
+        length = 0;
+        if (hours > 0) {
+            appendNumber(hours);
+            buffer[length++] = ':';
+        }
+        appendTwoDigits(minutes);
+        buffer[length++] = ':';
+        appendTwoDigits(seconds);
+        suffix.getChars(0, suffix.length(), buffer, length);
+        length += suffix.length();
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = new char[capacity];
+        }
+    }
+
+    private void appendTwoDigits(int value) {
+        buffer[length++] = (char) ('0' + value / 10);
+        buffer[length++] = (char) ('0' + value % 10);
+    }
+
+    private void appendNumber(long value) {
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        // Digits were written least significant first
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.stanley.focusflow;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Receives the deadline alarm of a low-power focus session, or of the next named timer,
+ * and hands it to TimerService.
+ *
+ * The alarm only keeps the device awake while onReceive runs, so a short completion wake
+ * lock is taken here and released by the service once the session has been finished.
+ */
+public class TimerAlarmReceiver extends BroadcastReceiver {
+    private static final String TAG = "TimerAlarmReceiver";
+    public static final String ACTION_TIMER_DEADLINE = "com.stanley.focusflow.TIMER_DEADLINE";
+    public static final String ACTION_NAMED_TIMER_DEADLINE = "com.stanley.focusflow.NAMED_TIMER_DEADLINE";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!ACTION_TIMER_DEADLINE.equals(action) && !ACTION_NAMED_TIMER_DEADLINE.equals(action)) {
+            return;
+        }
+
+        TimerService.acquireCompletionWakeLock(context);
+        Intent serviceIntent = new Intent(context, TimerService.class);
+        serviceIntent.setAction(action);
+        try {
+            context.startService(serviceIntent);
+        } catch (IllegalStateException e) {
+            // Background start refused; the checkpoint stays for the next restore to finish
+            Log.e(TAG, "Could not deliver timer deadline", e);
+            TimerService.releaseCompletionWakeLock();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.stanley.focusflow;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Last known state of a focus session, saved so TimerService can pick the session up
+ * again after its process is killed.
+ *
+ * The time left is anchored to both clocks: elapsedRealtime survives process death and
+ * is used whenever it is still counting from the same boot, the wall clock covers a
+ * reboot. Checkpoints are written only on state changes, as one small checksummed file
+ * replaced by rename, so a reader sees either the old or the new state and never a mix.
+ */
+public final class TimerCheckpoint {
+    private static final int MAGIC = 0x46465443; // "FFTC"
+    private static final int VERSION = 3;
+    // magic, version, duration, remaining, start, wall anchor, elapsed anchor, flags,
+    // pause count, phase index, then lengths of name, task id and program
+    private static final int FIXED_SIZE = 4 + 4 + 8 * 5 + 1 + 4 + 4 + 4 * 3;
+    private static final int CRC_SIZE = 8;
+    private static final int MAX_SIZE = 64 * 1024;
+    private static final byte FLAG_PAUSED = 1;
+    private static final byte FLAG_LOW_POWER = 2;
+    // How far the boot time worked out from the two clocks may drift on one boot
+    private static final long BOOT_TOLERANCE_MS = 10_000;
+
+    private final long durationMs;
+    private final long remainingMs;
+    private final long startTimeMs;
+    private final long anchorWallMs;
+    private final long anchorElapsedMs;
+    private final boolean paused;
+    private final boolean lowPower;
+    private final int pauseCount;
+    private final String taskName;
+    private final String taskId;
+    private final String programJson;
+    private final int phaseIndex;
+
+    /**
+     * @param remainingMs time left at the anchors
+     * @param taskId may be null
+     * @param programJson the interval program being run, null for a single session
+     */
+    public TimerCheckpoint(long durationMs, long remainingMs, long startTimeMs, long anchorWallMs,
+                           long anchorElapsedMs, boolean paused, boolean lowPower, int pauseCount,
+                           String taskName, String taskId, String programJson, int phaseIndex) {
+        this.durationMs = durationMs;
+        this.remainingMs = remainingMs;
+        this.startTimeMs = startTimeMs;
+        this.anchorWallMs = anchorWallMs;
+        this.anchorElapsedMs = anchorElapsedMs;
+        this.paused = paused;
+        this.lowPower = lowPower;
+        this.pauseCount = pauseCount;
+        this.taskName = taskName != null ? taskName : "";
+        this.taskId = taskId;
+        this.programJson = programJson;
+        this.phaseIndex = phaseIndex;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getStartTimeMs() {
+        return startTimeMs;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public boolean isLowPower() {
+        return lowPower;
+    }
+
+    public int getPauseCount() {
+        return pauseCount;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String getProgramJson() {
+        return programJson;
+    }
+
+    public int getPhaseIndex() {
+        return phaseIndex;
+    }
+
+    /**
+     * @return the time left now, 0 once the session should have finished
+     */
+    public long remainingAt(long nowWallMs, long nowElapsedMs) {
+        if (paused) {
+            return remainingMs;
+        }
+        return Math.max(0, deadlineElapsedAt(nowWallMs, nowElapsedMs) - nowElapsedMs);
+    }
+
+    /**
+     * @return when a counting session ends on the current elapsedRealtime clock, which is in
+     *         the past if it ended while nobody was watching
+     */
+    public long deadlineElapsedAt(long nowWallMs, long nowElapsedMs) {
+        // elapsedRealtime restarts from zero on boot. Once the device has been up longer
+        // than it had been at the anchor, a reboot shows as a boot time later than the
+        // anchor; one that moved less, or backwards, is the wall clock being set.
+        long anchorBootMs = anchorWallMs - anchorElapsedMs;
+        long nowBootMs = nowWallMs - nowElapsedMs;
+        boolean rebooted = nowElapsedMs < anchorElapsedMs
+                || (Math.abs(nowBootMs - anchorBootMs) > BOOT_TOLERANCE_MS && nowBootMs >= anchorWallMs);
+        long passed = rebooted
+                ? Math.max(0, nowWallMs - anchorWallMs)
+                : nowElapsedMs - anchorElapsedMs;
+        return nowElapsedMs + remainingMs - passed;
+    }
+
+    /**
+     * Replace the checkpoint in {@code file}. The data is not synced: the page cache
+     * outlives the process, and a file torn by power loss fails its checksum on read.
+     */
+    public void writeTo(File file) throws IOException {
+        byte[] name = taskName.getBytes(StandardCharsets.UTF_8);
+        byte[] id = taskId != null ? taskId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] program = programJson != null ? programJson.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(
+                FIXED_SIZE + name.length + id.length + program.length + CRC_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putLong(durationMs).putLong(remainingMs).putLong(startTimeMs)
+                .putLong(anchorWallMs).putLong(anchorElapsedMs)
+                .put((byte) ((paused ? FLAG_PAUSED : 0) | (lowPower ? FLAG_LOW_POWER : 0)))
+                .putInt(pauseCount)
+                .putInt(phaseIndex);
+        putString(buffer, taskName, name);
+        putString(buffer, taskId, id);
+        putString(buffer, programJson, program);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(buffer.array());
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * @return the saved checkpoint, or null if there is none or it is unreadable
+     */
+    public static TimerCheckpoint readFrom(File file) throws IOException {
+        byte[] data;
+        try (FileInputStream in = new FileInputStream(file)) {
+            long length = in.getChannel().size();
+            if (length < FIXED_SIZE + CRC_SIZE || length > MAX_SIZE) {
+                return null;
+            }
+            data = new byte[(int) length];
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    return null;
+                }
+                read += count;
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - CRC_SIZE);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getLong(data.length - CRC_SIZE) != crc.getValue()
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        long durationMs = buffer.getLong();
+        long remainingMs = buffer.getLong();
+        long startTimeMs = buffer.getLong();
+        long anchorWallMs = buffer.getLong();
+        long anchorElapsedMs = buffer.getLong();
+        byte flags = buffer.get();
+        int pauseCount = buffer.getInt();
+        int phaseIndex = buffer.getInt();
+        String taskName;
+        String taskId;
+        String programJson;
+        try {
+            taskName = getString(buffer);
+            taskId = getString(buffer);
+            programJson = getString(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+        if (taskName == null || buffer.remaining() != CRC_SIZE) {
+            return null;
+        }
+        return new TimerCheckpoint(durationMs, remainingMs, startTimeMs, anchorWallMs,
+                anchorElapsedMs, (flags & FLAG_PAUSED) != 0, (flags & FLAG_LOW_POWER) != 0,
+                pauseCount, taskName, taskId, programJson, phaseIndex);
+    }
+
+    // A null string is stored as length -1
+    private static void putString(ByteBuffer buffer, String value, byte[] bytes) {
+        buffer.putInt(value != null ? bytes.length : -1).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
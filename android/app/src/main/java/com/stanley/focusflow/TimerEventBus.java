@@ -0,0 +1,226 @@
+package com.stanley.focusflow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process delivery of timer events from TimerService to its subscribers, replacing
+ * system-wide broadcasts.
+ *
+ * Lifecycle events (started, paused, stopped, finished, named timer finished, interval
+ * phase and program finished) always reach every subscriber, and are also kept in a
+ * {@link TimerEventLog} so a subscriber that missed some can read them back.
+ * Countdown updates are coalesced to the latest value and delivered no faster than each
+ * subscriber's requested rate; a rate of zero suspends them, and raising it again delivers
+ * the latest value straight away. Updates a subscriber did not need are counted as saved.
+ *
+ * Callbacks run on the publishing thread.
+ */
+public final class TimerEventBus {
+    private static final TimerEventBus INSTANCE = new TimerEventBus();
+    private static final long NEVER = Long.MIN_VALUE;
+    // Consecutive ticks can land a few ms closer than their period, so a 1 Hz subscriber
+    // must still receive every 1 s tick
+    private static final double RATE_SLACK = 0.9;
+    private static final int EVENT_LOG_CAPACITY = 128;
+
+    public interface Subscriber {
+        void onTimerUpdate(long remainingMs, long totalMs);
+
+        /**
+         * A lifecycle event, already recorded in the event log under its sequence.
+         */
+        void onTimerEvent(TimerEventLog.Event event);
+    }
+
+    private static final class Subscription {
+        final Subscriber subscriber;
+        long minIntervalNanos;
+        long lastDeliveredNanos = NEVER;
+
+        Subscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong publishedUpdates = new AtomicLong();
+    private final AtomicLong deliveredUpdates = new AtomicLong();
+    private final AtomicLong savedUpdates = new AtomicLong();
+    private final TimerEventLog eventLog = new TimerEventLog(EVENT_LOG_CAPACITY);
+
+    // Latest countdown value, kept so a subscriber raising its rate can catch up
+    private boolean hasLatest;
+    private long latestRemainingMs;
+    private long latestTotalMs;
+
+    public static TimerEventBus get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param updatesPerSecond maximum countdown updates to deliver, 0 for none
+     */
+    public void subscribe(Subscriber subscriber, double updatesPerSecond) {
+        Subscription subscription = new Subscription(subscriber);
+        subscription.minIntervalNanos = intervalFor(updatesPerSecond);
+        subscriptions.add(subscription);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.subscriber == subscriber) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Change how often a subscriber receives countdown updates.
+     */
+    public void setUpdateRate(Subscriber subscriber, double updatesPerSecond) {
+        long remaining;
+        long total;
+        synchronized (this) {
+            remaining = latestRemainingMs;
+            total = latestTotalMs;
+            if (!hasLatest) {
+                remaining = -1;
+            }
+        }
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription.subscriber != subscriber) {
+                continue;
+            }
+            boolean wasSuspended;
+            synchronized (subscription) {
+                wasSuspended = subscription.minIntervalNanos == Long.MAX_VALUE;
+                subscription.minIntervalNanos = intervalFor(updatesPerSecond);
+            }
+            if (wasSuspended && updatesPerSecond > 0 && remaining >= 0) {
+                deliverUpdate(subscription, remaining, total, System.nanoTime(), true);
+            }
+        }
+    }
+
+    public void publishUpdate(long remainingMs, long totalMs) {
+        synchronized (this) {
+            hasLatest = true;
+            latestRemainingMs = remainingMs;
+            latestTotalMs = totalMs;
+        }
+        publishedUpdates.incrementAndGet();
+
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            deliverUpdate(subscription, remainingMs, totalMs, now, false);
+        }
+    }
+
+    public void publishStarted(long durationMs, long startTime) {
+        publishEvent("timerStarted", "duration", durationMs, "startTime", startTime);
+    }
+
+    public void publishPaused(long remainingMs) {
+        publishEvent("timerPaused", "timeRemaining", remainingMs);
+    }
+
+    public void publishStopped() {
+        clearLatest();
+        publishEvent("timerStopped");
+    }
+
+    /**
+     * @param timerData optional JSON string describing the session
+     */
+    public void publishFinished(long durationMs, String endTime, String timerData) {
+        clearLatest();
+        if (timerData != null) {
+            publishEvent("timerFinished", "duration", durationMs, "endTime", endTime,
+                    "timerData", timerData);
+        } else {
+            publishEvent("timerFinished", "duration", durationMs, "endTime", endTime);
+        }
+    }
+
+    public void publishNamedTimerFinished(String id, String label, long durationMs) {
+        publishEvent("namedTimerFinished", "id", id, "label", label, "duration", durationMs);
+    }
+
+    /**
+     * @param waiting true if the phase waits to be resumed instead of counting down
+     */
+    public void publishIntervalPhase(int index, int count, String name, String kind,
+                                     long durationMs, boolean waiting) {
+        publishEvent("intervalPhase", "index", index, "count", count, "name", name, "kind", kind,
+                "duration", durationMs, "waiting", waiting);
+    }
+
+    public void publishIntervalProgramFinished(int phaseCount) {
+        publishEvent("intervalProgramFinished", "phaseCount", phaseCount);
+    }
+
+    public TimerEventLog getEventLog() {
+        return eventLog;
+    }
+
+    public long getPublishedUpdateCount() {
+        return publishedUpdates.get();
+    }
+
+    public long getDeliveredUpdateCount() {
+        return deliveredUpdates.get();
+    }
+
+    /**
+     * @return countdown updates that were coalesced away or suspended instead of delivered
+     */
+    public long getSavedUpdateCount() {
+        return savedUpdates.get();
+    }
+
+    private void deliverUpdate(Subscription subscription, long remainingMs, long totalMs,
+                               long now, boolean force) {
+        synchronized (subscription) {
+            if (!force && (subscription.minIntervalNanos == Long.MAX_VALUE
+                    || (subscription.lastDeliveredNanos != NEVER
+                        && now - subscription.lastDeliveredNanos < subscription.minIntervalNanos))) {
+                savedUpdates.incrementAndGet();
+                return;
+            }
+            subscription.lastDeliveredNanos = now;
+        }
+        deliveredUpdates.incrementAndGet();
+        subscription.subscriber.onTimerUpdate(remainingMs, totalMs);
+    }
+
+    /**
+     * Record a lifecycle event and hand it to every subscriber.
+     *
+     * @param fields alternating names and values
+     */
+    private void publishEvent(String type, Object... fields) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i += 2) {
+            data.put((String) fields[i], fields[i + 1]);
+        }
+        TimerEventLog.Event event = eventLog.append(type, data);
+        for (Subscription subscription : subscriptions) {
+            subscription.subscriber.onTimerEvent(event);
+        }
+    }
+
+    private synchronized void clearLatest() {
+        hasLatest = false;
+    }
+
+    private static long intervalFor(double updatesPerSecond) {
+        if (updatesPerSecond <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (RATE_SLACK * 1_000_000_000L / updatesPerSecond);
+    }
+}
@@ -0,0 +1,137 @@
+package com.stanley.focusflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of the most recent timer lifecycle events, numbered by a sequence, so a web
+ * view that was suspended or reattached can ask for everything it missed in one call.
+ *
+ * Appending claims a sequence number with one atomic increment and publishes an immutable
+ * event into its slot, so producers never lock or wait on readers. A reader that finds a
+ * slot already reused by a newer event reports the gap as truncated; one that finds a slot
+ * not yet written stops there and picks the event up on its next call.
+ */
+public final class TimerEventLog {
+
+    public static final class Event {
+        private final long seq;
+        private final String type;
+        private final long timeMs;
+        private final Map<String, Object> data;
+
+        Event(long seq, String type, long timeMs, Map<String, Object> data) {
+            this.seq = seq;
+            this.type = type;
+            this.timeMs = timeMs;
+            this.data = data;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getTimeMs() {
+            return timeMs;
+        }
+
+        public Map<String, Object> getData() {
+            return data;
+        }
+    }
+
+    public static final class Batch {
+        public final List<Event> events;
+        // Sequence of the last event returned, to pass to the next call
+        public final long lastSeq;
+        // True if events after the requested sequence were overwritten before being read
+        public final boolean truncated;
+
+        Batch(List<Event> events, long lastSeq, boolean truncated) {
+            this.events = events;
+            this.lastSeq = lastSeq;
+            this.truncated = truncated;
+        }
+    }
+
+    private final AtomicReferenceArray<Event> slots;
+    private final int mask;
+    private final AtomicLong nextSeq = new AtomicLong(1);
+    // Sequences restart with the process, so readers compare this to notice
+    private final long epoch;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public TimerEventLog(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.epoch = System.currentTimeMillis();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return the sequence of the newest event claimed so far, 0 before the first
+     */
+    public long getLatestSeq() {
+        return nextSeq.get() - 1;
+    }
+
+    /**
+     * @param data must not be modified afterwards
+     */
+    public Event append(String type, Map<String, Object> data) {
+        long seq = nextSeq.getAndIncrement();
+        Event event = new Event(seq, type, System.currentTimeMillis(),
+                Collections.unmodifiableMap(data));
+        slots.set((int) (seq & mask), event);
+        return event;
+    }
+
+    /**
+     * @return the events after {@code afterSeq}, oldest first
+     */
+    public Batch since(long afterSeq) {
+        afterSeq = Math.max(0, afterSeq);
+        long latest = getLatestSeq();
+        long first = Math.max(afterSeq + 1, latest - mask);
+        boolean truncated = first > afterSeq + 1;
+        List<Event> events = new ArrayList<>((int) Math.max(0, latest - first + 1));
+        long lastSeq = Math.max(afterSeq, first - 1);
+
+        for (long seq = first; seq <= latest; seq++) {
+            Event event = slots.get((int) (seq & mask));
+            if (event == null || event.seq < seq) {
+                // Claimed but not yet published; later events wait for the next call
+                break;
+            }
+            if (event.seq > seq) {
+                // Lapped while reading
+                truncated = true;
+                continue;
+            }
+            events.add(event);
+            lastSeq = seq;
+        }
+        return new Batch(events, lastSeq, truncated);
+    }
+}
@@ -1,90 +1,56 @@
 package com.stanley.focusflow;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 @CapacitorPlugin(name = "TimerPlugin")
-public class TimerPlugin extends Plugin {
+public class TimerPlugin extends Plugin implements TimerEventBus.Subscriber {
     private static final String TAG = "TimerPlugin";
-    private BroadcastReceiver timerReceiver = null;
+    private static final double DEFAULT_UPDATES_PER_SECOND = 1.0;
+
+    // Countdown rate requested by the web view while it is in the foreground
+    private volatile double foregroundUpdatesPerSecond = DEFAULT_UPDATES_PER_SECOND;
+    private volatile boolean inForeground = true;
 
     @Override
     public void load() {
-        registerBroadcastReceiver();
-    }
-
-    private void registerBroadcastReceiver() {
-        timerReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                JSObject data = new JSObject();
-                String action = intent.getAction();
-
-                if (action == null) return;
-
-                switch (action) {
-                    case "com.stanley.focusflow.TIMER_UPDATE":
-                        long timeRemaining = intent.getLongExtra("TIME_REMAINING", 0);
-                        long totalTime = intent.getLongExtra("TOTAL_TIME", 0);
-                        
-                        data.put("timeRemaining", timeRemaining);
-                        data.put("totalTime", totalTime);
-                        notifyListeners("timerUpdate", data);
-                        break;
-                        
-                    case "com.stanley.focusflow.TIMER_STARTED":
-                        data.put("duration", intent.getLongExtra("TIMER_DURATION", 0));
-                        data.put("startTime", intent.getLongExtra("START_TIME", 0));
-                        notifyListeners("timerStarted", data);
-                        break;
-                        
-                    case "com.stanley.focusflow.TIMER_PAUSED":
-                        data.put("timeRemaining", intent.getLongExtra("TIME_REMAINING", 0));
-                        notifyListeners("timerPaused", data);
-                        break;
-                        
-                    case "com.stanley.focusflow.TIMER_STOPPED":
-                        notifyListeners("timerStopped", data);
-                        break;
-                        
-                    case "com.stanley.focusflow.TIMER_FINISHED":
-                        data.put("duration", intent.getLongExtra("TIMER_DURATION", 0));
-                        data.put("endTime", intent.getStringExtra("END_TIME"));
-                        
-                        // Also pass the JSON data if available
-                        String timerData = intent.getStringExtra("TIMER_DATA");
-                        if (timerData != null) {
-                            data.put("timerData", timerData);
-                        }
-                        
-                        notifyListeners("timerFinished", data);
-                        break;
-                }
-            }
-        };
+        TimerEventBus.get().subscribe(this, foregroundUpdatesPerSecond);
+    }
 
-        IntentFilter filter = new IntentFilter();
-        filter.addAction("com.stanley.focusflow.TIMER_UPDATE");
-        filter.addAction("com.stanley.focusflow.TIMER_STARTED");
-        filter.addAction("com.stanley.focusflow.TIMER_PAUSED");
-        filter.addAction("com.stanley.focusflow.TIMER_STOPPED");
-        filter.addAction("com.stanley.focusflow.TIMER_FINISHED");
-        
-        getContext().registerReceiver(timerReceiver, filter);
+    @Override
+    public void onTimerUpdate(long remainingMs, long totalMs) {
+        JSObject data = new JSObject();
+        data.put("timeRemaining", remainingMs);
+        data.put("totalTime", totalMs);
+        notifyListeners("timerUpdate", data);
+    }
+
+    @Override
+    public void onTimerEvent(TimerEventLog.Event event) {
+        notifyListeners(event.getType(), toJSObject(event));
     }
 
     @PluginMethod
     public void startTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.startTimer");
+        long startNanos = methodTimer.start();
         try {
             int durationSeconds = call.getData().has("durationSeconds") ? call.getInt("durationSeconds") : 0;
             if (durationSeconds <= 0) {
@@ -93,33 +59,90 @@ public class TimerPlugin extends Plugin {
             }
 
             String taskName = call.getString("taskName", "Focus Session");
-            
+
             Intent serviceIntent = new Intent(getContext(), TimerService.class);
             serviceIntent.setAction("START_TIMER");
             serviceIntent.putExtra("DURATION_MS", durationSeconds * 1000L);
             serviceIntent.putExtra("TASK_NAME", taskName);
-            
+            serviceIntent.putExtra("TASK_ID", call.getString("taskId"));
+            // Optional low-power mode: no wake lock, completion driven by one exact alarm
+            boolean lowPower = call.getBoolean("lowPower", false);
+            serviceIntent.putExtra("LOW_POWER", lowPower);
+
             // Start the service on Android O and higher
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 getContext().startForegroundService(serviceIntent);
             } else {
                 getContext().startService(serviceIntent);
             }
-            
+
             JSObject ret = new JSObject();
             ret.put("success", true);
             ret.put("durationSeconds", durationSeconds);
             call.resolve(ret);
-            
+
             Log.d(TAG, "Timer started for " + durationSeconds + " seconds");
         } catch (Exception e) {
             Log.e(TAG, "Error starting timer", e);
             call.reject("Failed to start timer: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Run a whole work/break program in TimerService; phases advance natively, so a
+     * throttled web view cannot delay them.
+     */
+    @PluginMethod
+    public void startIntervalProgram(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.startIntervalProgram");
+        long startNanos = methodTimer.start();
+        try {
+            JSObject spec = call.getObject("program");
+            if (spec == null) {
+                call.reject("Program is required");
+                return;
+            }
+            IntervalProgram program;
+            try {
+                program = IntervalProgram.fromJson(spec.toString());
+            } catch (JSONException e) {
+                call.reject("Invalid program: " + e.getMessage());
+                return;
+            }
+
+            Intent serviceIntent = new Intent(getContext(), TimerService.class);
+            serviceIntent.setAction("START_PROGRAM");
+            serviceIntent.putExtra("PROGRAM_JSON", program.toJson());
+            serviceIntent.putExtra("TASK_NAME", call.getString("taskName", "Focus Session"));
+            serviceIntent.putExtra("TASK_ID", call.getString("taskId"));
+            serviceIntent.putExtra("LOW_POWER", call.getBoolean("lowPower", false));
+            try {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    getContext().startForegroundService(serviceIntent);
+                } else {
+                    getContext().startService(serviceIntent);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting interval program", e);
+                call.reject("Failed to start program: " + e.getMessage());
+                return;
+            }
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("phaseCount", program.getPhaseCount());
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
     @PluginMethod
     public void pauseTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.pauseTimer");
+        long startNanos = methodTimer.start();
         try {
             Intent serviceIntent = new Intent(getContext(), TimerService.class);
             serviceIntent.setAction("PAUSE_TIMER");
@@ -133,21 +156,20 @@ public class TimerPlugin extends Plugin {
         } catch (Exception e) {
             Log.e(TAG, "Error pausing timer", e);
             call.reject("Failed to pause timer: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
     @PluginMethod
     public void resumeTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.resumeTimer");
+        long startNanos = methodTimer.start();
         try {
             Intent serviceIntent = new Intent(getContext(), TimerService.class);
             serviceIntent.setAction("RESUME_TIMER");
-            
-            // Start the service on Android O and higher
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                getContext().startForegroundService(serviceIntent);
-            } else {
-                getContext().startService(serviceIntent);
-            }
+            // The service stays in the foreground while paused, so a plain start is enough
+            getContext().startService(serviceIntent);
             
             JSObject ret = new JSObject();
             ret.put("success", true);
@@ -157,11 +179,15 @@ public class TimerPlugin extends Plugin {
         } catch (Exception e) {
             Log.e(TAG, "Error resuming timer", e);
             call.reject("Failed to resume timer: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
     @PluginMethod
     public void stopTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.stopTimer");
+        long startNanos = methodTimer.start();
         try {
             Intent serviceIntent = new Intent(getContext(), TimerService.class);
             serviceIntent.setAction("STOP_TIMER");
@@ -175,32 +201,413 @@ public class TimerPlugin extends Plugin {
         } catch (Exception e) {
             Log.e(TAG, "Error stopping timer", e);
             call.reject("Failed to stop timer: " + e.getMessage());
+        } finally {
+            methodTimer.stop(startNanos);
         }
     }
 
     @PluginMethod
     public void getTimerStatus(PluginCall call) {
-        // For now, we'll implement a simple check to see if the service is running
-        // A more comprehensive implementation would require a bindService approach
-        // to get the exact timer state
-        
-        // This is a simplified implementation
-        JSObject ret = new JSObject();
-        boolean isServiceRunning = TimerStatusHelper.isServiceRunning(getContext(), TimerService.class);
-        ret.put("isRunning", isServiceRunning);
-        call.resolve(ret);
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.getTimerStatus");
+        long startNanos = methodTimer.start();
+        try {
+            // TimerService publishes a snapshot on every state change, so this never leaves the process
+            TimerSnapshot snapshot = TimerSnapshot.current();
+            JSObject ret = new JSObject();
+            ret.put("isRunning", snapshot.isRunning());
+            ret.put("isPaused", snapshot.isPaused());
+            ret.put("timeRemaining", snapshot.getRemainingMs(SystemClock.elapsedRealtime()));
+            ret.put("totalTime", snapshot.getDurationMs());
+            ret.put("taskName", snapshot.getTaskName());
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
     }
 
-    @Override
-    protected void handleOnDestroy() {
-        if (timerReceiver != null) {
+    @PluginMethod
+    public void startNamedTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.startNamedTimer");
+        long startNanos = methodTimer.start();
+        try {
+            String id = call.getString("id");
+            int durationSeconds = call.getInt("durationSeconds", 0);
+            if (id == null || id.isEmpty()) {
+                call.reject("Timer id is required");
+                return;
+            }
+            if (durationSeconds <= 0) {
+                call.reject("Invalid duration provided");
+                return;
+            }
+
+            Intent serviceIntent = new Intent(getContext(), TimerService.class);
+            serviceIntent.setAction("START_NAMED_TIMER");
+            serviceIntent.putExtra("TIMER_ID", id);
+            serviceIntent.putExtra("LABEL", call.getString("label", "Timer"));
+            serviceIntent.putExtra("DURATION_MS", durationSeconds * 1000L);
             try {
-                getContext().unregisterReceiver(timerReceiver);
-                timerReceiver = null;
+                // The service goes to the foreground for the timers if no focus session has
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    getContext().startForegroundService(serviceIntent);
+                } else {
+                    getContext().startService(serviceIntent);
+                }
             } catch (Exception e) {
-                Log.e(TAG, "Error unregistering receiver", e);
+                Log.e(TAG, "Error starting named timer", e);
+                call.reject("Failed to start timer: " + e.getMessage());
+                return;
+            }
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("id", id);
+            ret.put("durationSeconds", durationSeconds);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void pauseNamedTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.pauseNamedTimer");
+        long startNanos = methodTimer.start();
+        try {
+            sendNamedTimerAction(call, "PAUSE_NAMED_TIMER");
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void resumeNamedTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.resumeNamedTimer");
+        long startNanos = methodTimer.start();
+        try {
+            sendNamedTimerAction(call, "RESUME_NAMED_TIMER");
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void cancelNamedTimer(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.cancelNamedTimer");
+        long startNanos = methodTimer.start();
+        try {
+            sendNamedTimerAction(call, "CANCEL_NAMED_TIMER");
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void listNamedTimers(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.listNamedTimers");
+        long startNanos = methodTimer.start();
+        try {
+            long now = SystemClock.elapsedRealtime();
+            JSArray timers = new JSArray();
+            for (MultiTimerEngine.NamedTimer timer : TimerSnapshot.currentNamedTimers()) {
+                JSObject item = new JSObject();
+                item.put("id", timer.getId());
+                item.put("label", timer.getLabel());
+                item.put("duration", timer.getDurationMs());
+                item.put("timeRemaining", timer.getRemainingMs(now));
+                item.put("isPaused", timer.isPaused());
+                timers.put(item);
+            }
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("timers", timers);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    private void sendNamedTimerAction(PluginCall call, String action) {
+        String id = call.getString("id");
+        if (id == null) {
+            call.reject("Timer id is required");
+            return;
+        }
+        try {
+            Intent serviceIntent = new Intent(getContext(), TimerService.class);
+            serviceIntent.setAction(action);
+            serviceIntent.putExtra("TIMER_ID", id);
+            getContext().startService(serviceIntent);
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("id", id);
+            call.resolve(ret);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating named timer", e);
+            call.reject("Failed to update timer: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void getSessionTotals(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.getSessionTotals");
+        long startNanos = methodTimer.start();
+        try {
+            SessionLog.Grouping grouping;
+            try {
+                grouping = SessionLog.Grouping.valueOf(call.getString("groupBy", "day").toUpperCase(Locale.US));
+            } catch (IllegalArgumentException e) {
+                call.reject("groupBy must be one of day, week, task");
+                return;
             }
+            long from = call.getLong("from", 0L);
+            long to = call.getLong("to", Long.MAX_VALUE);
+
+            try {
+                SessionLog log = SessionLogs.get(getContext());
+                List<SessionLog.Total> totals = log.totals(grouping, from, to,
+                        new RecurrenceEngine(ZoneId.systemDefault()));
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("groupBy", grouping.name().toLowerCase(Locale.US));
+                ret.put("totals", toJSArray(totals));
+                call.resolve(ret);
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading session log", e);
+                call.reject("Error reading session log: " + e.getMessage());
+            }
+        } finally {
+            methodTimer.stop(startNanos);
         }
+    }
+
+    @PluginMethod
+    public void getFocusDashboard(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.getFocusDashboard");
+        long startNanos = methodTimer.start();
+        try {
+            int dayCount = Math.max(1, Math.min(call.getInt("days", 7), FocusRollups.DAYS_KEPT));
+            int weekCount = Math.max(1, Math.min(call.getInt("weeks", 12), FocusRollups.WEEKS_KEPT));
+            int taskCount = Math.max(0, call.getInt("topTasks", 5));
+
+            try {
+                FocusRollups rollups = SessionLogs.getRollups(getContext());
+                long today = rollups.epochDayOf(System.currentTimeMillis());
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("today", toJSObject(rollups.day(today)));
+                ret.put("thisWeek", toJSObject(rollups.week(today)));
+                ret.put("allTime", toJSObject(rollups.allTime()));
+                ret.put("days", toJSArray(rollups.days(today, dayCount)));
+                ret.put("weeks", toJSArray(rollups.weeks(today, weekCount)));
+                ret.put("topTasks", toJSArray(rollups.topTasks(taskCount)));
+                call.resolve(ret);
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading focus rollups", e);
+                call.reject("Error reading focus rollups: " + e.getMessage());
+            }
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void setTimerUpdateRate(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.setTimerUpdateRate");
+        long startNanos = methodTimer.start();
+        try {
+            Double updatesPerSecond = call.getDouble("updatesPerSecond");
+            if (updatesPerSecond == null || updatesPerSecond < 0) {
+                call.reject("Invalid update rate provided");
+                return;
+            }
+
+            foregroundUpdatesPerSecond = updatesPerSecond;
+            if (inForeground) {
+                TimerEventBus.get().setUpdateRate(this, updatesPerSecond);
+            }
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("updatesPerSecond", updatesPerSecond);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    @PluginMethod
+    public void getTimerEventStats(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.getTimerEventStats");
+        long startNanos = methodTimer.start();
+        try {
+            TimerEventBus bus = TimerEventBus.get();
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("published", bus.getPublishedUpdateCount());
+            ret.put("delivered", bus.getDeliveredUpdateCount());
+            // Countdown updates that never crossed the bridge
+            ret.put("saved", bus.getSavedUpdateCount());
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Counters and latency percentiles for the native plugins, the tick path and the app
+     * blocker's accessibility events. Pass {@code reset: true} to start a fresh window.
+     */
+    @PluginMethod
+    public void getNativeMetrics(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.getNativeMetrics");
+        long startNanos = methodTimer.start();
+        try {
+            JSObject counters = new JSObject();
+            for (Map.Entry<String, Long> entry : NativeMetrics.counterValues().entrySet()) {
+                counters.put(entry.getKey(), entry.getValue().longValue());
+            }
+            JSObject timers = new JSObject();
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : NativeMetrics.timerSnapshots().entrySet()) {
+                LatencyHistogram.Snapshot snapshot = entry.getValue();
+                if (snapshot.getCount() == 0) {
+                    continue;
+                }
+                JSObject item = new JSObject();
+                item.put("count", snapshot.getCount());
+                item.put("meanNs", snapshot.getMeanNanos());
+                item.put("p50Ns", snapshot.getPercentileNanos(50));
+                item.put("p90Ns", snapshot.getPercentileNanos(90));
+                item.put("p99Ns", snapshot.getPercentileNanos(99));
+                item.put("maxNs", snapshot.getMaxNanos());
+                timers.put(entry.getKey(), item);
+            }
+            if (call.getBoolean("reset", false)) {
+                NativeMetrics.reset();
+            }
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("tracing", NativeMetrics.isTracing());
+            ret.put("counters", counters);
+            ret.put("timers", timers);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Mirror timed sections into android.os.Trace while a capture is running; counters are
+     * written as trace counters when tracing is switched off again, so the capture ends
+     * with their totals.
+     */
+    @PluginMethod
+    public void setNativeTracing(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.setNativeTracing");
+        long startNanos = methodTimer.start();
+        try {
+            boolean enabled = call.getBoolean("enabled", false);
+            if (NativeMetrics.isTracing() && !enabled) {
+                NativeMetrics.exportCountersToTrace();
+            }
+            NativeMetrics.setTracing(enabled);
+
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("tracing", enabled);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    /**
+     * Return the lifecycle events recorded after {@code since}, so the web view can catch up
+     * in one call after it was suspended. A different {@code epoch} means the process has
+     * restarted since the caller's last event, and everything still kept is returned.
+     */
+    @PluginMethod
+    public void getEventsSince(PluginCall call) {
+        NativeMetrics.Timer methodTimer = NativeMetrics.timer("TimerPlugin.getEventsSince");
+        long startNanos = methodTimer.start();
+        try {
+            TimerEventLog log = TimerEventBus.get().getEventLog();
+            long since = call.getLong("since", 0L);
+            Long epoch = call.getLong("epoch");
+            if (epoch != null && epoch != log.getEpoch()) {
+                since = 0;
+            }
+
+            TimerEventLog.Batch batch = log.since(since);
+            JSArray events = new JSArray();
+            for (TimerEventLog.Event event : batch.events) {
+                JSObject item = toJSObject(event);
+                item.put("type", event.getType());
+                events.put(item);
+            }
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("epoch", log.getEpoch());
+            ret.put("lastSeq", batch.lastSeq);
+            ret.put("truncated", batch.truncated);
+            ret.put("events", events);
+            call.resolve(ret);
+        } finally {
+            methodTimer.stop(startNanos);
+        }
+    }
+
+    private static JSObject toJSObject(TimerEventLog.Event event) {
+        JSObject item = new JSObject();
+        for (Map.Entry<String, Object> field : event.getData().entrySet()) {
+            item.put(field.getKey(), field.getValue());
+        }
+        item.put("seq", event.getSeq());
+        item.put("epoch", TimerEventBus.get().getEventLog().getEpoch());
+        item.put("time", event.getTimeMs());
+        return item;
+    }
+
+    private static JSObject toJSObject(SessionLog.Total total) {
+        JSObject item = new JSObject();
+        item.put("key", total.key);
+        item.put("sessions", total.sessions);
+        item.put("completedSessions", total.completedSessions);
+        item.put("focusMs", total.focusMs);
+        return item;
+    }
+
+    private static JSArray toJSArray(List<SessionLog.Total> totals) {
+        JSArray result = new JSArray();
+        for (SessionLog.Total total : totals) {
+            result.put(toJSObject(total));
+        }
+        return result;
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        inForeground = true;
+        TimerEventBus.get().setUpdateRate(this, foregroundUpdatesPerSecond);
+    }
+
+    @Override
+    protected void handleOnPause() {
+        // Nobody sees the countdown in the background; lifecycle events still get through
+        inForeground = false;
+        TimerEventBus.get().setUpdateRate(this, 0);
+        super.handleOnPause();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        TimerEventBus.get().unsubscribe(this);
         super.handleOnDestroy();
     }
 }
@@ -1,17 +1,22 @@
 package com.stanley.focusflow;
 
+import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Binder;
 import android.os.Build;
-import android.os.CountDownTimer;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -22,8 +27,13 @@ import com.stanley.focusflow.R;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
@@ -31,17 +41,60 @@ public class TimerService extends Service {
     private static final String TAG = "TimerService";
     private static final String CHANNEL_ID = "focus_timer_channel";
     private static final int NOTIFICATION_ID = 102;
+    // Completed named timers post under this id, tagged with the timer id
+    private static final int NAMED_TIMER_DONE_NOTIFICATION_ID = 104;
+
+    private static final long TICK_INTERVAL_MS = 1000;
+    private static final long COMPLETION_WAKE_LOCK_TIMEOUT_MS = 10 * 1000;
+    private static final String CHECKPOINT_FILE = "timer_checkpoint.bin";
+
+    private static final NativeMetrics.Timer TICK_TIMER = NativeMetrics.timer("TimerService.tick");
+    private static final StripedCounter BROADCASTS = NativeMetrics.counter("TimerService.broadcasts");
+
+    private static PowerManager.WakeLock completionWakeLock;
 
     private final IBinder binder = new LocalBinder();
-    private CountDownTimer countDownTimer;
-    private long timerDurationMs = 0;
-    private long timeRemainingMs = 0;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private TickEngine tickEngine;
+    private MultiTimerEngine namedTimers;
+    // Shown under the focus session when named timers are running too, null when there are none
+    private volatile String namedTimersSummary;
+    private boolean namedTimersHoldWakeLock;
+    private volatile long timerDurationMs = 0;
+    private volatile long timeRemainingMs = 0;
     private long startTimeMs = 0;
-    private long pausedTimeMs = 0;
     private boolean isTimerRunning = false;
-    private boolean isTimerPaused = false;
+    private volatile boolean isTimerPaused = false;
     private PowerManager.WakeLock wakeLock;
-    private String currentTaskName = "";
+    private volatile String currentTaskName = "";
+    private String currentTaskId;
+    private int pauseCount = 0;
+    // The interval program being run, null for a single session
+    private IntervalProgram program;
+    private int phaseIndex;
+    // The current phase waits for resumeTimer before counting down
+    private boolean phaseWaiting;
+    // End of the current countdown, which is where the next phase starts from
+    private long countdownDeadlineElapsed;
+    // Completion comes from one exact alarm and the notification counts down by itself,
+    // so no wake lock is held while the session runs
+    private volatile boolean lowPowerMode = false;
+
+    // The ongoing notification is built once per session and only mutated afterwards.
+    // Guarded by notificationLock since ticks update it from the tick thread.
+    private final Object notificationLock = new Object();
+    private final TimeFormatter timeFormatter = new TimeFormatter();
+    private NotificationManager notificationManager;
+    private PendingIntent contentPendingIntent;
+    private NotificationCompat.Action pauseAction;
+    private NotificationCompat.Action resumeAction;
+    private NotificationCompat.Action stopAction;
+    private NotificationCompat.Builder ongoingBuilder;
+    private boolean ongoingShowsPaused;
+    private boolean ongoingUsesChronometer;
+    private final NotificationRefreshPolicy refreshPolicy = new NotificationRefreshPolicy();
+    private BroadcastReceiver screenStateReceiver;
+    private File checkpointFile;
 
     public class LocalBinder extends Binder {
         TimerService getService() {
@@ -56,6 +109,42 @@ public class TimerService extends Service {
 
         // Create notification channel for API 26+
         createNotificationChannel();
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        createNotificationActions();
+        checkpointFile = new File(getFilesDir(), CHECKPOINT_FILE);
+
+        // Ticks run off the main thread, keyed to elapsedRealtime deadlines
+        tickEngine = new TickEngine("FocusFlow-TimerTick", TICK_INTERVAL_MS, new TickEngine.Listener() {
+            @Override
+            public void onTick(long remainingMs) {
+                long startNanos = TICK_TIMER.start();
+                timeRemainingMs = remainingMs;
+                // Refresh the notification only as often as the time left and screen state warrant
+                if (!lowPowerMode && refreshPolicy.shouldRefresh(remainingMs, SystemClock.elapsedRealtime())) {
+                    updateNotification(remainingMs);
+                }
+                broadcastTimerUpdate(remainingMs);
+                TICK_TIMER.stop(startNanos);
+            }
+
+            @Override
+            public void onFinish() {
+                mainHandler.post(TimerService.this::onTimerFinished);
+            }
+        });
+
+        // Named timers share one thread that waits only for the earliest deadline
+        namedTimers = new MultiTimerEngine("FocusFlow-NamedTimers", new MultiTimerEngine.Listener() {
+            @Override
+            public void onTimerFinished(final MultiTimerEngine.NamedTimer timer) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onNamedTimerFinished(timer);
+                    }
+                });
+            }
+        });
 
         // Acquire wake lock to keep CPU running when screen is off
         PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
@@ -64,11 +153,28 @@ public class TimerService extends Service {
                 "FocusFlow::TimerWakeLock"
         );
         wakeLock.setReferenceCounted(false);
+
+        // Skip notification refreshes nobody can see
+        refreshPolicy.setInteractive(powerManager.isInteractive());
+        screenStateReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                refreshPolicy.setInteractive(Intent.ACTION_SCREEN_ON.equals(intent.getAction()));
+            }
+        };
+        IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        screenFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        registerReceiver(screenStateReceiver, screenFilter);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent == null) {
+            // Restarted after the process was killed: carry on with the saved session
+            if (!isTimerRunning && restoreFromCheckpoint()) {
+                return START_STICKY;
+            }
+            stopSelf();
             return START_NOT_STICKY;
         }
 
@@ -84,7 +190,21 @@ public class TimerService extends Service {
                 if (currentTaskName == null) {
                     currentTaskName = "Focus Session";
                 }
-                startTimer(timerDurationMs);
+                currentTaskId = intent.getStringExtra("TASK_ID");
+                startTimer(timerDurationMs, intent.getBooleanExtra("LOW_POWER", false));
+                break;
+            case "START_PROGRAM":
+                IntervalProgram requested;
+                try {
+                    requested = IntervalProgram.fromJson(intent.getStringExtra("PROGRAM_JSON"));
+                } catch (JSONException e) {
+                    // TimerPlugin validates programs before sending them, so this is a bug
+                    Log.e(TAG, "Invalid interval program", e);
+                    break;
+                }
+                String programTaskName = intent.getStringExtra("TASK_NAME");
+                startProgram(requested, programTaskName != null ? programTaskName : "Focus Session",
+                        intent.getStringExtra("TASK_ID"), intent.getBooleanExtra("LOW_POWER", false));
                 break;
             case "PAUSE_TIMER":
                 pauseTimer();
@@ -95,6 +215,52 @@ public class TimerService extends Service {
             case "STOP_TIMER":
                 stopTimer();
                 break;
+            case TimerAlarmReceiver.ACTION_TIMER_DEADLINE:
+                if (!isTimerRunning && !restoreFromCheckpoint()) {
+                    // Nothing was saved, so the session already ended or was stopped
+                    releaseCompletionWakeLock();
+                    if (namedTimers.size() == 0) {
+                        stopSelf();
+                    }
+                    break;
+                }
+                // After the process was killed the alarm is what recreates the service, and
+                // a restore that finds the deadline passed has finished the session already
+                onTimerFinished();
+                releaseCompletionWakeLock();
+                break;
+            case "START_NAMED_TIMER":
+                String timerId = intent.getStringExtra("TIMER_ID");
+                String label = intent.getStringExtra("LABEL");
+                namedTimers.start(timerId, label != null ? label : "Timer",
+                        intent.getLongExtra("DURATION_MS", 0));
+                onNamedTimersChanged();
+                break;
+            case "PAUSE_NAMED_TIMER":
+                if (namedTimers.pause(intent.getStringExtra("TIMER_ID"))) {
+                    onNamedTimersChanged();
+                }
+                break;
+            case "RESUME_NAMED_TIMER":
+                if (namedTimers.resume(intent.getStringExtra("TIMER_ID"))) {
+                    onNamedTimersChanged();
+                }
+                break;
+            case "CANCEL_NAMED_TIMER":
+                if (namedTimers.cancel(intent.getStringExtra("TIMER_ID"))) {
+                    onNamedTimersChanged();
+                }
+                break;
+            case TimerAlarmReceiver.ACTION_NAMED_TIMER_DEADLINE:
+                namedTimers.processDue();
+                // Finished timers are handled on this thread first, the lock goes after them
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        releaseCompletionWakeLock();
+                    }
+                });
+                break;
         }
 
         // Return START_STICKY to ensure service restarts if killed
@@ -102,57 +268,263 @@ public class TimerService extends Service {
     }
 
     public void startTimer(long durationMs) {
+        startTimer(durationMs, false);
+    }
+
+    public void startTimer(long durationMs, boolean lowPower) {
         if (isTimerRunning && !isTimerPaused) {
             stopTimer();
         }
 
+        program = null;
+        phaseWaiting = false;
         timerDurationMs = durationMs;
-        timeRemainingMs = durationMs;
         startTimeMs = System.currentTimeMillis();
+        pauseCount = 0;
+        beginCountdown(durationMs, lowPower);
+        broadcastTimerStarted(durationMs);
+        Log.d(TAG, "Timer started for " + (durationMs / 1000) + " seconds");
+    }
+
+    /**
+     * Run an interval program from its first phase. Each phase starts where the previous
+     * one ended, from this service, without a round trip through the app.
+     */
+    public void startProgram(IntervalProgram intervalProgram, String taskName, String taskId,
+                             boolean lowPower) {
+        if (isTimerRunning) {
+            // Whatever was running counts as abandoned, but the service stays in the foreground
+            timeRemainingMs = tickEngine.getRemainingMs();
+            logSession(false);
+            tickEngine.stop();
+            if (lowPowerMode) {
+                cancelDeadlineAlarm();
+            }
+            broadcastTimerStopped();
+        }
+
+        program = intervalProgram;
+        currentTaskName = taskName;
+        currentTaskId = taskId;
+        startPhase(0, SystemClock.elapsedRealtime(), lowPower);
+        Log.d(TAG, "Interval program started with " + program.getPhaseCount() + " phases");
+    }
+
+    /**
+     * Count phase {@code index} down from {@code boundaryElapsed}, when the phase before it
+     * ended, so a late start is taken out of this phase rather than added to the program.
+     */
+    private void startPhase(int index, long boundaryElapsed, boolean lowPower) {
+        IntervalProgram.Phase phase = program.getPhase(index);
+        phaseIndex = index;
+        phaseWaiting = false;
+        timerDurationMs = phase.getDurationMs();
+        startTimeMs = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - boundaryElapsed);
+        pauseCount = 0;
+        beginCountdownUntil(boundaryElapsed + phase.getDurationMs(), lowPower);
+        broadcastIntervalPhase();
+    }
+
+    /**
+     * Show phase {@code index} paused at its full length until resumeTimer starts it.
+     */
+    private void readyPhase(int index) {
+        phaseIndex = index;
+        phaseWaiting = true;
+        timerDurationMs = program.getPhase(index).getDurationMs();
+        startTimeMs = System.currentTimeMillis();
+        pauseCount = 0;
+        enterPaused(timerDurationMs, lowPowerMode);
+        writeCheckpoint();
+        broadcastIntervalPhase();
+    }
+
+    private void beginCountdown(long remainingMs, boolean lowPower) {
+        beginCountdownUntil(SystemClock.elapsedRealtime() + remainingMs, lowPower);
+    }
+
+    private void beginCountdownUntil(long deadlineElapsed, boolean lowPower) {
+        long remainingMs = Math.max(0, deadlineElapsed - SystemClock.elapsedRealtime());
+        countdownDeadlineElapsed = deadlineElapsed;
+        timeRemainingMs = remainingMs;
         isTimerRunning = true;
         isTimerPaused = false;
+        lowPowerMode = lowPower && armDeadlineAlarm(remainingMs);
 
         // Acquire wake lock to keep the CPU running
-        if (!wakeLock.isHeld()) {
+        if (!lowPowerMode && !wakeLock.isHeld()) {
             wakeLock.acquire();
         }
 
         // Start the service in foreground with notification
-        startForeground(NOTIFICATION_ID, buildNotification(timeRemainingMs));
+        synchronized (notificationLock) {
+            ongoingBuilder = createOngoingBuilder();
+            refreshPolicy.reset();
+            startForeground(NOTIFICATION_ID, buildNotification(timeRemainingMs));
+            refreshPolicy.recordRefresh(SystemClock.elapsedRealtime());
+        }
 
-        countDownTimer = new CountDownTimer(timeRemainingMs, 1000) {
-            @Override
-            public void onTick(long millisUntilFinished) {
-                timeRemainingMs = millisUntilFinished;
-                // Update notification every 5 seconds to reduce system overhead
-                if (millisUntilFinished % 5000 < 1000) {
-                    updateNotification(millisUntilFinished);
-                }
-                broadcastTimerUpdate(millisUntilFinished);
+        tickEngine.startUntil(deadlineElapsed);
+        publishSnapshot();
+        writeCheckpoint();
+    }
+
+    /**
+     * Hold the session paused with {@code remainingMs} left, as the foreground service.
+     */
+    private void enterPaused(long remainingMs, boolean lowPower) {
+        timeRemainingMs = remainingMs;
+        isTimerRunning = true;
+        isTimerPaused = true;
+        // Resuming re-arms the deadline alarm in low-power mode
+        lowPowerMode = lowPower;
+        if (!lowPowerMode) {
+            wakeLock.acquire();
+        }
+        synchronized (notificationLock) {
+            ongoingBuilder = createOngoingBuilder();
+            refreshPolicy.reset();
+            startForeground(NOTIFICATION_ID, buildNotification(timeRemainingMs));
+            refreshPolicy.recordRefresh(SystemClock.elapsedRealtime());
+        }
+        tickEngine.startPaused(remainingMs);
+        publishSnapshot();
+    }
+
+    /**
+     * @return false if there was no session to restore
+     */
+    private boolean restoreFromCheckpoint() {
+        TimerCheckpoint checkpoint;
+        try {
+            checkpoint = TimerCheckpoint.readFrom(checkpointFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading timer checkpoint", e);
+            return false;
+        }
+        if (checkpoint == null) {
+            return false;
+        }
+
+        timerDurationMs = checkpoint.getDurationMs();
+        startTimeMs = checkpoint.getStartTimeMs();
+        currentTaskName = checkpoint.getTaskName();
+        currentTaskId = checkpoint.getTaskId();
+        pauseCount = checkpoint.getPauseCount();
+        program = null;
+        if (checkpoint.getProgramJson() != null) {
+            try {
+                program = IntervalProgram.fromJson(checkpoint.getProgramJson());
+                phaseIndex = Math.min(checkpoint.getPhaseIndex(), program.getPhaseCount() - 1);
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not restore interval program, continuing the current phase", e);
             }
+        }
+        long nowWall = System.currentTimeMillis();
+        long nowElapsed = SystemClock.elapsedRealtime();
+        long remainingMs = checkpoint.remainingAt(nowWall, nowElapsed);
 
-            @Override
-            public void onFinish() {
-                timeRemainingMs = 0;
-                isTimerRunning = false;
-                broadcastTimerFinished();
-                showTimerCompletedNotification();
-                stopForeground(false); // Keep notification visible after timer ends
-                stopSelf();
+        if (checkpoint.isPaused()) {
+            enterPaused(remainingMs, checkpoint.isLowPower());
+            broadcastTimerPaused();
+        } else if (remainingMs > 0) {
+            beginCountdownUntil(checkpoint.deadlineElapsedAt(nowWall, nowElapsed), checkpoint.isLowPower());
+            broadcastTimerStarted(remainingMs);
+        } else {
+            // The session ended while the process was dead; drop its alarm too. A program
+            // carries on from when the phase really ended.
+            isTimerRunning = true;
+            lowPowerMode = checkpoint.isLowPower();
+            countdownDeadlineElapsed = checkpoint.deadlineElapsedAt(nowWall, nowElapsed);
+            onTimerFinished();
+        }
+
+        Log.d(TAG, "Timer restored with " + (remainingMs / 1000) + " seconds remaining");
+        return true;
+    }
+
+    private void onTimerFinished() {
+        // Both the tick thread and the deadline alarm report the end, and with a program the
+        // second report arrives once the next phase is already counting
+        if (!isTimerRunning || isTimerPaused || SystemClock.elapsedRealtime() < countdownDeadlineElapsed) {
+            return;
+        }
+        tickEngine.stop();
+        if (lowPowerMode) {
+            cancelDeadlineAlarm();
+        }
+        timeRemainingMs = 0;
+        logSession(true);
+        if (program != null && advanceProgram()) {
+            return;
+        }
+
+        isTimerRunning = false;
+        publishSnapshot();
+        deleteCheckpoint();
+        if (program != null) {
+            broadcastIntervalProgramFinished();
+            program = null;
+        } else {
+            broadcastTimerFinished();
+        }
+        showTimerCompletedNotification();
+        if (namedTimers.size() > 0) {
+            // The service lives on for the named timers, which keep the wake lock only if they need it
+            if (wakeLock.isHeld() && !namedTimersHoldWakeLock) {
+                wakeLock.release();
             }
-        };
+            showNamedTimersInForeground();
+        } else {
+            stopForeground(false); // Keep notification visible after timer ends
+            stopSelf();
+        }
+    }
 
-        countDownTimer.start();
-        broadcastTimerStarted(durationMs);
-        Log.d(TAG, "Timer started for " + (durationMs / 1000) + " seconds");
+    /**
+     * Move on from the phase that just ended.
+     * @return false if it was the program's last phase
+     */
+    private boolean advanceProgram() {
+        long boundary = countdownDeadlineElapsed;
+        long nowElapsed = SystemClock.elapsedRealtime();
+        long nowWall = System.currentTimeMillis();
+        int next = phaseIndex + 1;
+        // Phases that ran out while the process was dead are logged and skipped
+        while (next < program.getPhaseCount() && program.isAutoAdvance()
+                && nowElapsed - boundary >= program.getPhase(next).getDurationMs()) {
+            phaseIndex = next;
+            timerDurationMs = program.getPhase(next).getDurationMs();
+            startTimeMs = nowWall - (nowElapsed - boundary);
+            pauseCount = 0;
+            boundary += timerDurationMs;
+            logSession(true, nowWall - (nowElapsed - boundary));
+            next++;
+        }
+        if (next >= program.getPhaseCount()) {
+            return false;
+        }
+
+        if (program.isAutoAdvance()) {
+            startPhase(next, boundary, lowPowerMode);
+        } else {
+            readyPhase(next);
+        }
+        showPhaseNotification();
+        return true;
     }
 
     public void pauseTimer() {
-        if (isTimerRunning && !isTimerPaused && countDownTimer != null) {
-            countDownTimer.cancel();
+        if (isTimerRunning && !isTimerPaused && tickEngine.pause()) {
             isTimerPaused = true;
-            pausedTimeMs = timeRemainingMs;
+            pauseCount++;
+            timeRemainingMs = tickEngine.getRemainingMs();
+            if (lowPowerMode) {
+                cancelDeadlineAlarm();
+            }
             
+            publishSnapshot();
+            writeCheckpoint();
             updateNotification(timeRemainingMs);
             broadcastTimerPaused();
             
@@ -161,24 +533,50 @@ public class TimerService extends Service {
     }
 
     public void resumeTimer() {
-        if (isTimerRunning && isTimerPaused) {
+        if (isTimerRunning && isTimerPaused && tickEngine.resume()) {
             isTimerPaused = false;
-            startTimer(pausedTimeMs);
-            Log.d(TAG, "Timer resumed with " + (pausedTimeMs / 1000) + " seconds remaining");
+            if (phaseWaiting) {
+                phaseWaiting = false;
+                startTimeMs = System.currentTimeMillis();
+            }
+            countdownDeadlineElapsed = tickEngine.getDeadlineElapsed();
+            timeRemainingMs = tickEngine.getRemainingMs();
+            if (lowPowerMode && !armDeadlineAlarm(timeRemainingMs)) {
+                lowPowerMode = false;
+                wakeLock.acquire();
+            }
+            
+            publishSnapshot();
+            writeCheckpoint();
+            updateNotification(timeRemainingMs);
+            // The app treats a resume as a new segment starting with the time that was left
+            broadcastTimerStarted(timeRemainingMs);
+            
+            Log.d(TAG, "Timer resumed with " + (timeRemainingMs / 1000) + " seconds remaining");
         }
     }
 
     public void stopTimer() {
-        if (countDownTimer != null) {
-            countDownTimer.cancel();
+        if (isTimerRunning) {
+            // Record the abandoned session with the time actually focused
+            timeRemainingMs = tickEngine.getRemainingMs();
+            logSession(false);
+        }
+        program = null;
+        phaseWaiting = false;
+        tickEngine.stop();
+        if (lowPowerMode) {
+            cancelDeadlineAlarm();
         }
         
         isTimerRunning = false;
         isTimerPaused = false;
         timeRemainingMs = 0;
+        publishSnapshot();
+        deleteCheckpoint();
         
-        // Release wake lock if held
-        if (wakeLock.isHeld()) {
+        // Release wake lock if held and the named timers do not rely on it
+        if (wakeLock.isHeld() && !namedTimersHoldWakeLock) {
             try {
                 wakeLock.release();
             } catch (Exception e) {
@@ -187,65 +585,368 @@ public class TimerService extends Service {
         }
         
         broadcastTimerStopped();
-        stopForeground(true);
-        stopSelf();
+        if (namedTimers.size() > 0) {
+            showNamedTimersInForeground();
+        } else {
+            stopForeground(true);
+            stopSelf();
+        }
         
         Log.d(TAG, "Timer stopped");
     }
 
+    /**
+     * Publish the current state for lock-free status queries; called on every state change.
+     */
+    private void publishSnapshot() {
+        if (!isTimerRunning) {
+            TimerSnapshot.publish(TimerSnapshot.IDLE);
+        } else if (isTimerPaused) {
+            TimerSnapshot.publish(TimerSnapshot.paused(timerDurationMs, timeRemainingMs, currentTaskName));
+        } else {
+            TimerSnapshot.publish(TimerSnapshot.counting(timerDurationMs,
+                    tickEngine.getDeadlineElapsed(), currentTaskName));
+        }
+    }
+
+    /**
+     * Save the session so it survives process death; called on state changes, never per tick.
+     */
+    private void writeCheckpoint() {
+        long nowElapsed = SystemClock.elapsedRealtime();
+        long remainingMs = isTimerPaused
+                ? timeRemainingMs
+                : Math.max(0, tickEngine.getDeadlineElapsed() - nowElapsed);
+        TimerCheckpoint checkpoint = new TimerCheckpoint(timerDurationMs, remainingMs, startTimeMs,
+                System.currentTimeMillis(), nowElapsed, isTimerPaused, lowPowerMode, pauseCount,
+                currentTaskName, currentTaskId, program != null ? program.toJson() : null, phaseIndex);
+        try {
+            checkpoint.writeTo(checkpointFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing timer checkpoint", e);
+        }
+    }
+
+    private void logSession(boolean completed) {
+        logSession(completed, System.currentTimeMillis());
+    }
+
+    private void logSession(boolean completed, long endTimeMs) {
+        // Breaks are not focus, and a phase that never started has nothing to record
+        if (program != null
+                && (phaseWaiting || program.getPhase(phaseIndex).getKind() == IntervalProgram.Kind.BREAK)) {
+            return;
+        }
+        long focusMs = Math.max(0, timerDurationMs - timeRemainingMs);
+        String taskKey = currentTaskId != null ? currentTaskId : currentTaskName;
+        try {
+            SessionLogs.get(this).append(startTimeMs, endTimeMs, focusMs, taskKey,
+                    pauseCount, completed);
+            // Keep the dashboard rollups current so opening it never rescans the history
+            SessionLogs.getRollups(this);
+        } catch (IOException e) {
+            Log.e(TAG, "Error logging focus session", e);
+        }
+    }
+
+    private void deleteCheckpoint() {
+        if (checkpointFile.exists() && !checkpointFile.delete()) {
+            Log.e(TAG, "Could not delete timer checkpoint");
+        }
+    }
+
     private void updateNotification(long millisUntilFinished) {
-        NotificationManager notificationManager = 
-                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        if (notificationManager != null) {
+        if (notificationManager == null) {
+            return;
+        }
+        synchronized (notificationLock) {
+            // notify() parcels the notification, after which the text buffer can be reused
             notificationManager.notify(NOTIFICATION_ID, buildNotification(millisUntilFinished));
+            refreshPolicy.recordRefresh(SystemClock.elapsedRealtime());
         }
     }
 
-    private Notification buildNotification(long millisUntilFinished) {
-        // Use fully qualified class name for clarity
+    /**
+     * Create the PendingIntents and actions shared by every session of this service.
+     */
+    private void createNotificationActions() {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         notificationIntent.setAction(Intent.ACTION_MAIN);
         notificationIntent.addCategory(Intent.CATEGORY_LAUNCHER);
         notificationIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-        
-        PendingIntent pendingIntent = PendingIntent.getActivity(
+        contentPendingIntent = PendingIntent.getActivity(
                 this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE);
 
         // Create action buttons for the notification
         Intent stopIntent = new Intent(this, TimerService.class);
         stopIntent.setAction("STOP_TIMER");
-        PendingIntent stopPendingIntent = PendingIntent.getService(
-                this, 1, stopIntent, PendingIntent.FLAG_IMMUTABLE);
+        stopAction = new NotificationCompat.Action(0, "Stop", PendingIntent.getService(
+                this, 1, stopIntent, PendingIntent.FLAG_IMMUTABLE));
 
-        Intent pauseResumeIntent = new Intent(this, TimerService.class);
-        pauseResumeIntent.setAction(isTimerPaused ? "RESUME_TIMER" : "PAUSE_TIMER");
-        PendingIntent pauseResumePendingIntent = PendingIntent.getService(
-                this, 2, pauseResumeIntent, PendingIntent.FLAG_IMMUTABLE);
+        Intent pauseIntent = new Intent(this, TimerService.class);
+        pauseIntent.setAction("PAUSE_TIMER");
+        pauseAction = new NotificationCompat.Action(0, "Pause", PendingIntent.getService(
+                this, 2, pauseIntent, PendingIntent.FLAG_IMMUTABLE));
 
-        // Format time remaining
-        String timeString = formatTime(millisUntilFinished);
-        
-        // Build the notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+        Intent resumeIntent = new Intent(this, TimerService.class);
+        resumeIntent.setAction("RESUME_TIMER");
+        resumeAction = new NotificationCompat.Action(0, "Resume", PendingIntent.getService(
+                this, 2, resumeIntent, PendingIntent.FLAG_IMMUTABLE));
+    }
+
+    private NotificationCompat.Builder createOngoingBuilder() {
+        ongoingShowsPaused = false;
+        ongoingUsesChronometer = false;
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_stat_focus_brain)
-                .setContentTitle(currentTaskName)
-                .setContentText(timeString + " remaining")
-                .setContentIntent(pendingIntent)
+                .setContentTitle(notificationTitle())
+                .setContentIntent(contentPendingIntent)
                 .setPriority(NotificationCompat.PRIORITY_HIGH)
                 .setOngoing(true)
                 .setOnlyAlertOnce(true)
-                .addAction(0, isTimerPaused ? "Resume" : "Pause", pauseResumePendingIntent)
-                .addAction(0, "Stop", stopPendingIntent);
+                .addAction(pauseAction)
+                .addAction(stopAction);
+    }
+
+    private String notificationTitle() {
+        if (program == null) {
+            return currentTaskName;
+        }
+        return program.getPhase(phaseIndex).getName()
+                + " (" + (phaseIndex + 1) + "/" + program.getPhaseCount() + ")";
+    }
+
+    /**
+     * Bring the session's builder up to date and build it. Callers hold notificationLock.
+     */
+    private Notification buildNotification(long millisUntilFinished) {
+        NotificationCompat.Builder builder = ongoingBuilder;
+        boolean paused = isTimerPaused;
+        builder.setSubText(namedTimersSummary);
+
+        // Swap the pause/resume action only when the state flips
+        if (paused != ongoingShowsPaused) {
+            builder.clearActions();
+            builder.addAction(paused ? resumeAction : pauseAction);
+            builder.addAction(stopAction);
+            ongoingShowsPaused = paused;
+        }
+
+        if (lowPowerMode && !paused) {
+            // The system counts the chronometer down, so this notification is posted once
+            long endTime = System.currentTimeMillis() + millisUntilFinished;
+            builder.setContentText("Ends at " + DateFormat.getTimeInstance(DateFormat.SHORT).format(new Date(endTime)))
+                    .setWhen(endTime)
+                    .setShowWhen(true)
+                    .setProgress(0, 0, false);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                builder.setUsesChronometer(true)
+                        .setChronometerCountDown(true);
+            }
+            ongoingUsesChronometer = true;
+        } else {
+            if (ongoingUsesChronometer) {
+                builder.setUsesChronometer(false)
+                        .setWhen(System.currentTimeMillis());
+                ongoingUsesChronometer = false;
+            }
+            builder.setContentText(timeFormatter.format(millisUntilFinished, " remaining"));
 
-        // Set progress bar in notification
-        if (timerDurationMs > 0) {
-            int progress = (int) (100 - ((millisUntilFinished * 100) / timerDurationMs));
-            builder.setProgress(100, progress, false);
+            // Set progress bar in notification
+            if (timerDurationMs > 0) {
+                int progress = (int) (100 - ((millisUntilFinished * 100) / timerDurationMs));
+                builder.setProgress(100, progress, false);
+            }
         }
 
         return builder.build();
     }
 
+    private void onNamedTimerFinished(MultiTimerEngine.NamedTimer timer) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_focus_brain)
+                .setContentTitle(timer.getLabel())
+                .setContentText("Timer finished")
+                .setContentIntent(contentPendingIntent)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true);
+        notificationManager.notify(timer.getId(), NAMED_TIMER_DONE_NOTIFICATION_ID, builder.build());
+
+        BROADCASTS.increment();
+        TimerEventBus.get().publishNamedTimerFinished(timer.getId(), timer.getLabel(), timer.getDurationMs());
+        onNamedTimersChanged();
+    }
+
+    /**
+     * Re-arm the wake-up alarm and refresh the notification after any named timer change.
+     * Called on the main thread; nothing here runs per tick.
+     */
+    private void onNamedTimersChanged() {
+        List<MultiTimerEngine.NamedTimer> timers = namedTimers.list();
+        TimerSnapshot.publishNamedTimers(timers);
+
+        // One exact alarm for the earliest deadline wakes the device for all of them
+        long nextDeadline = namedTimers.getNextDeadlineElapsed();
+        if (nextDeadline == DeadlineHeap.NONE) {
+            cancelNamedTimerAlarm();
+            setNamedTimersWakeLock(false);
+        } else if (!armNamedTimerAlarm(nextDeadline)) {
+            setNamedTimersWakeLock(true);
+        }
+
+        namedTimersSummary = timers.isEmpty() ? null
+                : timers.size() == 1 ? "1 other timer" : timers.size() + " other timers";
+        if (isTimerRunning) {
+            synchronized (notificationLock) {
+                // Starting a named timer goes through startForegroundService, which expects this
+                startForeground(NOTIFICATION_ID, buildNotification(timeRemainingMs));
+                refreshPolicy.recordRefresh(SystemClock.elapsedRealtime());
+            }
+        } else if (!timers.isEmpty()) {
+            showNamedTimersInForeground();
+        } else {
+            stopForeground(true);
+            stopSelf();
+        }
+    }
+
+    /**
+     * With no focus session, the foreground notification summarizes the named timers and
+     * counts down to the next one with a system chronometer.
+     */
+    private void showNamedTimersInForeground() {
+        int count = namedTimers.size();
+        MultiTimerEngine.NamedTimer next = namedTimers.getNextToFinish();
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_focus_brain)
+                .setContentTitle(count == 1 ? "1 timer running" : count + " timers running")
+                .setContentIntent(contentPendingIntent)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true);
+        if (next != null) {
+            long endTime = System.currentTimeMillis() + next.getRemainingMs(SystemClock.elapsedRealtime());
+            builder.setContentText("Next: " + next.getLabel())
+                    .setWhen(endTime)
+                    .setShowWhen(true);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                builder.setUsesChronometer(true)
+                        .setChronometerCountDown(true);
+            }
+        } else {
+            builder.setContentText("All timers paused");
+        }
+        startForeground(NOTIFICATION_ID, builder.build());
+    }
+
+    private boolean armNamedTimerAlarm(long deadlineElapsed) {
+        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return false;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, deadlineElapsed, namedTimerPendingIntent());
+            } else {
+                alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, deadlineElapsed, namedTimerPendingIntent());
+            }
+            return true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Exact alarms not permitted, keeping a wake lock for named timers", e);
+            return false;
+        }
+    }
+
+    private void cancelNamedTimerAlarm() {
+        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(namedTimerPendingIntent());
+        }
+    }
+
+    private PendingIntent namedTimerPendingIntent() {
+        Intent intent = new Intent(this, TimerAlarmReceiver.class);
+        intent.setAction(TimerAlarmReceiver.ACTION_NAMED_TIMER_DEADLINE);
+        return PendingIntent.getBroadcast(
+                this, 1, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Without exact alarms the engine thread can only keep time while the CPU stays awake.
+     */
+    private void setNamedTimersWakeLock(boolean hold) {
+        if (hold == namedTimersHoldWakeLock) {
+            return;
+        }
+        namedTimersHoldWakeLock = hold;
+        if (hold) {
+            wakeLock.acquire();
+        } else if (wakeLock.isHeld() && !(isTimerRunning && !lowPowerMode)) {
+            wakeLock.release();
+        }
+    }
+
+    /**
+     * Arm the exact alarm that finishes a low-power session.
+     * @return false if exact alarms are not permitted, in which case the caller keeps the wake lock
+     */
+    private boolean armDeadlineAlarm(long remainingMs) {
+        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            Log.e(TAG, "Could not access AlarmManager");
+            return false;
+        }
+
+        long triggerTime = SystemClock.elapsedRealtime() + remainingMs;
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerTime, deadlinePendingIntent());
+            } else {
+                alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerTime, deadlinePendingIntent());
+            }
+            return true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Exact alarms not permitted, keeping the wake lock instead", e);
+            return false;
+        }
+    }
+
+    private void cancelDeadlineAlarm() {
+        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(deadlinePendingIntent());
+        }
+    }
+
+    private PendingIntent deadlinePendingIntent() {
+        Intent intent = new Intent(this, TimerAlarmReceiver.class);
+        intent.setAction(TimerAlarmReceiver.ACTION_TIMER_DEADLINE);
+        return PendingIntent.getBroadcast(
+                this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Keep the CPU awake from the deadline alarm until the service has finished the session.
+     * The timeout only matters if the service never gets to release it.
+     */
+    static synchronized void acquireCompletionWakeLock(Context context) {
+        if (completionWakeLock == null) {
+            PowerManager powerManager = (PowerManager) context.getApplicationContext().getSystemService(POWER_SERVICE);
+            completionWakeLock = powerManager.newWakeLock(
+                    PowerManager.PARTIAL_WAKE_LOCK,
+                    "FocusFlow::TimerCompletionWakeLock"
+            );
+            completionWakeLock.setReferenceCounted(false);
+        }
+        completionWakeLock.acquire(COMPLETION_WAKE_LOCK_TIMEOUT_MS);
+    }
+
+    static synchronized void releaseCompletionWakeLock() {
+        if (completionWakeLock != null && completionWakeLock.isHeld()) {
+            completionWakeLock.release();
+        }
+    }
+
     private void showTimerCompletedNotification() {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
@@ -266,6 +967,25 @@ public class TimerService extends Service {
         }
     }
 
+    /**
+     * Alert once per phase change; the ongoing notification itself only alerts once per session.
+     */
+    private void showPhaseNotification() {
+        IntervalProgram.Phase phase = program.getPhase(phaseIndex);
+        String text = phaseWaiting
+                ? "Tap Resume when you are ready"
+                : "Until " + DateFormat.getTimeInstance(DateFormat.SHORT).format(
+                        new Date(System.currentTimeMillis() + timeRemainingMs));
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_focus_brain)
+                .setContentTitle(phase.getName())
+                .setContentText(text)
+                .setContentIntent(contentPendingIntent)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true);
+        notificationManager.notify(NOTIFICATION_ID + 1, builder.build());
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -283,63 +1003,60 @@ public class TimerService extends Service {
         }
     }
 
-    private String formatTime(long millisUntilFinished) {
-        long seconds = (millisUntilFinished / 1000) % 60;
-        long minutes = (millisUntilFinished / (1000 * 60)) % 60;
-        long hours = millisUntilFinished / (1000 * 60 * 60);
-
-        if (hours > 0) {
-            return String.format(Locale.getDefault(), "%d:%02d:%02d", hours, minutes, seconds);
-        } else {
-            return String.format(Locale.getDefault(), "%02d:%02d", minutes, seconds);
-        }
-    }
-
-    // Broadcast methods to communicate with the app
+    // Publish timer events to in-process subscribers such as TimerPlugin
     private void broadcastTimerUpdate(long millisUntilFinished) {
-        Intent intent = new Intent("com.stanley.focusflow.TIMER_UPDATE");
-        intent.putExtra("TIME_REMAINING", millisUntilFinished);
-        intent.putExtra("TOTAL_TIME", timerDurationMs);
-        sendBroadcast(intent);
+        BROADCASTS.increment();
+        TimerEventBus.get().publishUpdate(millisUntilFinished, timerDurationMs);
     }
 
     private void broadcastTimerStarted(long durationMs) {
-        Intent intent = new Intent("com.stanley.focusflow.TIMER_STARTED");
-        intent.putExtra("TIMER_DURATION", durationMs);
-        intent.putExtra("START_TIME", startTimeMs);
-        sendBroadcast(intent);
+        BROADCASTS.increment();
+        TimerEventBus.get().publishStarted(durationMs, startTimeMs);
     }
 
     private void broadcastTimerPaused() {
-        Intent intent = new Intent("com.stanley.focusflow.TIMER_PAUSED");
-        intent.putExtra("TIME_REMAINING", timeRemainingMs);
-        sendBroadcast(intent);
+        BROADCASTS.increment();
+        TimerEventBus.get().publishPaused(timeRemainingMs);
     }
 
     private void broadcastTimerStopped() {
-        Intent intent = new Intent("com.stanley.focusflow.TIMER_STOPPED");
-        sendBroadcast(intent);
+        BROADCASTS.increment();
+        TimerEventBus.get().publishStopped();
     }
 
     private void broadcastTimerFinished() {
-        Intent intent = new Intent("com.stanley.focusflow.TIMER_FINISHED");
-        intent.putExtra("TIMER_DURATION", timerDurationMs);
+        BROADCASTS.increment();
         // Include ISO 8601 formatted end time for task history
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
         sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-        intent.putExtra("END_TIME", sdf.format(new Date()));
-        sendBroadcast(intent);
+        String endTime = sdf.format(new Date());
 
         // Include JSON data for apps that handle it that way
+        String timerData = null;
         try {
             JSONObject data = new JSONObject();
             data.put("duration", timerDurationMs);
             data.put("completedAt", System.currentTimeMillis());
             data.put("taskName", currentTaskName);
-            intent.putExtra("TIMER_DATA", data.toString());
+            timerData = data.toString();
         } catch (JSONException e) {
             Log.e(TAG, "Error creating timer JSON data", e);
         }
+
+        TimerEventBus.get().publishFinished(timerDurationMs, endTime, timerData);
+    }
+
+    private void broadcastIntervalPhase() {
+        BROADCASTS.increment();
+        IntervalProgram.Phase phase = program.getPhase(phaseIndex);
+        TimerEventBus.get().publishIntervalPhase(phaseIndex, program.getPhaseCount(), phase.getName(),
+                phase.getKind() == IntervalProgram.Kind.BREAK ? "break" : "focus",
+                phase.getDurationMs(), phaseWaiting);
+    }
+
+    private void broadcastIntervalProgramFinished() {
+        BROADCASTS.increment();
+        TimerEventBus.get().publishIntervalProgramFinished(program.getPhaseCount());
     }
 
     @Nullable
@@ -350,9 +1067,23 @@ public class TimerService extends Service {
 
     @Override
     public void onDestroy() {
-        if (countDownTimer != null) {
-            countDownTimer.cancel();
+        tickEngine.release();
+        if (lowPowerMode && isTimerRunning) {
+            cancelDeadlineAlarm();
+        }
+        namedTimers.release();
+        cancelNamedTimerAlarm();
+        TimerSnapshot.publishNamedTimers(new ArrayList<MultiTimerEngine.NamedTimer>());
+        TimerSnapshot.publish(TimerSnapshot.IDLE);
+        releaseCompletionWakeLock();
+        mainHandler.removeCallbacksAndMessages(null);
+
+        if (screenStateReceiver != null) {
+            unregisterReceiver(screenStateReceiver);
+            screenStateReceiver = null;
         }
+        Log.d(TAG, "Notification refreshes posted: " + refreshPolicy.getPostedCount()
+                + ", skipped: " + refreshPolicy.getSkippedCount());
         
         if (wakeLock.isHeld()) {
             try {
@@ -0,0 +1,98 @@
+package com.stanley.focusflow;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of the focus timer, published by TimerService whenever its state changes.
+ * The named timers are published alongside it the same way.
+ *
+ * A counting snapshot holds the deadline rather than the time left, so it stays accurate
+ * between ticks and is only replaced on start, pause, resume and stop. Readers on any thread
+ * get the latest one with a single volatile read.
+ */
+public final class TimerSnapshot {
+    public static final TimerSnapshot IDLE = new TimerSnapshot(false, false, 0, 0, 0, "");
+
+    private static volatile TimerSnapshot current = IDLE;
+    private static volatile List<MultiTimerEngine.NamedTimer> namedTimers = Collections.emptyList();
+
+    private final boolean running;
+    private final boolean paused;
+    private final long durationMs;
+    private final long deadlineElapsed;
+    private final long pausedRemainingMs;
+    private final String taskName;
+
+    private TimerSnapshot(boolean running, boolean paused, long durationMs, long deadlineElapsed,
+                          long pausedRemainingMs, String taskName) {
+        this.running = running;
+        this.paused = paused;
+        this.durationMs = durationMs;
+        this.deadlineElapsed = deadlineElapsed;
+        this.pausedRemainingMs = pausedRemainingMs;
+        this.taskName = taskName;
+    }
+
+    /**
+     * @param deadlineElapsed when the countdown reaches zero, on the elapsedRealtime clock
+     */
+    public static TimerSnapshot counting(long durationMs, long deadlineElapsed, String taskName) {
+        return new TimerSnapshot(true, false, durationMs, deadlineElapsed, 0, taskName);
+    }
+
+    public static TimerSnapshot paused(long durationMs, long remainingMs, String taskName) {
+        return new TimerSnapshot(true, true, durationMs, 0, remainingMs, taskName);
+    }
+
+    public static TimerSnapshot current() {
+        return current;
+    }
+
+    static void publish(TimerSnapshot snapshot) {
+        current = snapshot;
+    }
+
+    /**
+     * @return the named timers as of their last change, in the order they were started
+     */
+    public static List<MultiTimerEngine.NamedTimer> currentNamedTimers() {
+        return namedTimers;
+    }
+
+    static void publishNamedTimers(List<MultiTimerEngine.NamedTimer> timers) {
+        namedTimers = Collections.unmodifiableList(timers);
+    }
+
+    /**
+     * @return true while a session is in progress, paused or not
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @param nowElapsed the current elapsedRealtime
+     */
+    public long getRemainingMs(long nowElapsed) {
+        if (!running) {
+            return 0;
+        }
+        if (paused) {
+            return pausedRemainingMs;
+        }
+        return Math.max(0, deadlineElapsed - nowElapsed);
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+}
@@ -1,20 +0,0 @@
-package com.stanley.focusflow;
-
-import android.app.ActivityManager;
-import android.content.Context;
-
-import java.util.List;
-
-public class TimerStatusHelper {
-    public static boolean isServiceRunning(Context context, Class<?> serviceClass) {
-        ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
-        
-        for (ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-            if (serviceClass.getName().equals(service.service.getClassName())) {
-                return true;
-            }
-        }
-        
-        return false;
-    }
-}
@@ -0,0 +1,68 @@
+package com.focustask.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BlockedPackageIndexTest {
+
+    @Test
+    public void findsPackagesFromAnyCharSequence() {
+        BlockedPackageIndex index = BlockedPackageIndex.of(
+                Arrays.asList("com.instagram.android", "com.zhiliaoapp.musically", "com.reddit.frontpage"));
+
+        assertEquals(3, index.size());
+        assertTrue(index.contains("com.instagram.android"));
+        assertTrue(index.contains(new StringBuilder("com.reddit.frontpage")));
+        assertFalse(index.contains("com.instagram.androi"));
+        assertFalse(index.contains(new StringBuilder("com.example.notes")));
+        assertFalse(index.contains(""));
+    }
+
+    @Test
+    public void hashMatchesStringHash() {
+        String name = "com.google.android.youtube";
+        assertEquals(name.hashCode(), BlockedPackageIndex.hashOf(new StringBuilder(name)));
+    }
+
+    @Test
+    public void largeIndexHasNoFalseHitsOrMisses() {
+        List<String> blocked = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            blocked.add("com.example.distraction" + i);
+        }
+        // Duplicates are ignored
+        blocked.add("com.example.distraction0");
+        BlockedPackageIndex index = BlockedPackageIndex.of(blocked);
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(index.contains(new StringBuilder("com.example.distraction").append(i)));
+            assertFalse(index.contains("com.example.allowed" + i));
+        }
+    }
+
+    @Test
+    public void emptyIndexContainsNothing() {
+        BlockedPackageIndex index = BlockedPackageIndex.of(Collections.<String>emptyList());
+        assertSame(BlockedPackageIndex.EMPTY, index);
+        assertFalse(index.contains("com.instagram.android"));
+    }
+
+    @Test
+    public void matcherIgnoresRepeatedEventsForTheForegroundApp() {
+        BlockedAppMatcher matcher = new BlockedAppMatcher();
+        matcher.setBlockedApps(Collections.singletonList("com.instagram.android"));
+
+        assertTrue(matcher.shouldBlock(new StringBuilder("com.instagram.android")));
+        assertFalse(matcher.shouldBlock("com.instagram.android"));
+        assertFalse(matcher.shouldBlock("com.example.notes"));
+        assertTrue(matcher.shouldBlock("com.instagram.android"));
+        assertEquals("com.instagram.android", matcher.getLastForegroundApp());
+    }
+}
@@ -0,0 +1,115 @@
+package com.focustask.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BlockingScheduleTest {
+
+    private static final List<String> SOCIAL = Arrays.asList("com.instagram.android", "com.twitter.android");
+    private static final BlockingSchedule.UsageSource NO_USAGE = new BlockingSchedule.UsageSource() {
+        @Override
+        public long usedTodayMs(String packageName, long nowMillis) {
+            return 0;
+        }
+    };
+
+    // 2024-01-01 was a Monday
+    private static long millis(String localDateTime, ZoneId zone) {
+        return LocalDateTime.parse(localDateTime).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void blocksOnlyInsideWeekdayWindows() {
+        BlockingSchedule schedule = BlockingSchedule.compile(Collections.singletonList(
+                BlockingSchedule.rule()
+                        .packages(SOCIAL)
+                        .onDay(DayOfWeek.MONDAY)
+                        .onDay(DayOfWeek.WEDNESDAY)
+                        .between(9, 0, 17, 30)
+                        .build()), ZoneOffset.UTC);
+
+        assertTrue(schedule.shouldBlock("com.instagram.android", millis("2024-01-01T09:00", ZoneOffset.UTC), false, NO_USAGE));
+        assertTrue(schedule.shouldBlock("com.twitter.android", millis("2024-01-03T17:29", ZoneOffset.UTC), false, NO_USAGE));
+        assertFalse(schedule.shouldBlock("com.instagram.android", millis("2024-01-01T17:30", ZoneOffset.UTC), false, NO_USAGE));
+        assertFalse(schedule.shouldBlock("com.instagram.android", millis("2024-01-02T10:00", ZoneOffset.UTC), false, NO_USAGE));
+        assertFalse(schedule.shouldBlock("com.example.notes", millis("2024-01-01T10:00", ZoneOffset.UTC), false, NO_USAGE));
+    }
+
+    @Test
+    public void windowsPastMidnightWrapIntoTheNextDayAndWeek() {
+        BlockingSchedule schedule = BlockingSchedule.compile(Collections.singletonList(
+                BlockingSchedule.rule()
+                        .packages(SOCIAL)
+                        .onDay(DayOfWeek.SUNDAY)
+                        .between(22, 0, 6, 0)
+                        .build()), ZoneOffset.UTC);
+
+        // Sunday 2024-01-07 night runs into Monday 2024-01-08 morning
+        assertTrue(schedule.shouldBlock("com.instagram.android", millis("2024-01-07T23:00", ZoneOffset.UTC), false, NO_USAGE));
+        assertTrue(schedule.shouldBlock("com.instagram.android", millis("2024-01-08T05:59", ZoneOffset.UTC), false, NO_USAGE));
+        assertFalse(schedule.shouldBlock("com.instagram.android", millis("2024-01-08T06:00", ZoneOffset.UTC), false, NO_USAGE));
+        assertFalse(schedule.shouldBlock("com.instagram.android", millis("2024-01-07T21:59", ZoneOffset.UTC), false, NO_USAGE));
+    }
+
+    @Test
+    public void focusOnlyRulesNeedARunningSession() {
+        BlockingSchedule schedule = BlockingSchedule.compile(Collections.singletonList(
+                BlockingSchedule.rule().packages(SOCIAL).duringFocusOnly().build()), ZoneOffset.UTC);
+        long now = millis("2024-01-02T12:00", ZoneOffset.UTC);
+
+        assertFalse(schedule.shouldBlock("com.instagram.android", now, false, NO_USAGE));
+        assertTrue(schedule.shouldBlock("com.instagram.android", now, true, NO_USAGE));
+    }
+
+    @Test
+    public void quotaBlocksOnceTodaysUsageReachesIt() {
+        BlockingSchedule schedule = BlockingSchedule.compile(Arrays.asList(
+                BlockingSchedule.rule().packages(SOCIAL).dailyQuotaMinutes(30).build(),
+                BlockingSchedule.rule()
+                        .packages(Collections.singletonList("com.instagram.android"))
+                        .dailyQuotaMinutes(10)
+                        .build()), ZoneOffset.UTC);
+        long now = millis("2024-01-02T12:00", ZoneOffset.UTC);
+        BlockingSchedule.UsageSource fifteenMinutes = new BlockingSchedule.UsageSource() {
+            @Override
+            public long usedTodayMs(String packageName, long nowMillis) {
+                return 15 * 60 * 1000;
+            }
+        };
+
+        // The tighter of two quotas applies
+        assertTrue(schedule.shouldBlock("com.instagram.android", now, false, fifteenMinutes));
+        assertFalse(schedule.shouldBlock("com.twitter.android", now, false, fifteenMinutes));
+        assertFalse(schedule.shouldBlock("com.instagram.android", now, false, NO_USAGE));
+    }
+
+    @Test
+    public void usesLocalTimeOfTheZone() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        BlockingSchedule schedule = BlockingSchedule.compile(Collections.singletonList(
+                BlockingSchedule.rule().packages(SOCIAL).between(20, 0, 23, 0).build()), newYork);
+
+        assertTrue(schedule.shouldBlock("com.instagram.android", millis("2024-07-01T21:00", newYork), false, NO_USAGE));
+        assertFalse(schedule.shouldBlock("com.instagram.android", millis("2024-07-01T21:00", ZoneOffset.UTC), false, NO_USAGE));
+    }
+
+    @Test
+    public void repeatedWindowsShareSegments() {
+        BlockingSchedule schedule = BlockingSchedule.compile(Collections.singletonList(
+                BlockingSchedule.rule().packages(SOCIAL).between(9, 0, 17, 0).build()), ZoneOffset.UTC);
+
+        // Monday morning, then a blocked and a free stretch for each day
+        assertEquals(15, schedule.getSegmentCount());
+        assertTrue(BlockingSchedule.EMPTY.isEmpty());
+        assertFalse(BlockingSchedule.EMPTY.shouldBlock("com.instagram.android", 0, true, NO_USAGE));
+    }
+}
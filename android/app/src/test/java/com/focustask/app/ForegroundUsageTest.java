@@ -0,0 +1,94 @@
+package com.focustask.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public class ForegroundUsageTest {
+    private File file;
+    private UsageHistogram histogram;
+    private ForegroundUsage usage;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("usage", ".bin");
+        file.delete();
+        histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+        usage = new ForegroundUsage(histogram);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static long millis(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long epochDay(String localDate) {
+        return LocalDate.parse(localDate).toEpochDay();
+    }
+
+    @Test
+    public void creditsEachAppUntilTheNextSwitch() {
+        usage.onForeground("com.instagram.android", millis("2024-01-02T10:00"));
+        usage.onForeground("com.example.notes", millis("2024-01-02T10:20"));
+        usage.onForeground("com.instagram.android", millis("2024-01-02T11:00"));
+
+        // 20 minutes earlier plus the 5 minutes of the current stay
+        assertEquals(25 * 60 * 1000, usage.usedTodayMs("com.instagram.android", millis("2024-01-02T11:05")));
+        assertEquals(40 * 60 * 1000, usage.usedTodayMs("com.example.notes", millis("2024-01-02T11:05")));
+        assertEquals(0, usage.usedTodayMs("com.twitter.android", millis("2024-01-02T11:05")));
+    }
+
+    @Test
+    public void startsOverAtMidnight() {
+        usage.onForeground("com.instagram.android", millis("2024-01-02T23:30"));
+
+        assertEquals(15 * 60 * 1000, usage.usedTodayMs("com.instagram.android", millis("2024-01-03T00:15")));
+        assertEquals(30 * 60 * 1000, histogram.get(epochDay("2024-01-02"), "com.instagram.android"));
+    }
+
+    @Test
+    public void skipsTimeWhilePaused() {
+        usage.onForeground("com.instagram.android", millis("2024-01-02T10:00"));
+        usage.pause(millis("2024-01-02T10:10"));
+        usage.resume(millis("2024-01-02T12:00"));
+
+        assertEquals(15 * 60 * 1000, usage.usedTodayMs("com.instagram.android", millis("2024-01-02T12:05")));
+    }
+
+    @Test
+    public void resumeWithoutPauseKeepsTheStay() {
+        usage.onForeground("com.instagram.android", millis("2024-01-02T10:00"));
+        usage.resume(millis("2024-01-02T10:10"));
+
+        assertEquals(15 * 60 * 1000, usage.usedTodayMs("com.instagram.android", millis("2024-01-02T10:15")));
+    }
+
+    @Test
+    public void creditsNothingWithoutAForegroundApp() {
+        usage.onForeground("com.instagram.android", millis("2024-01-02T10:00"));
+        usage.onForeground(null, millis("2024-01-02T10:10"));
+
+        assertEquals(10 * 60 * 1000, usage.usedTodayMs("com.instagram.android", millis("2024-01-02T11:00")));
+    }
+
+    @Test
+    public void flushSavesTheCurrentStay() throws IOException {
+        usage.onForeground("com.instagram.android", millis("2024-01-02T10:00"));
+
+        assertTrue(usage.flush(millis("2024-01-02T10:30")));
+        assertEquals(30 * 60 * 1000, UsageHistogram.open(file, ZoneOffset.UTC)
+                .get(epochDay("2024-01-02"), "com.instagram.android"));
+    }
+}
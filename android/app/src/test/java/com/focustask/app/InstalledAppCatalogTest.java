@@ -0,0 +1,133 @@
+package com.focustask.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class InstalledAppCatalogTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("apps", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private InstalledAppCatalog scanned() {
+        Map<String, String> appNames = new LinkedHashMap<>();
+        appNames.put("com.twitter.android", "X");
+        appNames.put("com.instagram.android", "Instagram");
+        appNames.put("com.example.notes", "notes");
+        appNames.put("com.google.android.youtube", "YouTube");
+        InstalledAppCatalog catalog = InstalledAppCatalog.open(file);
+        catalog.replaceAll(appNames);
+        return catalog;
+    }
+
+    private static List<String> names(InstalledAppCatalog.Page page) {
+        List<String> names = new ArrayList<>();
+        for (InstalledAppCatalog.App app : page.getApps()) {
+            names.add(app.getAppName());
+        }
+        return names;
+    }
+
+    @Test
+    public void listsAppsByLabelIgnoringCase() {
+        InstalledAppCatalog.Page page = scanned().query("", 0, Integer.MAX_VALUE);
+
+        assertEquals("[Instagram, notes, X, YouTube]", names(page).toString());
+        assertEquals(4, page.getTotal());
+    }
+
+    @Test
+    public void pagesThroughApps() {
+        InstalledAppCatalog catalog = scanned();
+
+        assertEquals("[notes, X]", names(catalog.query("", 1, 2)).toString());
+        assertEquals(4, catalog.query("", 1, 2).getTotal());
+        assertEquals("[]", names(catalog.query("", 10, 2)).toString());
+    }
+
+    @Test
+    public void filtersByLabelOrPackagePrefix() {
+        InstalledAppCatalog catalog = scanned();
+
+        assertEquals("[YouTube]", names(catalog.query("you", 0, 10)).toString());
+        assertEquals("[notes]", names(catalog.query("com.example", 0, 10)).toString());
+        InstalledAppCatalog.Page page = catalog.query("COM.", 1, 1);
+        assertEquals("[notes]", names(page).toString());
+        assertEquals(4, page.getTotal());
+    }
+
+    @Test
+    public void appliesChangesToLaterQueries() {
+        InstalledAppCatalog catalog = scanned();
+        catalog.query("", 0, 10);
+
+        catalog.put("com.reddit.frontpage", "Reddit");
+        catalog.put("com.twitter.android", "Twitter");
+        assertTrue(catalog.remove("com.instagram.android"));
+        assertFalse(catalog.remove("com.instagram.android"));
+
+        assertEquals("[notes, Reddit, Twitter, YouTube]", names(catalog.query("", 0, 10)).toString());
+    }
+
+    @Test
+    public void savesAndLoadsAppsAndSequence() throws IOException {
+        InstalledAppCatalog catalog = scanned();
+        catalog.setSequence(12, 345);
+        assertTrue(catalog.flush());
+        assertFalse(catalog.flush());
+
+        InstalledAppCatalog loaded = InstalledAppCatalog.open(file);
+        assertTrue(loaded.isComplete());
+        assertEquals(12, loaded.getBootCount());
+        assertEquals(345, loaded.getSequenceNumber());
+        assertEquals("[Instagram, notes, X, YouTube]", names(loaded.query("", 0, 10)).toString());
+    }
+
+    @Test
+    public void neverSavesBeforeAFullScan() throws IOException {
+        InstalledAppCatalog catalog = InstalledAppCatalog.open(file);
+        catalog.put("com.instagram.android", "Instagram");
+
+        assertFalse(catalog.flush());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void startsOverFromADamagedFile() throws IOException {
+        InstalledAppCatalog catalog = scanned();
+        catalog.flush();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 9);
+            raf.write('!');
+        }
+        InstalledAppCatalog loaded = InstalledAppCatalog.open(file);
+        assertFalse(loaded.isComplete());
+        assertEquals(InstalledAppCatalog.UNKNOWN, loaded.getSequenceNumber());
+        assertEquals(0, loaded.size());
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{0x46, 0x46, 0x41});
+        }
+        assertFalse(InstalledAppCatalog.open(file).isComplete());
+    }
+}
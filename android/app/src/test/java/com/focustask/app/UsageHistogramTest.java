@@ -0,0 +1,131 @@
+package com.focustask.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Map;
+
+public class UsageHistogramTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("usage", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static long epochDay(String localDate) {
+        return LocalDate.parse(localDate).toEpochDay();
+    }
+
+    @Test
+    public void startsEmptyWithoutAFile() {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+
+        assertEquals(0, histogram.get(epochDay("2024-01-02"), "com.instagram.android"));
+        assertTrue(histogram.day(epochDay("2024-01-02")).isEmpty());
+    }
+
+    @Test
+    public void savesAndLoadsTotals() throws IOException {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+        histogram.add(epochDay("2024-01-02"), "com.instagram.android", 60_000);
+        histogram.add(epochDay("2024-01-02"), "com.instagram.android", 30_000);
+        histogram.add(epochDay("2024-01-02"), "com.example.notes", 120_000);
+        histogram.add(epochDay("2024-01-03"), "com.instagram.android", 5_000);
+        assertTrue(histogram.flush());
+        assertFalse(histogram.flush());
+
+        UsageHistogram loaded = UsageHistogram.open(file, ZoneOffset.UTC);
+        assertEquals(90_000, loaded.get(epochDay("2024-01-02"), "com.instagram.android"));
+        assertEquals(120_000, loaded.get(epochDay("2024-01-02"), "com.example.notes"));
+        assertEquals(5_000, loaded.get(epochDay("2024-01-03"), "com.instagram.android"));
+    }
+
+    @Test
+    public void listsADayMostUsedFirst() {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+        histogram.add(epochDay("2024-01-02"), "com.example.notes", 10_000);
+        histogram.add(epochDay("2024-01-02"), "com.instagram.android", 90_000);
+        histogram.add(epochDay("2024-01-02"), "com.twitter.android", 40_000);
+
+        Map<String, Long> day = histogram.day(epochDay("2024-01-02"));
+        assertEquals("[com.instagram.android, com.twitter.android, com.example.notes]",
+                new ArrayList<>(day.keySet()).toString());
+    }
+
+    @Test
+    public void dropsDaysPastTheLimit() {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+        long first = epochDay("2024-01-01");
+        histogram.add(first, "com.instagram.android", 1_000);
+        histogram.add(first + UsageHistogram.DAYS_KEPT - 1, "com.instagram.android", 1_000);
+        assertEquals(1_000, histogram.get(first, "com.instagram.android"));
+
+        histogram.add(first + UsageHistogram.DAYS_KEPT, "com.instagram.android", 1_000);
+        assertEquals(0, histogram.get(first, "com.instagram.android"));
+        assertEquals(1_000, histogram.get(first + UsageHistogram.DAYS_KEPT - 1, "com.instagram.android"));
+    }
+
+    @Test
+    public void startsOverFromADamagedFile() throws IOException {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+        histogram.add(epochDay("2024-01-02"), "com.instagram.android", 60_000);
+        histogram.flush();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 12);
+            raf.write(0x7f);
+        }
+        assertEquals(0, UsageHistogram.open(file, ZoneOffset.UTC)
+                .get(epochDay("2024-01-02"), "com.instagram.android"));
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{0x46, 0x46});
+        }
+        assertEquals(0, UsageHistogram.open(file, ZoneOffset.UTC)
+                .get(epochDay("2024-01-02"), "com.instagram.android"));
+    }
+
+    @Test
+    public void startsOverFromADamagedCount() throws IOException {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneOffset.UTC);
+        histogram.add(epochDay("2024-01-02"), "com.instagram.android", 60_000);
+        histogram.flush();
+        // The package count follows the magic and version
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            raf.writeInt(-5);
+        }
+
+        assertEquals(0, UsageHistogram.open(file, ZoneOffset.UTC)
+                .get(epochDay("2024-01-02"), "com.instagram.android"));
+    }
+
+    @Test
+    public void usesLocalDays() {
+        UsageHistogram histogram = UsageHistogram.open(file, ZoneId.of("America/New_York"));
+        long lateEvening = LocalDateTime.parse("2024-01-02T23:30")
+                .atZone(ZoneId.of("America/New_York")).toInstant().toEpochMilli();
+
+        assertEquals(epochDay("2024-01-02"), histogram.epochDayOf(lateEvening));
+        assertEquals(lateEvening - 23 * 60 * 60 * 1000 - 30 * 60 * 1000,
+                histogram.startOfDay(epochDay("2024-01-02")));
+    }
+}
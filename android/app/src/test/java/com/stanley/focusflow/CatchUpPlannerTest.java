@@ -0,0 +1,79 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public class CatchUpPlannerTest {
+
+    private static final RecurrenceEngine ENGINE = new RecurrenceEngine(ZoneOffset.UTC);
+
+    private static long millis(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @Test
+    public void countsEveryMissedDailyOccurrenceAndFindsTheNextOne() {
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY)
+                .at(9, 0)
+                .startingOn(LocalDate.parse("2024-01-01"))
+                .build();
+
+        CatchUpPlanner.Result result = new CatchUpPlanner(ENGINE)
+                .plan(rule, millis("2024-01-02T09:00"), millis("2024-01-05T12:00"));
+        assertEquals(4, result.getMissedCount());
+        assertEquals(millis("2024-01-02T09:00"), result.getFirstMissed());
+        assertEquals(millis("2024-01-05T09:00"), result.getLastMissed());
+        assertEquals(millis("2024-01-06T09:00"), result.getNextTime());
+    }
+
+    @Test
+    public void walksGapsLongerThanOneBatch() {
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY)
+                .at(8, 0)
+                .startingOn(LocalDate.parse("2024-01-01"))
+                .build();
+
+        // 2024 is a leap year, so every day from Jan 1 to Dec 31 was missed
+        CatchUpPlanner.Result result = new CatchUpPlanner(ENGINE)
+                .plan(rule, millis("2024-01-01T08:00"), millis("2024-12-31T08:00"));
+        assertEquals(366, result.getMissedCount());
+        assertEquals(millis("2024-12-31T08:00"), result.getLastMissed());
+        assertEquals(millis("2025-01-01T08:00"), result.getNextTime());
+    }
+
+    @Test
+    public void weeklyRuleCountsOnlyItsDays() {
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.WEEKLY)
+                .at(18, 0)
+                .onDay(DayOfWeek.MONDAY)
+                .onDay(DayOfWeek.THURSDAY)
+                .startingOn(LocalDate.parse("2024-01-01"))
+                .build();
+
+        // Mon 1st, Thu 4th, Mon 8th, Thu 11th
+        CatchUpPlanner.Result result = new CatchUpPlanner(ENGINE)
+                .plan(rule, millis("2024-01-01T18:00"), millis("2024-01-12T00:00"));
+        assertEquals(4, result.getMissedCount());
+        assertEquals(millis("2024-01-11T18:00"), result.getLastMissed());
+        assertEquals(millis("2024-01-15T18:00"), result.getNextTime());
+    }
+
+    @Test
+    public void missedOneOffTaskHasNoNextOccurrence() {
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.ONCE)
+                .at(10, 0)
+                .startingOn(LocalDate.parse("2024-03-01"))
+                .build();
+
+        CatchUpPlanner.Result result = new CatchUpPlanner(ENGINE)
+                .plan(rule, millis("2024-03-01T10:00"), millis("2024-03-09T10:00"));
+        assertEquals(1, result.getMissedCount());
+        assertEquals(RecurrenceEngine.NO_OCCURRENCE, result.getNextTime());
+    }
+}
@@ -0,0 +1,68 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+public class DeadlineHeapTest {
+
+    @Test
+    public void pollsInDeadlineOrder() {
+        DeadlineHeap heap = new DeadlineHeap();
+        heap.put("tea", 300);
+        heap.put("laundry", 100);
+        heap.put("oven", 200);
+
+        assertEquals("laundry", heap.peekId());
+        assertNull(heap.pollDue(99));
+        assertEquals("laundry", heap.pollDue(250));
+        assertEquals("oven", heap.pollDue(250));
+        assertNull(heap.pollDue(250));
+        assertEquals(300, heap.peekDeadline());
+    }
+
+    @Test
+    public void putMovesAndRemoveDropsAnExistingId() {
+        DeadlineHeap heap = new DeadlineHeap();
+        heap.put("a", 100);
+        heap.put("b", 200);
+        heap.put("a", 300);
+        assertEquals("b", heap.peekId());
+        assertEquals(2, heap.size());
+
+        assertTrue(heap.remove("b"));
+        assertFalse(heap.remove("b"));
+        assertEquals("a", heap.peekId());
+        heap.clear();
+        assertEquals(DeadlineHeap.NONE, heap.peekDeadline());
+    }
+
+    @Test
+    public void matchesASortedMapUnderRandomChanges() {
+        DeadlineHeap heap = new DeadlineHeap();
+        TreeMap<String, Long> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String id = "t" + random.nextInt(60);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, heap.remove(id));
+            } else {
+                long deadline = random.nextInt(1_000_000);
+                heap.put(id, deadline);
+                expected.put(id, deadline);
+            }
+            assertEquals(expected.size(), heap.size());
+            if (!expected.isEmpty()) {
+                long min = Long.MAX_VALUE;
+                for (long deadline : expected.values()) {
+                    min = Math.min(min, deadline);
+                }
+                assertEquals(min, heap.peekDeadline());
+                assertEquals(min, (long) expected.get(heap.peekId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public class FocusRollupsTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    private File logFile;
+    private File rollupsFile;
+    private SessionLog log;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("focus_sessions", ".log");
+        logFile.delete();
+        rollupsFile = new File(logFile.getPath() + ".rollups");
+        log = new SessionLog(logFile);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        log.close();
+        logFile.delete();
+        new File(logFile.getPath() + ".tasks").delete();
+        rollupsFile.delete();
+    }
+
+    @Test
+    public void catchUpFoldsInNewSessions() throws Exception {
+        long monday = LocalDate.of(2024, 3, 11).toEpochDay();
+        log.append(0, monday * DAY + 60 * MINUTE, 25 * MINUTE, "write", 0, true);
+        FocusRollups rollups = FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+
+        log.append(0, (monday + 2) * DAY, 15 * MINUTE, "read", 1, false);
+        log.append(0, (monday + 2) * DAY + 1, 25 * MINUTE, "write", 0, true);
+        rollups.catchUp(log);
+
+        assertEquals(2, rollups.day(monday + 2).sessions);
+        assertEquals(40 * MINUTE, rollups.day(monday + 2).focusMs);
+        assertEquals("2024-W11", rollups.week(monday + 2).key);
+        assertEquals(3, rollups.week(monday + 2).sessions);
+        assertEquals(2, rollups.allTime().completedSessions);
+
+        List<SessionLog.Total> days = rollups.days(monday + 2, 7);
+        assertEquals(7, days.size());
+        assertEquals("2024-03-13", days.get(6).key);
+        assertEquals(0, days.get(5).sessions);
+
+        List<SessionLog.Total> tasks = rollups.topTasks(1);
+        assertEquals(1, tasks.size());
+        assertEquals("write", tasks.get(0).key);
+        assertEquals(50 * MINUTE, tasks.get(0).focusMs);
+    }
+
+    @Test
+    public void reopenedRollupsMatchARebuild() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            log.append(0, i * DAY / 3, MINUTE, "task" + (i % 3), 0, i % 2 == 0);
+        }
+        FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+        log.append(0, 7 * DAY, MINUTE, "task0", 0, true);
+
+        FocusRollups reopened = FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+        FocusRollups rebuilt = FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+        rebuilt.rebuild(log);
+
+        assertEquals(21, reopened.allTime().sessions);
+        assertEquals(rebuilt.allTime().completedSessions, reopened.allTime().completedSessions);
+        for (int day = 0; day < 8; day++) {
+            assertEquals(rebuilt.day(day).sessions, reopened.day(day).sessions);
+        }
+    }
+
+    @Test
+    public void damagedFileOrNewZoneTriggersRebuild() throws Exception {
+        // 23:30 UTC is already the next day in Berlin
+        log.append(0, 10 * DAY - 30 * MINUTE, MINUTE, "write", 0, true);
+        FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+
+        FocusRollups berlin = FocusRollups.open(rollupsFile, log, ZoneId.of("Europe/Berlin"));
+        assertEquals(1, berlin.day(10).sessions);
+
+        try (RandomAccessFile raf = new RandomAccessFile(rollupsFile, "rw")) {
+            raf.seek(raf.length() - 12);
+            raf.write(0x7f);
+        }
+        FocusRollups repaired = FocusRollups.open(rollupsFile, log, ZoneId.of("Europe/Berlin"));
+        assertEquals(1, repaired.allTime().sessions);
+        assertEquals(MINUTE, repaired.day(10).focusMs);
+    }
+
+    @Test
+    public void malformedStringTriggersRebuild() throws Exception {
+        log.append(0, 10 * DAY, MINUTE, "write", 0, true);
+        FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+
+        // The zone id follows the magic and version; 0xff is never valid modified UTF-8
+        try (RandomAccessFile raf = new RandomAccessFile(rollupsFile, "rw")) {
+            raf.seek(10);
+            raf.write(0xff);
+        }
+        FocusRollups repaired = FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+        assertEquals(1, repaired.allTime().sessions);
+        assertEquals(MINUTE, repaired.day(10).focusMs);
+    }
+
+    @Test
+    public void oldDaysArePruned() throws Exception {
+        log.append(0, 0, MINUTE, "write", 0, true);
+        log.append(0, FocusRollups.DAYS_KEPT * DAY, MINUTE, "write", 0, true);
+        FocusRollups rollups = FocusRollups.open(rollupsFile, log, ZoneOffset.UTC);
+
+        assertEquals(0, rollups.day(0).sessions);
+        assertEquals(1, rollups.day(FocusRollups.DAYS_KEPT).sessions);
+        // Pruning only trims the per-day view
+        assertEquals(2, rollups.allTime().sessions);
+    }
+}
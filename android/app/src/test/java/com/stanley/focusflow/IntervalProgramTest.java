@@ -0,0 +1,56 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+public class IntervalProgramTest {
+
+    private static final String POMODORO = "{\"phases\": ["
+            + "{\"name\": \"Focus\", \"kind\": \"focus\", \"durationSeconds\": 1500},"
+            + "{\"name\": \"Break\", \"kind\": \"break\", \"durationSeconds\": 300}],"
+            + " \"repeat\": 4,"
+            + " \"longBreak\": {\"name\": \"Long break\", \"durationSeconds\": 900, \"every\": 4}";
+
+    @Test
+    public void expandsRepeatsAndLongBreaks() throws JSONException {
+        IntervalProgram program = IntervalProgram.fromJson(POMODORO + "}");
+
+        assertEquals(8, program.getPhaseCount());
+        assertEquals("Break", program.getPhase(5).getName());
+        assertEquals("Long break", program.getPhase(7).getName());
+        assertEquals(900_000, program.getPhase(7).getDurationMs());
+    }
+
+    @Test
+    public void skipsTheFinalBreak() throws JSONException {
+        IntervalProgram program = IntervalProgram.fromJson(POMODORO + ", \"skipFinalBreak\": true}");
+
+        assertEquals(7, program.getPhaseCount());
+        assertEquals(IntervalProgram.Kind.FOCUS, program.getPhase(6).getKind());
+    }
+
+    @Test
+    public void rejectsProgramsWithNothingToRun() {
+        assertRejected("{\"phases\": []}");
+        // Only breaks, and every one of them skipped as final
+        assertRejected("{\"phases\": [{\"kind\": \"break\", \"durationSeconds\": 300}],"
+                + " \"repeat\": 2, \"skipFinalBreak\": true}");
+    }
+
+    @Test
+    public void rejectsInvalidDurationsAndCounts() {
+        assertRejected("{\"phases\": [{\"kind\": \"focus\", \"durationSeconds\": 0}]}");
+        assertRejected("{\"phases\": [{\"kind\": \"focus\", \"durationSeconds\": 60}], \"repeat\": 0}");
+    }
+
+    private static void assertRejected(String json) {
+        try {
+            IntervalProgram.fromJson(json);
+            fail("Expected " + json + " to be rejected");
+        } catch (JSONException expected) {
+            // Rejected as invalid
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void everyValueLandsInABucketThatContainsIt() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 100, 1_000, 123_456, 1L << 40, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            assertTrue(value <= LatencyHistogram.highestValueIn(bucket));
+            if (bucket > 0) {
+                assertTrue(value > LatencyHistogram.highestValueIn(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMaxNanos());
+        assertEquals(500_500, snapshot.getMeanNanos());
+        assertWithin(500_000, snapshot.getPercentileNanos(50));
+        assertWithin(990_000, snapshot.getPercentileNanos(99));
+        assertEquals(1_000_000, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMaxNanos());
+        assertEquals(0, snapshot.getPercentileNanos(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " not within 12.5% of " + expected,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,124 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+public class LogScheduledTaskStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("scheduled_tasks", ".log");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void putReplacesAndRemoveDeletes() throws Exception {
+        LogScheduledTaskStore store = new LogScheduledTaskStore(file);
+        store.put(new ScheduledTask("a", "{\"title\":\"one\"}", 100));
+        store.put(new ScheduledTask("a", "{\"title\":\"two\"}", 200));
+        store.put(new ScheduledTask("b", "{}", 300));
+
+        assertEquals(2, store.size());
+        assertEquals("{\"title\":\"two\"}", store.get("a").getJson());
+        assertEquals(200, store.get("a").getScheduledTime());
+
+        assertTrue(store.remove("a"));
+        assertFalse(store.remove("a"));
+        assertNull(store.get("a"));
+        assertEquals(1, store.getAll().size());
+        store.close();
+    }
+
+    @Test
+    public void reopenReplaysLogAndDropsTornRecord() throws Exception {
+        LogScheduledTaskStore store = new LogScheduledTaskStore(file);
+        for (int i = 0; i < 100; i++) {
+            store.put(new ScheduledTask("task" + i, "{}", i));
+        }
+        store.remove("task7");
+        store.close();
+
+        // Simulate a crash halfway through an append
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(64);
+            raf.writeInt(0);
+        }
+
+        LogScheduledTaskStore reopened = new LogScheduledTaskStore(file);
+        assertEquals(99, reopened.size());
+        assertNull(reopened.get("task7"));
+        assertEquals(42, reopened.get("task42").getScheduledTime());
+
+        reopened.put(new ScheduledTask("task7", "{}", 7));
+        assertEquals(7, reopened.get("task7").getScheduledTime());
+        reopened.close();
+    }
+
+    @Test
+    public void secondInstanceSeesAppendsAndCompaction() throws Exception {
+        LogScheduledTaskStore first = new LogScheduledTaskStore(file);
+        LogScheduledTaskStore second = new LogScheduledTaskStore(file);
+
+        first.put(new ScheduledTask("shared", "{\"v\":1}", 1));
+        assertEquals("{\"v\":1}", second.get("shared").getJson());
+
+        // Enough churn to trigger compaction in the first instance
+        String padding = new String(new char[512]).replace('\0', 'x');
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 100; i++) {
+                first.put(new ScheduledTask("task" + i, "{\"p\":\"" + padding + "\"}", round));
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            first.remove("task" + i);
+        }
+
+        assertEquals(1, second.size());
+        second.put(new ScheduledTask("shared", "{\"v\":2}", 2));
+        assertEquals("{\"v\":2}", first.get("shared").getJson());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void noticesCompactionThatKeepsTheLength() throws Exception {
+        LogScheduledTaskStore store = new LogScheduledTaskStore(file);
+        store.put(new ScheduledTask("shared", "{\"v\":1}", 1));
+        assertEquals("{\"v\":1}", store.get("shared").getJson());
+
+        // What another process's compaction leaves behind: the next generation, same length
+        File compacted = new File(file.getPath() + ".other");
+        LogScheduledTaskStore other = new LogScheduledTaskStore(compacted);
+        other.put(new ScheduledTask("shared", "{\"v\":2}", 2));
+        other.close();
+        try (RandomAccessFile raf = new RandomAccessFile(compacted, "rw")) {
+            raf.seek(8);
+            raf.writeLong(1);
+        }
+        assertEquals(file.length(), compacted.length());
+        try (RandomAccessFile replaced = new RandomAccessFile(file, "rw")) {
+            assertTrue(compacted.renameTo(file));
+            // and the mark it leaves on the log it replaced
+            replaced.seek(8);
+            replaced.writeLong(-1);
+        }
+
+        assertEquals("{\"v\":2}", store.get("shared").getJson());
+        assertEquals(2, store.get("shared").getScheduledTime());
+        store.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NativeMetricsTest {
+
+    @Test
+    public void metricsAreSharedByName() {
+        assertSame(NativeMetrics.counter("test.shared"), NativeMetrics.counter("test.shared"));
+        assertSame(NativeMetrics.timer("test.shared"), NativeMetrics.timer("test.shared"));
+    }
+
+    @Test
+    public void countersAddUpAcrossThreads() throws Exception {
+        final StripedCounter counter = NativeMetrics.counter("test.threads");
+        counter.reset();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10_000; i++) {
+                        counter.increment();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80_000, counter.sum());
+        assertEquals(Long.valueOf(80_000), NativeMetrics.counterValues().get("test.threads"));
+    }
+
+    @Test
+    public void timerRecordsOneSamplePerStop() {
+        NativeMetrics.Timer timer = NativeMetrics.timer("test.timer");
+        timer.getHistogram().reset();
+        for (int i = 0; i < 3; i++) {
+            timer.stop(timer.start());
+        }
+
+        assertEquals(3, NativeMetrics.timerSnapshots().get("test.timer").getCount());
+    }
+
+    @Test
+    public void timerTakesDurationsMeasuredElsewhere() {
+        NativeMetrics.Timer timer = NativeMetrics.timer("test.recorded");
+        timer.getHistogram().reset();
+        timer.record(2_000_000);
+        timer.record(6_000_000);
+
+        LatencyHistogram.Snapshot snapshot = NativeMetrics.timerSnapshots().get("test.recorded");
+        assertEquals(2, snapshot.getCount());
+        assertEquals(4_000_000, snapshot.getMeanNanos(), 0);
+        assertEquals(6_000_000, snapshot.getMaxNanos());
+    }
+}
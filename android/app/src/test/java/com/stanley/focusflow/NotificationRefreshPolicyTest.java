@@ -0,0 +1,41 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class NotificationRefreshPolicyTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    public void spacingShrinksTowardsTheEnd() {
+        NotificationRefreshPolicy policy = new NotificationRefreshPolicy();
+        policy.recordRefresh(0);
+
+        // Two hours left: once a minute
+        assertFalse(policy.shouldRefresh(2 * HOUR, 59_000));
+        assertTrue(policy.shouldRefresh(2 * HOUR, 60_000));
+
+        // Two minutes left: every five seconds, even when the tick runs late
+        policy.recordRefresh(100_000);
+        assertFalse(policy.shouldRefresh(120_000, 104_999));
+        assertTrue(policy.shouldRefresh(119_000, 105_400));
+
+        assertEquals(2, policy.getPostedCount());
+        assertEquals(2, policy.getSkippedCount());
+    }
+
+    @Test
+    public void screenOffSkipsUntilItComesBackOn() {
+        NotificationRefreshPolicy policy = new NotificationRefreshPolicy();
+        policy.recordRefresh(0);
+        policy.setInteractive(false);
+        assertFalse(policy.shouldRefresh(60_000, 30_000));
+
+        // Back on: refresh straight away rather than waiting out the spacing
+        policy.setInteractive(true);
+        assertTrue(policy.shouldRefresh(59_000, 31_000));
+        assertEquals(1, policy.getSkippedCount());
+    }
+}
@@ -0,0 +1,113 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class RecurrenceEngineTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private static long millis(String localDateTime, ZoneId zone) {
+        return LocalDateTime.parse(localDateTime).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static long[] next(RecurrenceEngine engine, RecurrenceRule rule, long after, int count) {
+        long[] out = new long[count];
+        assertEquals(count, engine.nextOccurrences(rule, after, out));
+        return out;
+    }
+
+    @Test
+    public void dailyIntervalCountsFromStartDate() {
+        RecurrenceEngine engine = new RecurrenceEngine(ZoneOffset.UTC);
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY)
+                .interval(3)
+                .at(9, 30)
+                .startingOn(LocalDate.parse("2024-01-01"))
+                .build();
+
+        long[] times = next(engine, rule, millis("2024-01-04T09:30", ZoneOffset.UTC), 2);
+        assertEquals(millis("2024-01-07T09:30", ZoneOffset.UTC), times[0]);
+        assertEquals(millis("2024-01-10T09:30", ZoneOffset.UTC), times[1]);
+    }
+
+    @Test
+    public void weeklyOnSeveralDaysEveryOtherWeek() {
+        RecurrenceEngine engine = new RecurrenceEngine(ZoneOffset.UTC);
+        // 2024-01-01 is a Monday
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.WEEKLY)
+                .interval(2)
+                .at(8, 0)
+                .onDay(DayOfWeek.MONDAY)
+                .onDay(DayOfWeek.WEDNESDAY)
+                .startingOn(LocalDate.parse("2024-01-01"))
+                .build();
+
+        long[] times = next(engine, rule, millis("2024-01-01T12:00", ZoneOffset.UTC), 4);
+        assertEquals(millis("2024-01-03T08:00", ZoneOffset.UTC), times[0]);
+        assertEquals(millis("2024-01-15T08:00", ZoneOffset.UTC), times[1]);
+        assertEquals(millis("2024-01-17T08:00", ZoneOffset.UTC), times[2]);
+        assertEquals(millis("2024-01-29T08:00", ZoneOffset.UTC), times[3]);
+    }
+
+    @Test
+    public void monthlyLastDayAndClampedDay() {
+        RecurrenceEngine engine = new RecurrenceEngine(ZoneOffset.UTC);
+        RecurrenceRule lastDay = RecurrenceRule.builder(RecurrenceRule.Frequency.MONTHLY)
+                .at(18, 0)
+                .onLastDayOfMonth()
+                .startingOn(LocalDate.parse("2024-01-10"))
+                .build();
+        long[] times = next(engine, lastDay, millis("2024-01-10T00:00", ZoneOffset.UTC), 3);
+        assertEquals(millis("2024-01-31T18:00", ZoneOffset.UTC), times[0]);
+        assertEquals(millis("2024-02-29T18:00", ZoneOffset.UTC), times[1]);
+        assertEquals(millis("2024-03-31T18:00", ZoneOffset.UTC), times[2]);
+
+        RecurrenceRule day31 = RecurrenceRule.builder(RecurrenceRule.Frequency.MONTHLY)
+                .at(18, 0)
+                .onDayOfMonth(31)
+                .startingOn(LocalDate.parse("2024-03-31"))
+                .build();
+        times = next(engine, day31, millis("2024-03-31T18:00", ZoneOffset.UTC), 2);
+        assertEquals(millis("2024-04-30T18:00", ZoneOffset.UTC), times[0]);
+        assertEquals(millis("2024-05-31T18:00", ZoneOffset.UTC), times[1]);
+    }
+
+    @Test
+    public void onceOccursOnlyOnStartDate() {
+        RecurrenceEngine engine = new RecurrenceEngine(ZoneOffset.UTC);
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.ONCE)
+                .at(9, 0)
+                .startingOn(LocalDate.parse("2024-05-05"))
+                .build();
+
+        long due = millis("2024-05-05T09:00", ZoneOffset.UTC);
+        assertEquals(due, engine.nextOccurrence(rule, due - 1));
+        assertEquals(RecurrenceEngine.NO_OCCURRENCE, engine.nextOccurrence(rule, due));
+    }
+
+    @Test
+    public void keepsLocalTimeAcrossDaylightSavingChange() {
+        RecurrenceEngine engine = new RecurrenceEngine(NEW_YORK);
+        RecurrenceRule rule = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY)
+                .at(9, 0)
+                .startingOn(LocalDate.parse("2024-03-01"))
+                .build();
+
+        // Clocks went forward on 2024-03-10
+        long[] times = next(engine, rule, millis("2024-03-09T10:00", NEW_YORK), 2);
+        assertEquals(millis("2024-03-10T09:00", NEW_YORK), times[0]);
+        assertEquals(millis("2024-03-11T09:00", NEW_YORK), times[1]);
+        assertEquals(23 * 60 * 60 * 1000L, times[0] - millis("2024-03-09T09:00", NEW_YORK));
+
+        assertEquals(millis("2024-03-10T00:00", NEW_YORK) - 1,
+                engine.endOfDay(millis("2024-03-09T10:00", NEW_YORK)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public class SessionLogTest {
+
+    private static final long MINUTE = 60_000;
+
+    private File file;
+    private File taskFile;
+    private final RecurrenceEngine calendar = new RecurrenceEngine(ZoneOffset.UTC);
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("focus_sessions", ".log");
+        file.delete();
+        taskFile = new File(file.getPath() + ".tasks");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        taskFile.delete();
+    }
+
+    @Test
+    public void totalsGroupByDayWeekAndTask() throws Exception {
+        SessionLog log = new SessionLog(file);
+        // Sunday 2024-03-10 and Monday 2024-03-11 fall in ISO weeks 10 and 11
+        log.append(0, at(2024, 3, 10, 9), 25 * MINUTE, "write", 0, true);
+        log.append(0, at(2024, 3, 11, 9), 25 * MINUTE, "write", 1, true);
+        log.append(0, at(2024, 3, 11, 14), 10 * MINUTE, "read", 2, false);
+
+        List<SessionLog.Total> days = log.totals(SessionLog.Grouping.DAY, 0, Long.MAX_VALUE, calendar);
+        assertEquals(2, days.size());
+        assertEquals("2024-03-10", days.get(0).key);
+        assertEquals("2024-03-11", days.get(1).key);
+        assertEquals(2, days.get(1).sessions);
+        assertEquals(1, days.get(1).completedSessions);
+        assertEquals(35 * MINUTE, days.get(1).focusMs);
+
+        List<SessionLog.Total> weeks = log.totals(SessionLog.Grouping.WEEK, 0, Long.MAX_VALUE, calendar);
+        assertEquals("2024-W10", weeks.get(0).key);
+        assertEquals("2024-W11", weeks.get(1).key);
+
+        List<SessionLog.Total> tasks = log.totals(SessionLog.Grouping.TASK,
+                at(2024, 3, 11, 0), Long.MAX_VALUE, calendar);
+        assertEquals("read", tasks.get(0).key);
+        assertEquals("write", tasks.get(1).key);
+        assertEquals(1, tasks.get(1).sessions);
+    }
+
+    @Test
+    public void reopenDropsTornRecord() throws Exception {
+        SessionLog log = new SessionLog(file);
+        log.append(1, 2, 3, "write", 0, true);
+        log.append(4, 5, 6, "read", 0, true);
+        log.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        SessionLog reopened = new SessionLog(file);
+        assertEquals(1, reopened.size());
+        reopened.append(7, 8, 9, "read", 0, true);
+        List<SessionLog.Total> tasks = reopened.totals(SessionLog.Grouping.TASK, 0, Long.MAX_VALUE, calendar);
+        assertEquals(2, tasks.size());
+        assertEquals(9, tasks.get(0).focusMs);
+    }
+
+    private static long at(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,88 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+public class TimerCheckpointTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("timer_checkpoint", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void roundTripsThroughTheFile() throws Exception {
+        new TimerCheckpoint(1_500_000, 900_000, 1_700_000_000_000L, 1_700_000_600_000L,
+                50_000, true, true, 3, "D\u00e9j\u00e0 vu", "task-42", "{\"phases\":[]}", 2)
+                .writeTo(file);
+
+        TimerCheckpoint restored = TimerCheckpoint.readFrom(file);
+        assertNotNull(restored);
+        assertEquals(1_500_000, restored.getDurationMs());
+        assertEquals(1_700_000_000_000L, restored.getStartTimeMs());
+        assertTrue(restored.isPaused());
+        assertTrue(restored.isLowPower());
+        assertEquals(3, restored.getPauseCount());
+        assertEquals("D\u00e9j\u00e0 vu", restored.getTaskName());
+        assertEquals("task-42", restored.getTaskId());
+        assertEquals("{\"phases\":[]}", restored.getProgramJson());
+        assertEquals(2, restored.getPhaseIndex());
+        assertEquals(900_000, restored.remainingAt(0, 0));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void remainingTimeFollowsTheElapsedClock() {
+        TimerCheckpoint checkpoint = new TimerCheckpoint(1_500_000, 900_000, 0, 10_000_000,
+                50_000, false, false, 0, "Focus Session", null, null, 0);
+
+        // The wall clock was changed, but elapsedRealtime kept counting
+        assertEquals(840_000, checkpoint.remainingAt(5_000_000, 110_000));
+        // After a reboot elapsedRealtime starts again, so fall back to the wall clock
+        assertEquals(600_000, checkpoint.remainingAt(10_300_000, 1_000));
+        assertEquals(0, checkpoint.remainingAt(20_000_000, 2_000));
+        // A session that ended while the process was dead keeps its real end time
+        assertEquals(-9_098_000, checkpoint.deadlineElapsedAt(20_000_000, 2_000));
+    }
+
+    @Test
+    public void rebootIsNoticedOnceTheNewUptimePassesTheAnchor() {
+        TimerCheckpoint checkpoint = new TimerCheckpoint(1_500_000, 900_000, 0, 10_000_000,
+                50_000, false, false, 0, "Focus Session", null, null, 0);
+
+        // Rebooted at 10_100_000 and up for 200 s, longer than the old uptime at the anchor
+        assertEquals(600_000, checkpoint.remainingAt(10_300_000, 200_000));
+        assertEquals(800_000, checkpoint.deadlineElapsedAt(10_300_000, 200_000));
+        // A few seconds of clock drift on the same boot is not a reboot
+        assertEquals(840_000, checkpoint.remainingAt(10_062_000, 110_000));
+    }
+
+    @Test
+    public void damagedOrMissingFileIsIgnored() throws Exception {
+        assertNull(TimerCheckpoint.readFrom(file));
+
+        new TimerCheckpoint(60_000, 60_000, 0, 0, 0, false, false, 0, "Focus Session", null, null, 0)
+                .writeTo(file);
+        assertNull(TimerCheckpoint.readFrom(file).getTaskId());
+        assertNull(TimerCheckpoint.readFrom(file).getProgramJson());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(12);
+            raf.write(0x7f);
+        }
+        assertNull(TimerCheckpoint.readFrom(file));
+    }
+}
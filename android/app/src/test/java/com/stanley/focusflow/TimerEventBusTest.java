@@ -0,0 +1,83 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TimerEventBusTest {
+
+    private final TimerEventBus bus = TimerEventBus.get();
+    private final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    @After
+    public void tearDown() {
+        bus.unsubscribe(subscriber);
+        bus.publishStopped();
+    }
+
+    @Test
+    public void updatesAreCoalescedToTheRequestedRate() {
+        // One update every ~17 minutes: only the first of a burst gets through
+        bus.subscribe(subscriber, 0.001);
+        long saved = bus.getSavedUpdateCount();
+
+        bus.publishUpdate(3000, 5000);
+        bus.publishUpdate(2000, 5000);
+        bus.publishUpdate(1000, 5000);
+
+        assertEquals(1, subscriber.updates.size());
+        assertEquals(Long.valueOf(3000), subscriber.updates.get(0));
+        assertEquals(2, bus.getSavedUpdateCount() - saved);
+    }
+
+    @Test
+    public void suspendedSubscriberCatchesUpWithTheLatestValue() {
+        bus.subscribe(subscriber, 0);
+        bus.publishUpdate(3000, 5000);
+        bus.publishUpdate(2000, 5000);
+        bus.publishPaused(2000);
+
+        // Lifecycle events are never held back
+        assertTrue(subscriber.updates.isEmpty());
+        assertEquals(1, subscriber.pauses);
+
+        bus.setUpdateRate(subscriber, 1);
+        assertEquals(1, subscriber.updates.size());
+        assertEquals(Long.valueOf(2000), subscriber.updates.get(0));
+    }
+
+    @Test
+    public void nothingToCatchUpAfterTheTimerStops() {
+        bus.subscribe(subscriber, 0);
+        bus.publishUpdate(3000, 5000);
+        bus.publishStopped();
+
+        bus.setUpdateRate(subscriber, 1);
+        assertTrue(subscriber.updates.isEmpty());
+        assertEquals(1, subscriber.stops);
+    }
+
+    private static final class RecordingSubscriber implements TimerEventBus.Subscriber {
+        final List<Long> updates = new ArrayList<>();
+        int pauses;
+        int stops;
+
+        @Override
+        public void onTimerUpdate(long remainingMs, long totalMs) {
+            updates.add(remainingMs);
+        }
+
+        @Override
+        public void onTimerEvent(TimerEventLog.Event event) {
+            if (event.getType().equals("timerPaused")) {
+                pauses++;
+            } else if (event.getType().equals("timerStopped")) {
+                stops++;
+            }
+        }
+    }
+}
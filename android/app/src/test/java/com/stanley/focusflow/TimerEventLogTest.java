@@ -0,0 +1,91 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class TimerEventLogTest {
+
+    @Test
+    public void returnsEventsAfterTheGivenSequenceInOrder() {
+        TimerEventLog log = new TimerEventLog(8);
+        for (int i = 0; i < 5; i++) {
+            log.append("timerPaused", data(i));
+        }
+
+        TimerEventLog.Batch batch = log.since(2);
+        assertFalse(batch.truncated);
+        assertEquals(5, batch.lastSeq);
+        assertEquals(3, batch.events.size());
+        assertEquals(3, batch.events.get(0).getSeq());
+        assertEquals(2, batch.events.get(0).getData().get("value"));
+
+        // Nothing new since the last call
+        batch = log.since(batch.lastSeq);
+        assertTrue(batch.events.isEmpty());
+        assertEquals(5, batch.lastSeq);
+    }
+
+    @Test
+    public void overwrittenEventsAreReportedAsTruncated() {
+        TimerEventLog log = new TimerEventLog(4);
+        for (int i = 0; i < 10; i++) {
+            log.append("timerUpdate", data(i));
+        }
+
+        TimerEventLog.Batch batch = log.since(1);
+        assertTrue(batch.truncated);
+        assertEquals(4, batch.events.size());
+        assertEquals(7, batch.events.get(0).getSeq());
+        assertEquals(10, batch.lastSeq);
+        assertFalse(log.since(6).truncated);
+    }
+
+    @Test
+    public void concurrentProducersNeverLoseOrDuplicateSequences() throws Exception {
+        final TimerEventLog log = new TimerEventLog(4096);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        log.append("timerStarted", Collections.<String, Object>emptyMap());
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        TimerEventLog.Batch batch = log.since(0);
+        assertFalse(batch.truncated);
+        assertEquals(4000, batch.events.size());
+        for (int i = 0; i < batch.events.size(); i++) {
+            assertEquals(i + 1, batch.events.get(i).getSeq());
+        }
+    }
+
+    private static Map<String, Object> data(int value) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("value", value);
+        return data;
+    }
+}
@@ -0,0 +1,35 @@
+package com.stanley.focusflow;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TimerSnapshotTest {
+
+    @Test
+    public void countingSnapshotTracksTheDeadline() {
+        TimerSnapshot snapshot = TimerSnapshot.counting(25 * 60_000, 1_000_000, "Write report");
+
+        assertTrue(snapshot.isRunning());
+        assertFalse(snapshot.isPaused());
+        assertEquals(60_000, snapshot.getRemainingMs(940_000));
+        assertEquals(0, snapshot.getRemainingMs(1_000_500));
+        assertEquals("Write report", snapshot.getTaskName());
+    }
+
+    @Test
+    public void pausedSnapshotHoldsStill() {
+        TimerSnapshot snapshot = TimerSnapshot.paused(25 * 60_000, 42_000, "Write report");
+
+        assertTrue(snapshot.isRunning());
+        assertTrue(snapshot.isPaused());
+        assertEquals(42_000, snapshot.getRemainingMs(0));
+        assertEquals(42_000, snapshot.getRemainingMs(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void idleHasNothingLeft() {
+        assertFalse(TimerSnapshot.IDLE.isRunning());
+        assertEquals(0, TimerSnapshot.IDLE.getRemainingMs(123));
+    }
+}
@@ -0,0 +1,82 @@
+package com.focustask.app.benchmarks;
+
+import com.focustask.app.BlockedAppMatcher;
+import com.focustask.app.BlockedPackageIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-event blocked-app check in AppBlockerService. Foreground packages alternate
+ * so every call gets past the repeated-event check and reaches the set lookup. The
+ * index benchmarks look names up directly, as Strings and as a non-String CharSequence
+ * that has to be hashed char by char.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockedAppLookupBenchmark {
+
+    @Param({"10", "1000"})
+    public int blockedCount;
+
+    private BlockedAppMatcher matcher;
+    private BlockedPackageIndex index;
+    private String[] foregroundPackages;
+    private CharSequence[] foregroundSequences;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> blocked = new ArrayList<>(blockedCount);
+        for (int i = 0; i < blockedCount; i++) {
+            blocked.add("com.example.distraction" + i);
+        }
+        matcher = new BlockedAppMatcher();
+        matcher.setBlockedApps(blocked);
+        index = BlockedPackageIndex.of(blocked);
+
+        // Half blocked, half allowed
+        foregroundPackages = new String[64];
+        for (int i = 0; i < foregroundPackages.length; i++) {
+            foregroundPackages[i] = i % 2 == 0
+                    ? "com.example.distraction" + (i * 7919 % blockedCount)
+                    : "com.example.allowed" + i;
+        }
+        foregroundSequences = new CharSequence[foregroundPackages.length];
+        for (int i = 0; i < foregroundPackages.length; i++) {
+            foregroundSequences[i] = new StringBuilder(foregroundPackages[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean shouldBlock() {
+        String packageName = foregroundPackages[next];
+        next = (next + 1) & (foregroundPackages.length - 1);
+        return matcher.shouldBlock(packageName);
+    }
+
+    @Benchmark
+    public boolean indexContainsString() {
+        String packageName = foregroundPackages[next];
+        next = (next + 1) & (foregroundPackages.length - 1);
+        return index.contains(packageName);
+    }
+
+    @Benchmark
+    public boolean indexContainsCharSequence() {
+        CharSequence packageName = foregroundSequences[next];
+        next = (next + 1) & (foregroundSequences.length - 1);
+        return index.contains(packageName);
+    }
+}
@@ -0,0 +1,59 @@
+package com.focustask.app.benchmarks;
+
+import com.focustask.app.ForegroundUsage;
+import com.focustask.app.UsageHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The usage accounting AppBlockerService does on every foreground switch: crediting the
+ * previous app's stay. Switches are a second apart over a few dozen apps, so the clock
+ * crosses local midnight now and then as it would on a device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ForegroundUsageBenchmark {
+
+    private File file;
+    private ForegroundUsage usage;
+    private String[] foregroundPackages;
+    private long now;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("usage", ".bin");
+        file.delete();
+        usage = new ForegroundUsage(UsageHistogram.open(file, ZoneId.of("America/New_York")));
+        foregroundPackages = new String[64];
+        for (int i = 0; i < foregroundPackages.length; i++) {
+            foregroundPackages[i] = "com.example.app" + i;
+        }
+        now = 1_700_000_000_000L;
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void onForeground() {
+        now += 1000;
+        usage.onForeground(foregroundPackages[next], now);
+        next = (next + 1) & (foregroundPackages.length - 1);
+    }
+}
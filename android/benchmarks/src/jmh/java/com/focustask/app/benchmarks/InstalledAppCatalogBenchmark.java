@@ -0,0 +1,67 @@
+package com.focustask.app.benchmarks;
+
+import com.focustask.app.InstalledAppCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm getInstalledApps queries against the cached catalog: the whole list, a page, and
+ * a prefix search. Excludes the PackageManager IPC that checks for changes first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InstalledAppCatalogBenchmark {
+
+    @Param({"100", "1000"})
+    public int appCount;
+
+    private File file;
+    private InstalledAppCatalog catalog;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("apps", ".bin");
+        file.delete();
+        Map<String, String> appNames = new HashMap<>();
+        for (int i = 0; i < appCount; i++) {
+            appNames.put("com.example.app" + i, "App " + Integer.toString(i * 7919 % appCount, 36));
+        }
+        catalog = InstalledAppCatalog.open(file);
+        catalog.replaceAll(appNames);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public InstalledAppCatalog.Page queryAll() {
+        return catalog.query("", 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public InstalledAppCatalog.Page queryPage() {
+        return catalog.query("", 40, 20);
+    }
+
+    @Benchmark
+    public InstalledAppCatalog.Page queryPrefix() {
+        return catalog.query("app 1", 0, 20);
+    }
+}
@@ -0,0 +1,90 @@
+package com.stanley.focusflow.benchmarks;
+
+import com.stanley.focusflow.CatchUpPlanner;
+import com.stanley.focusflow.RecurrenceEngine;
+import com.stanley.focusflow.RecurrenceRule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catch-up pass RecurringTaskReceiver makes after boot: every stored task missed
+ * its occurrence on the day the device went off and the device has been off for
+ * {@code gapDays}. Tasks are a mix of daily, every-other-day, weekly and monthly rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatchUpPlannerBenchmark {
+
+    @Param({"10000"})
+    public int taskCount;
+
+    @Param({"30"})
+    public int gapDays;
+
+    @Param({"UTC", "America/New_York"})
+    public String zoneId;
+
+    private CatchUpPlanner planner;
+    private RecurrenceRule[] rules;
+    private long[] missedTimes;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        ZoneId zone = ZoneId.of(zoneId);
+        RecurrenceEngine engine = new RecurrenceEngine(zone);
+        planner = new CatchUpPlanner(engine);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate offSince = LocalDate.of(2024, 6, 1);
+        now = offSince.plusDays(gapDays).atTime(12, 0).atZone(zone).toInstant().toEpochMilli();
+
+        rules = new RecurrenceRule[taskCount];
+        missedTimes = new long[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            RecurrenceRule.Builder builder;
+            switch (i % 4) {
+                case 0:
+                    builder = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY);
+                    break;
+                case 1:
+                    builder = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY).interval(2);
+                    break;
+                case 2:
+                    builder = RecurrenceRule.builder(RecurrenceRule.Frequency.WEEKLY)
+                            .onDay(DayOfWeek.MONDAY)
+                            .onDay(DayOfWeek.WEDNESDAY)
+                            .onDay(DayOfWeek.FRIDAY);
+                    break;
+                default:
+                    builder = RecurrenceRule.builder(RecurrenceRule.Frequency.MONTHLY).onDayOfMonth(15);
+                    break;
+            }
+            rules[i] = builder.at(i % 24, i % 60).startingOn(start).build();
+            // The first occurrence on or after the day the device went off
+            missedTimes[i] = engine.nextOccurrence(rules[i],
+                    offSince.atStartOfDay(zone).toInstant().toEpochMilli() - 1);
+        }
+    }
+
+    @Benchmark
+    public int planAll() {
+        int missed = 0;
+        for (int i = 0; i < rules.length; i++) {
+            missed += planner.plan(rules[i], missedTimes[i], now).getMissedCount();
+        }
+        return missed;
+    }
+}
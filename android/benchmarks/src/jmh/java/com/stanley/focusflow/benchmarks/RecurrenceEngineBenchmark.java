@@ -0,0 +1,82 @@
+package com.stanley.focusflow.benchmarks;
+
+import com.stanley.focusflow.RecurrenceEngine;
+import com.stanley.focusflow.RecurrenceRule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next-occurrence computation as done when a recurring task fires or is completed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecurrenceEngineBenchmark {
+
+    @Param({"UTC", "America/New_York"})
+    public String zoneId;
+
+    private RecurrenceEngine engine;
+    private RecurrenceRule daily;
+    private RecurrenceRule weekly;
+    private RecurrenceRule monthly;
+    private long after;
+    private final long[] occurrences = new long[16];
+
+    @Setup
+    public void setUp() {
+        engine = new RecurrenceEngine(ZoneId.of(zoneId));
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        daily = RecurrenceRule.builder(RecurrenceRule.Frequency.DAILY)
+                .at(9, 0)
+                .startingOn(start)
+                .build();
+        weekly = RecurrenceRule.builder(RecurrenceRule.Frequency.WEEKLY)
+                .interval(2)
+                .at(7, 30)
+                .onDay(DayOfWeek.MONDAY)
+                .onDay(DayOfWeek.WEDNESDAY)
+                .onDay(DayOfWeek.FRIDAY)
+                .startingOn(start)
+                .build();
+        monthly = RecurrenceRule.builder(RecurrenceRule.Frequency.MONTHLY)
+                .at(18, 0)
+                .onLastDayOfMonth()
+                .startingOn(start)
+                .build();
+        after = start.plusMonths(7).atStartOfDay(ZoneId.of(zoneId)).toInstant().toEpochMilli();
+    }
+
+    @Benchmark
+    public long nextDaily() {
+        return engine.nextOccurrence(daily, after);
+    }
+
+    @Benchmark
+    public long nextWeekly() {
+        return engine.nextOccurrence(weekly, after);
+    }
+
+    @Benchmark
+    public long nextMonthly() {
+        return engine.nextOccurrence(monthly, after);
+    }
+
+    @Benchmark
+    public long[] next16Weekly() {
+        engine.nextOccurrences(weekly, after, occurrences);
+        return occurrences;
+    }
+}
@@ -0,0 +1,82 @@
+package com.stanley.focusflow.benchmarks;
+
+import com.stanley.focusflow.LogScheduledTaskStore;
+import com.stanley.focusflow.ScheduledTask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and removing a whole sync of tasks with one batch call against one call per
+ * task, the store half of scheduleRecurringTasks versus repeated scheduleRecurringTask.
+ * Alarms and the bridge round trip per call are not included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduledTaskBatchBenchmark {
+
+    @Param({"500"})
+    public int taskCount;
+
+    private File file;
+    private LogScheduledTaskStore store;
+    private List<ScheduledTask> tasks;
+    private List<String> taskIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("scheduled_tasks", ".log").toFile();
+        file.delete();
+        store = new LogScheduledTaskStore(file);
+
+        tasks = new ArrayList<>(taskCount);
+        taskIds = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            String taskId = "task-" + i;
+            taskIds.add(taskId);
+            tasks.add(new ScheduledTask(taskId, TaskJson.sample(taskId), 1_700_000_000_000L + i * 60_000L));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public int putAllThenRemoveAll() throws IOException {
+        store.putAll(tasks);
+        return store.removeAll(taskIds);
+    }
+
+    @Benchmark
+    public int putThenRemoveEach() throws IOException {
+        for (ScheduledTask task : tasks) {
+            store.put(task);
+        }
+        int removed = 0;
+        for (String taskId : taskIds) {
+            if (store.remove(taskId)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,87 @@
+package com.stanley.focusflow.benchmarks;
+
+import com.stanley.focusflow.LogScheduledTaskStore;
+import com.stanley.focusflow.ScheduledTask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save, remove and lookup against the on-disk scheduled task store at different sizes.
+ * Every operation hits the file, as it does on device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduledTaskStoreBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int taskCount;
+
+    private File file;
+    private LogScheduledTaskStore store;
+    private String[] taskIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("scheduled_tasks", ".log").toFile();
+        file.delete();
+        store = new LogScheduledTaskStore(file);
+
+        taskIds = new String[taskCount];
+        List<ScheduledTask> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            taskIds[i] = "task-" + i;
+            tasks.add(new ScheduledTask(taskIds[i], TaskJson.sample(taskIds[i]), 1_700_000_000_000L + i * 60_000L));
+        }
+        store.putAll(tasks);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        file.delete();
+    }
+
+    private String nextId() {
+        String taskId = taskIds[next];
+        next = next + 1 == taskIds.length ? 0 : next + 1;
+        return taskId;
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        String taskId = nextId();
+        store.put(new ScheduledTask(taskId, TaskJson.sample(taskId), System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public boolean removeAndRestore() throws IOException {
+        String taskId = nextId();
+        ScheduledTask task = store.get(taskId);
+        boolean removed = store.remove(taskId);
+        store.put(task);
+        return removed;
+    }
+
+    @Benchmark
+    public ScheduledTask lookup() throws IOException {
+        return store.get(nextId());
+    }
+}
@@ -0,0 +1,36 @@
+package com.stanley.focusflow.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Builds task JSON in the shape RecurringTasksPlugin stores.
+ */
+final class TaskJson {
+    private TaskJson() {
+    }
+
+    static JSONObject build(String taskId) {
+        try {
+            JSONObject time = new JSONObject();
+            time.put("hour", 9);
+            time.put("minute", 30);
+            time.put("dayOfWeek", 2);
+
+            JSONObject task = new JSONObject();
+            task.put("taskId", taskId);
+            task.put("title", "Deep work block");
+            task.put("body", "Time to focus on your task");
+            task.put("recurrence", "weekly");
+            task.put("startDate", "2024-01-01");
+            task.put("time", time);
+            return task;
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String sample(String taskId) {
+        return build(taskId).toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.stanley.focusflow.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task JSON round trips done on every schedule, delivery and completion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskJsonBenchmark {
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = TaskJson.sample("task-42");
+    }
+
+    @Benchmark
+    public String serialize() {
+        return TaskJson.build("task-42").toString();
+    }
+
+    @Benchmark
+    public JSONObject parse() throws JSONException {
+        return new JSONObject(json);
+    }
+
+    @Benchmark
+    public String parseUpdateSerialize() throws JSONException {
+        JSONObject task = new JSONObject(json);
+        task.put("nextDueDate", 1_700_000_000_000L);
+        return task.toString();
+    }
+}
@@ -34,14 +34,48 @@ import {
 import { useTimer } from '@/contexts/TimerContext';
 import { Capacitor } from '@capacitor/core';
 
+// A native blocking rule; times are local, days are 1 = Sunday to 7 = Saturday
+interface BlockingScheduleRule {
+  packages?: string[];
+  groups?: string[];
+  days?: number[];
+  start?: { hour: number; minute: number };
+  end?: { hour: number; minute: number }; // At or before start runs past midnight
+  dailyQuotaMinutes?: number;
+  duringFocusOnly?: boolean;
+}
+
+interface BlockingSchedule {
+  groups?: Record<string, string[]>;
+  rules: BlockingScheduleRule[];
+}
+
+interface AppUsage {
+  packageName: string;
+  foregroundMs: number;
+}
+
+// Foreground time per local day, oldest first; apps and totals are most used first
+interface UsageStats {
+  success: boolean;
+  days: Array<{ date: string; totalMs: number; apps: AppUsage[] }>;
+  totals: AppUsage[];
+  tracking: boolean;
+}
+
 // Define a custom interface for the native plugin
 interface AppBlockerPlugin {
   isServiceEnabled(): Promise<{ enabled: boolean }>;
   requestBlockingPermission(): Promise<{ granted: boolean }>;
   setBlockedApps(options: { apps: string[] }): Promise<void>;
-  getInstalledApps(): Promise<{ apps: Array<{ packageName: string, appName: string, icon?: string }> }>;
+  // Sorted by label; query matches the start of the label or package name
+  getInstalledApps(options?: { query?: string; offset?: number; limit?: number }): Promise<{ apps: Array<{ packageName: string, appName: string, icon?: string }>; total: number }>;
   startBlockingService(): Promise<void>;
   stopBlockingService(): Promise<void>;
+  setBlockingSchedule(options: BlockingSchedule): Promise<{ success: boolean; rules: number; segments: number }>;
+  getBlockingSchedule(): Promise<BlockingSchedule>;
+  setUsageTracking(options: { enabled: boolean }): Promise<{ success: boolean; enabled: boolean }>;
+  getUsageStats(options?: { days?: number }): Promise<UsageStats>;
 }
 
 // Define app category types
@@ -8,17 +8,37 @@ interface RecurringTasksPluginInterface {
     title: string;
     body: string;
     recurrence: 'daily' | 'weekly' | 'monthly' | 'once';
+    interval?: number; // Repeat every n days, weeks or months
+    catchUp?: 'skip' | 'once' | 'summary'; // Occurrences missed while the device was off, default summary
     time: {
       hour: number;
       minute: number;
       dayOfWeek?: number; // 1 = Sunday, 7 = Saturday
+      daysOfWeek?: number[]; // Several weekdays for weekly tasks
       dayOfMonth?: number; // 1-31
+      lastDayOfMonth?: boolean;
     };
   }): Promise<{ success: boolean; taskId: string; nextTriggerTime: number }>;
   
   cancelRecurringTask(options: {
     taskId: string;
   }): Promise<{ success: boolean; taskId: string }>;
+
+  scheduleRecurringTasks(options: {
+    tasks: Array<Parameters<RecurringTasksPluginInterface['scheduleRecurringTask']>[0]>;
+  }): Promise<{
+    success: boolean;
+    scheduled: number;
+    results: Array<{ taskId: string; success: boolean; nextTriggerTime?: number; error?: string }>;
+  }>;
+  
+  cancelRecurringTasks(options: {
+    taskIds: string[];
+  }): Promise<{
+    success: boolean;
+    cancelled: number;
+    results: Array<{ taskId: string; success: boolean; error?: string }>;
+  }>;
   
   completeTask(options: {
     taskId: string;
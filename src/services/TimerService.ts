@@ -1,15 +1,107 @@
 import { registerPlugin, Capacitor } from '@capacitor/core';
+import { App } from '@capacitor/app';
 import NotificationService from './NotificationService';
 
 interface TimerPluginInterface {
-  startTimer(options: { durationSeconds: number; taskName?: string; taskId?: string }): Promise<{ success: boolean; durationSeconds: number }>;
+  startTimer(options: { durationSeconds: number; taskName?: string; taskId?: string; lowPower?: boolean }): Promise<{ success: boolean; durationSeconds: number }>;
   pauseTimer(): Promise<{ success: boolean }>;
   resumeTimer(): Promise<{ success: boolean }>;
   stopTimer(): Promise<{ success: boolean }>;
-  getTimerStatus(): Promise<{ isRunning: boolean }>;
+  getTimerStatus(): Promise<{ isRunning: boolean; isPaused: boolean; timeRemaining: number; totalTime: number; taskName: string }>;
+  setTimerUpdateRate(options: { updatesPerSecond: number }): Promise<{ success: boolean; updatesPerSecond: number }>;
+  getTimerEventStats(): Promise<{ success: boolean; published: number; delivered: number; saved: number }>;
+  getSessionTotals(options: { groupBy: SessionGrouping; from?: number; to?: number }): Promise<{ success: boolean; groupBy: SessionGrouping; totals: SessionTotal[] }>;
+  getFocusDashboard(options?: { days?: number; weeks?: number; topTasks?: number }): Promise<FocusDashboard>;
+  startNamedTimer(options: { id: string; durationSeconds: number; label?: string }): Promise<{ success: boolean; id: string; durationSeconds: number }>;
+  pauseNamedTimer(options: { id: string }): Promise<{ success: boolean; id: string }>;
+  resumeNamedTimer(options: { id: string }): Promise<{ success: boolean; id: string }>;
+  cancelNamedTimer(options: { id: string }): Promise<{ success: boolean; id: string }>;
+  listNamedTimers(): Promise<{ success: boolean; timers: NamedTimer[] }>;
+  startIntervalProgram(options: { program: IntervalProgram; taskName?: string; taskId?: string; lowPower?: boolean }): Promise<{ success: boolean; phaseCount: number }>;
+  getEventsSince(options: { since: number; epoch?: number }): Promise<TimerEventBatch>;
+  getNativeMetrics(options?: { reset?: boolean }): Promise<NativeMetrics>;
+  setNativeTracing(options: { enabled: boolean }): Promise<{ success: boolean; tracing: boolean }>;
   addListener(eventName: string, listenerFunc: (data: any) => void): PluginListenerHandle;
 }
 
+export type SessionGrouping = 'day' | 'week' | 'task';
+
+// Key is "2024-03-05" for a day, "2024-W10" for an ISO week, or the task id/name
+export interface SessionTotal {
+  key: string;
+  sessions: number;
+  completedSessions: number;
+  focusMs: number;
+}
+
+export interface FocusDashboard {
+  success: boolean;
+  today: SessionTotal;
+  thisWeek: SessionTotal;
+  allTime: SessionTotal;
+  days: SessionTotal[];
+  weeks: SessionTotal[];
+  topTasks: SessionTotal[];
+}
+
+export interface NamedTimer {
+  id: string;
+  label: string;
+  duration: number;
+  timeRemaining: number;
+  isPaused: boolean;
+}
+
+export interface IntervalPhaseSpec {
+  name?: string;
+  kind?: 'focus' | 'break';
+  durationSeconds: number;
+}
+
+// The last break of every `longBreak.every`-th cycle becomes the long break
+export interface IntervalProgram {
+  phases: IntervalPhaseSpec[];
+  repeat?: number;
+  longBreak?: { name?: string; durationSeconds: number; every?: number };
+  autoAdvance?: boolean;
+  skipFinalBreak?: boolean;
+}
+
+// Lifecycle event as kept by the native event log; the event's own fields are included too
+export interface TimerEvent {
+  type: string;
+  seq: number;
+  epoch: number;
+  time: number;
+  [field: string]: any;
+}
+
+export interface TimerEventBatch {
+  success: boolean;
+  epoch: number;
+  lastSeq: number;
+  truncated: boolean;
+  events: TimerEvent[];
+}
+
+// Latencies in nanoseconds; percentiles are accurate to within 12.5%
+export interface NativeTiming {
+  count: number;
+  meanNs: number;
+  p50Ns: number;
+  p90Ns: number;
+  p99Ns: number;
+  maxNs: number;
+}
+
+// Keyed by "Plugin.method" or "Service.path", e.g. "TimerService.tick"
+export interface NativeMetrics {
+  success: boolean;
+  tracing: boolean;
+  counters: { [name: string]: number };
+  timers: { [name: string]: NativeTiming };
+}
+
 interface PluginListenerHandle {
   remove: () => Promise<void>;
 }
@@ -27,6 +119,7 @@ class WebTimerPlugin implements TimerPluginInterface {
   private isPaused: boolean = false;
   private lastUpdateTime: number = 0;
   private updateInterval: number = 1000; // Update every second
+  private namedTimers: Map<string, { timer: NamedTimer; deadline: number; handle: number | null }> = new Map();
 
   async startTimer(options: { durationSeconds: number; taskName?: string; taskId?: string }): Promise<{ success: boolean; durationSeconds: number }> {
     if (this.isRunning) return { success: false, durationSeconds: 0 };
@@ -111,8 +204,115 @@ class WebTimerPlugin implements TimerPluginInterface {
     return { success: true };
   }
   
-  async getTimerStatus(): Promise<{ isRunning: boolean }> {
-    return { isRunning: this.isRunning };
+  async getTimerStatus(): Promise<{ isRunning: boolean; isPaused: boolean; timeRemaining: number; totalTime: number; taskName: string }> {
+    return {
+      isRunning: this.isRunning,
+      isPaused: this.isPaused,
+      timeRemaining: this.timeRemaining,
+      totalTime: this.duration,
+      taskName: this.taskName
+    };
+  }
+  
+  async setTimerUpdateRate(options: { updatesPerSecond: number }): Promise<{ success: boolean; updatesPerSecond: number }> {
+    // The web timer ticks in-page, so there is no bridge traffic to throttle
+    return { success: true, updatesPerSecond: options.updatesPerSecond };
+  }
+  
+  async getTimerEventStats(): Promise<{ success: boolean; published: number; delivered: number; saved: number }> {
+    return { success: true, published: 0, delivered: 0, saved: 0 };
+  }
+  
+  async getSessionTotals(options: { groupBy: SessionGrouping; from?: number; to?: number }): Promise<{ success: boolean; groupBy: SessionGrouping; totals: SessionTotal[] }> {
+    // Session history is only kept natively
+    return { success: true, groupBy: options.groupBy, totals: [] };
+  }
+  
+  async startNamedTimer(options: { id: string; durationSeconds: number; label?: string }): Promise<{ success: boolean; id: string; durationSeconds: number }> {
+    this.clearNamedTimer(options.id);
+    const duration = options.durationSeconds * 1000;
+    const timer: NamedTimer = { id: options.id, label: options.label || 'Timer', duration, timeRemaining: duration, isPaused: false };
+    this.namedTimers.set(options.id, { timer, deadline: 0, handle: null });
+    this.scheduleNamedTimer(options.id, duration);
+    return { success: true, id: options.id, durationSeconds: options.durationSeconds };
+  }
+  
+  async pauseNamedTimer(options: { id: string }): Promise<{ success: boolean; id: string }> {
+    const entry = this.namedTimers.get(options.id);
+    if (!entry || entry.timer.isPaused) return { success: false, id: options.id };
+    window.clearTimeout(entry.handle!);
+    entry.timer.timeRemaining = Math.max(0, entry.deadline - Date.now());
+    entry.timer.isPaused = true;
+    return { success: true, id: options.id };
+  }
+  
+  async resumeNamedTimer(options: { id: string }): Promise<{ success: boolean; id: string }> {
+    const entry = this.namedTimers.get(options.id);
+    if (!entry || !entry.timer.isPaused) return { success: false, id: options.id };
+    entry.timer.isPaused = false;
+    this.scheduleNamedTimer(options.id, entry.timer.timeRemaining);
+    return { success: true, id: options.id };
+  }
+  
+  async cancelNamedTimer(options: { id: string }): Promise<{ success: boolean; id: string }> {
+    return { success: this.clearNamedTimer(options.id), id: options.id };
+  }
+  
+  async listNamedTimers(): Promise<{ success: boolean; timers: NamedTimer[] }> {
+    const now = Date.now();
+    const timers = Array.from(this.namedTimers.values()).map(({ timer, deadline }) => ({
+      ...timer,
+      timeRemaining: timer.isPaused ? timer.timeRemaining : Math.max(0, deadline - now)
+    }));
+    return { success: true, timers };
+  }
+  
+  async startIntervalProgram(): Promise<{ success: boolean; phaseCount: number }> {
+    // Interval programs are only run by the native timer service
+    return { success: false, phaseCount: 0 };
+  }
+  
+  async getEventsSince(options: { since: number; epoch?: number }): Promise<TimerEventBatch> {
+    // Web events are delivered in-page and never missed
+    return { success: true, epoch: 0, lastSeq: options.since, truncated: false, events: [] };
+  }
+  
+  async getNativeMetrics(): Promise<NativeMetrics> {
+    return { success: true, tracing: false, counters: {}, timers: {} };
+  }
+  
+  async setNativeTracing(): Promise<{ success: boolean; tracing: boolean }> {
+    return { success: false, tracing: false };
+  }
+  
+  private scheduleNamedTimer(id: string, remaining: number) {
+    const entry = this.namedTimers.get(id)!;
+    entry.deadline = Date.now() + remaining;
+    entry.handle = window.setTimeout(() => {
+      this.namedTimers.delete(id);
+      this.emitEvent('namedTimerFinished', { id, label: entry.timer.label, duration: entry.timer.duration });
+    }, remaining);
+  }
+  
+  private clearNamedTimer(id: string): boolean {
+    const entry = this.namedTimers.get(id);
+    if (!entry) return false;
+    if (entry.handle !== null) window.clearTimeout(entry.handle);
+    this.namedTimers.delete(id);
+    return true;
+  }
+  
+  async getFocusDashboard(): Promise<FocusDashboard> {
+    const empty = (key: string): SessionTotal => ({ key, sessions: 0, completedSessions: 0, focusMs: 0 });
+    return {
+      success: true,
+      today: empty('today'),
+      thisWeek: empty('week'),
+      allTime: empty('all'),
+      days: [],
+      weeks: [],
+      topTasks: []
+    };
   }
   
   addListener(eventName: string, listenerFunc: (data: any) => void): PluginListenerHandle {
@@ -226,9 +426,20 @@ class TimerService {
     timeRemaining: 0,
     taskName: 'Focus Session'
   };
+  // Last native lifecycle event handled, kept across reloads so a resync asks only for what was missed
+  private lastEvent: { epoch?: number; seq: number } = { seq: 0 };
+  private nativeHandlers: { [type: string]: (data: any) => void } = {};
 
   constructor() {
     this.setupListeners();
+    if (Capacitor.isNativePlatform()) {
+      this.loadLastEvent();
+      App.addListener('appStateChange', ({ isActive }) => {
+        if (isActive) {
+          this.resyncEvents();
+        }
+      });
+    }
   }
 
   private setupListeners() {
@@ -243,7 +454,7 @@ class TimerService {
       });
     });
 
-    TimerPlugin.addListener('timerStarted', (data: any) => {
+    this.listenNative('timerStarted', (data: any) => {
       this.timerState.isRunning = true;
       this.timerState.isPaused = false;
       this.timerState.startTime = data.startTime;
@@ -260,7 +471,7 @@ class TimerService {
       });
     });
 
-    TimerPlugin.addListener('timerPaused', (data: any) => {
+    this.listenNative('timerPaused', (data: any) => {
       this.timerState.isPaused = true;
       this.timerState.timeRemaining = data.timeRemaining;
       
@@ -277,7 +488,7 @@ class TimerService {
       });
     });
 
-    TimerPlugin.addListener('timerStopped', () => {
+    this.listenNative('timerStopped', () => {
       const taskId = this.timerState.taskId;
       const pausedDuration = this.timerState.pausedDuration || 0;
       const timeSpentInSession = this.timerState.duration - this.timerState.timeRemaining;
@@ -299,7 +510,7 @@ class TimerService {
       this.timerState.taskName = 'Focus Session';
     });
 
-    TimerPlugin.addListener('timerFinished', (data: any) => {
+    this.listenNative('timerFinished', (data: any) => {
       this.timerState.isRunning = false;
       this.timerState.isPaused = false;
       this.timerState.timeRemaining = 0;
@@ -330,9 +541,77 @@ class TimerService {
       this.timerState.pausedDuration = 0;
       this.timerState.taskName = 'Focus Session';
     });
+
+    this.listenNative('namedTimerFinished', (data: any) => {
+      this.emitEvent('namedTimerFinished', {
+        id: data.id,
+        label: data.label,
+        duration: data.duration,
+        formattedDuration: formatTime(data.duration)
+      });
+    });
+
+    this.listenNative('intervalPhase', (data: any) => {
+      this.emitEvent('intervalPhase', {
+        ...data,
+        formattedDuration: formatTime(data.duration)
+      });
+    });
+
+    this.listenNative('intervalProgramFinished', (data: any) => {
+      this.emitEvent('intervalProgramFinished', data);
+    });
+  }
+
+  private listenNative(type: string, handler: (data: any) => void) {
+    this.nativeHandlers[type] = handler;
+    TimerPlugin.addListener(type, (data: any) => this.handleNativeEvent(type, data));
+  }
+
+  private handleNativeEvent(type: string, data: any) {
+    if (data.seq !== undefined) {
+      // Skip events already handled live before a resync returned them again
+      if (data.epoch === this.lastEvent.epoch && data.seq <= this.lastEvent.seq) {
+        return;
+      }
+      this.lastEvent = { epoch: data.epoch, seq: data.seq };
+      localStorage.setItem('lastTimerEvent', JSON.stringify(this.lastEvent));
+    }
+    this.nativeHandlers[type]?.(data);
+  }
+
+  private async loadLastEvent() {
+    try {
+      const saved = localStorage.getItem('lastTimerEvent');
+      if (saved) {
+        this.lastEvent = JSON.parse(saved);
+        await this.resyncEvents();
+      } else {
+        // First run: earlier events are history, not something this page missed
+        const batch = await TimerPlugin.getEventsSince({ since: 0 });
+        this.lastEvent = { epoch: batch.epoch, seq: batch.lastSeq };
+      }
+    } catch (error) {
+      console.error('Error loading last timer event:', error);
+    }
   }
 
-  async startTimer(durationSeconds: number, taskName: string = 'Focus Session', taskId?: string) {
+  // Replay the lifecycle events missed while the web view was suspended or reloaded, in one call
+  async resyncEvents(): Promise<void> {
+    try {
+      const batch = await TimerPlugin.getEventsSince({ since: this.lastEvent.seq, epoch: this.lastEvent.epoch });
+      if (batch.truncated) {
+        console.warn('Some timer events were dropped before they could be replayed');
+      }
+      for (const event of batch.events) {
+        this.handleNativeEvent(event.type, event);
+      }
+    } catch (error) {
+      console.error('Error replaying timer events:', error);
+    }
+  }
+
+  async startTimer(durationSeconds: number, taskName: string = 'Focus Session', taskId?: string, lowPower: boolean = false) {
     try {
       this.timerState.taskName = taskName;
       this.timerState.taskId = taskId;
@@ -349,7 +628,8 @@ class TimerService {
       const result = await TimerPlugin.startTimer({
         durationSeconds,
         taskName,
-        taskId
+        taskId,
+        lowPower
       });
       
       return result.success;
@@ -392,12 +672,13 @@ class TimerService {
   async getTimerStatus() {
     try {
       const status = await TimerPlugin.getTimerStatus();
+      // Native status is current even when countdown events were throttled in the background
       return {
         isRunning: status.isRunning,
-        isPaused: this.timerState.isPaused,
-        timeRemaining: this.timerState.timeRemaining,
-        formattedTimeRemaining: formatTimeDisplay(this.timerState.timeRemaining),
-        taskName: this.timerState.taskName,
+        isPaused: status.isPaused,
+        timeRemaining: status.timeRemaining,
+        formattedTimeRemaining: formatTimeDisplay(status.timeRemaining),
+        taskName: status.taskName || this.timerState.taskName,
         taskId: this.timerState.taskId,
         pausedDuration: this.timerState.pausedDuration || 0
       };
@@ -415,6 +696,109 @@ class TimerService {
     }
   }
 
+  // Totals per day, ISO week or task, aggregated natively over the session log
+  async getSessionTotals(groupBy: SessionGrouping = 'day', from?: number, to?: number): Promise<SessionTotal[]> {
+    try {
+      const result = await TimerPlugin.getSessionTotals({ groupBy, from, to });
+      return result.totals;
+    } catch (error) {
+      console.error('Error getting session totals:', error);
+      return [];
+    }
+  }
+
+  // Named timers run natively alongside the focus session and survive the app going to the background
+  async startNamedTimer(id: string, durationSeconds: number, label?: string): Promise<boolean> {
+    try {
+      const result = await TimerPlugin.startNamedTimer({ id, durationSeconds, label });
+      return result.success;
+    } catch (error) {
+      console.error('Error starting named timer:', error);
+      return false;
+    }
+  }
+
+  async pauseNamedTimer(id: string): Promise<boolean> {
+    try {
+      return (await TimerPlugin.pauseNamedTimer({ id })).success;
+    } catch (error) {
+      console.error('Error pausing named timer:', error);
+      return false;
+    }
+  }
+
+  async resumeNamedTimer(id: string): Promise<boolean> {
+    try {
+      return (await TimerPlugin.resumeNamedTimer({ id })).success;
+    } catch (error) {
+      console.error('Error resuming named timer:', error);
+      return false;
+    }
+  }
+
+  async cancelNamedTimer(id: string): Promise<boolean> {
+    try {
+      return (await TimerPlugin.cancelNamedTimer({ id })).success;
+    } catch (error) {
+      console.error('Error cancelling named timer:', error);
+      return false;
+    }
+  }
+
+  async listNamedTimers(): Promise<NamedTimer[]> {
+    try {
+      return (await TimerPlugin.listNamedTimers()).timers;
+    } catch (error) {
+      console.error('Error listing named timers:', error);
+      return [];
+    }
+  }
+
+  // Phases advance inside the native service, so transitions stay on time while the app is in the background
+  async startIntervalProgram(program: IntervalProgram, taskName: string = 'Focus Session', taskId?: string, lowPower: boolean = false): Promise<boolean> {
+    try {
+      const result = await TimerPlugin.startIntervalProgram({ program, taskName, taskId, lowPower });
+      if (result.success) {
+        this.timerState.taskName = taskName;
+        this.timerState.taskId = taskId;
+      }
+      return result.success;
+    } catch (error) {
+      console.error('Error starting interval program:', error);
+      return false;
+    }
+  }
+
+  // Call counts and latency percentiles for the native plugins and services
+  async getNativeMetrics(reset: boolean = false): Promise<NativeMetrics | null> {
+    try {
+      return await TimerPlugin.getNativeMetrics({ reset });
+    } catch (error) {
+      console.error('Error getting native metrics:', error);
+      return null;
+    }
+  }
+
+  // Mirror timed native sections into android.os.Trace for a systrace/Perfetto capture
+  async setNativeTracing(enabled: boolean): Promise<boolean> {
+    try {
+      return (await TimerPlugin.setNativeTracing({ enabled })).success;
+    } catch (error) {
+      console.error('Error setting native tracing:', error);
+      return false;
+    }
+  }
+
+  // Today, this week, recent days and weeks, top tasks and all-time totals in one call
+  async getFocusDashboard(options?: { days?: number; weeks?: number; topTasks?: number }): Promise<FocusDashboard | null> {
+    try {
+      return await TimerPlugin.getFocusDashboard(options);
+    } catch (error) {
+      console.error('Error getting focus dashboard:', error);
+      return null;
+    }
+  }
+
   // Helper method to save completed focus session to local storage for history
   private saveCompletedSession(session: any) {
     try {